@@ -0,0 +1,87 @@
+package com.example.adyenwebdemo.model;
+
+import com.adyen.model.checkout.PaymentDetailsResponse;
+import com.adyen.model.checkout.SessionResultResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Result page selection: {@link PaymentOutcome} lookups against the previous path of converting the Adyen enum to a
+ * string, upper-casing it and comparing it with each known code
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PaymentOutcomeBenchmark {
+
+    @Param({"AUTHORISED", "RECEIVED", "REFUSED", "CHALLENGESHOPPER"})
+    private PaymentDetailsResponse.ResultCodeEnum resultCode;
+
+    @Param({"COMPLETED", "PAYMENTPENDING"})
+    private SessionResultResponse.StatusEnum status;
+
+    private String storedResultCode;
+
+    @Setup
+    public void setUp() {
+        storedResultCode = resultCode.toString();
+    }
+
+    @Benchmark
+    public String resultCodeStringPath() {
+        return view(resultCode.toString());
+    }
+
+    @Benchmark
+    public String resultCodeOutcome() {
+        return PaymentOutcome.of(resultCode).view();
+    }
+
+    @Benchmark
+    public String sessionStatusStringPath() {
+        String code = switch (status) {
+            case COMPLETED -> "Authorised";
+            case PAYMENTPENDING -> "Pending";
+            default -> status.toString();
+        };
+        return view(code);
+    }
+
+    @Benchmark
+    public String sessionStatusOutcome() {
+        return PaymentOutcome.of(status).view();
+    }
+
+    @Benchmark
+    public String storedResultCodeOutcome() {
+        return PaymentOutcome.of(storedResultCode).view();
+    }
+
+    /**
+     * The controllers' former classification
+     */
+    private static String view(String code) {
+        String resultCode = code.toUpperCase();
+        if (resultCode.equals("AUTHORISED") || resultCode.equals("AUTHENTICATED")) {
+            return "success";
+        } else if (resultCode.equals("PENDING") || resultCode.equals("RECEIVED")) {
+            return "pending";
+        } else {
+            return "failed";
+        }
+    }
+}
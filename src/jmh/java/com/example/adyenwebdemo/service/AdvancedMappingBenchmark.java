@@ -0,0 +1,58 @@
+package com.example.adyenwebdemo.service;
+
+import com.adyen.model.checkout.PaymentDetailsResponse;
+import com.adyen.model.checkout.PaymentRequest;
+import com.adyen.model.checkout.PaymentResponse;
+import com.example.adyenwebdemo.model.AdvancedPaymentRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU-bound mapping and result assembly in {@link AdvancedFlowService}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AdvancedMappingBenchmark {
+
+    private AdvancedPaymentRequest advancedPaymentRequest;
+    private PaymentResponse paymentResponse;
+    private PaymentDetailsResponse paymentDetailsResponse;
+
+    @Setup
+    public void setUp() {
+        advancedPaymentRequest = BenchmarkFixtures.advancedPaymentRequest();
+        paymentResponse = BenchmarkFixtures.paymentResponse();
+        paymentDetailsResponse = BenchmarkFixtures.paymentDetailsResponse();
+    }
+
+    @Benchmark
+    public PaymentRequest buildPaymentRequest() {
+        return AdvancedFlowService.buildPaymentRequest(advancedPaymentRequest,
+                BenchmarkFixtures.MERCHANT_ACCOUNT, BenchmarkFixtures.REFERENCE);
+    }
+
+    @Benchmark
+    public Map<String, Object> toPaymentResult() {
+        return AdvancedFlowService.toPaymentResult(paymentResponse);
+    }
+
+    @Benchmark
+    public Map<String, Object> toDetailsResult() {
+        return AdvancedFlowService.toDetailsResult(paymentDetailsResponse);
+    }
+}
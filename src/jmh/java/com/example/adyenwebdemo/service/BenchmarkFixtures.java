@@ -0,0 +1,116 @@
+package com.example.adyenwebdemo.service;
+
+import com.adyen.model.checkout.Amount;
+import com.adyen.model.checkout.BrowserInfo;
+import com.adyen.model.checkout.CardDetails;
+import com.adyen.model.checkout.CheckoutPaymentMethod;
+import com.adyen.model.checkout.CheckoutThreeDS2Action;
+import com.adyen.model.checkout.PaymentDetailsResponse;
+import com.adyen.model.checkout.PaymentResponse;
+import com.adyen.model.checkout.PaymentResponseAction;
+import com.example.adyenwebdemo.model.AdvancedPaymentRequest;
+import com.example.adyenwebdemo.model.SessionsFlowRequest;
+
+import java.util.Map;
+
+/**
+ * Representative payloads shared by the mapping benchmarks
+ */
+final class BenchmarkFixtures {
+
+    static final String MERCHANT_ACCOUNT = "BenchmarkMerchantAccount";
+    static final String REFERENCE = "ORDER-0b7c3f9e-5d52-4a43-9f7e-2c1a8f0d6b11";
+
+    /**
+     * Body of /advanced/api/payments as posted by advanced-flow.js
+     */
+    static final String ADVANCED_PAYMENT_JSON = """
+            {
+              "amount": {"currency": "EUR", "value": 1000},
+              "paymentMethod": {
+                "type": "scheme",
+                "holderName": "John Smith",
+                "encryptedCardNumber": "adyenjs_0_1_25$%s",
+                "encryptedExpiryMonth": "adyenjs_0_1_25$%s",
+                "encryptedExpiryYear": "adyenjs_0_1_25$%s",
+                "encryptedSecurityCode": "adyenjs_0_1_25$%s",
+                "brand": "visa"
+              },
+              "shopperReference": "shopper-12345",
+              "countryCode": "NL",
+              "enableRecurring": true,
+              "browserInfo": {
+                "acceptHeader": "*/*",
+                "colorDepth": 24,
+                "language": "en-US",
+                "javaEnabled": false,
+                "screenHeight": 1080,
+                "screenWidth": 1920,
+                "userAgent": "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_15_7) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/124.0 Safari/537.36",
+                "timeZoneOffset": -120
+              },
+              "returnUrl": "http://localhost:8080/advanced/result"
+            }
+            """.formatted("a".repeat(400), "b".repeat(300), "c".repeat(300), "d".repeat(300));
+
+    private BenchmarkFixtures() {
+    }
+
+    static SessionsFlowRequest sessionsFlowRequest() {
+        SessionsFlowRequest request = new SessionsFlowRequest();
+        request.setAmount(10);
+        request.setCurrency("EUR");
+        request.setCountryCode("NL");
+        request.setReturnUrl("http://localhost:8080/success");
+        request.setEnableRecurring(true);
+        request.setShopperReference("shopper-12345");
+        return request;
+    }
+
+    static AdvancedPaymentRequest advancedPaymentRequest() {
+        AdvancedPaymentRequest request = new AdvancedPaymentRequest();
+        request.setAmount(new Amount().currency("EUR").value(1000L));
+        request.setPaymentMethod(new CheckoutPaymentMethod(new CardDetails()
+                .type(CardDetails.TypeEnum.SCHEME)
+                .holderName("John Smith")
+                .encryptedCardNumber("adyenjs_0_1_25$" + "a".repeat(400))
+                .encryptedExpiryMonth("adyenjs_0_1_25$" + "b".repeat(300))
+                .encryptedExpiryYear("adyenjs_0_1_25$" + "c".repeat(300))
+                .encryptedSecurityCode("adyenjs_0_1_25$" + "d".repeat(300))));
+        request.setBrowserInfo(new BrowserInfo()
+                .acceptHeader("*/*")
+                .colorDepth(24)
+                .language("en-US")
+                .javaEnabled(false)
+                .screenHeight(1080)
+                .screenWidth(1920)
+                .userAgent("Mozilla/5.0 (Macintosh; Intel Mac OS X 10_15_7) AppleWebKit/537.36")
+                .timeZoneOffset(-120));
+        request.setShopperReference("shopper-12345");
+        request.setCountryCode("NL");
+        request.setEnableRecurring(true);
+        request.setReturnUrl("http://localhost:8080/advanced/result");
+        return request;
+    }
+
+    static PaymentResponse paymentResponse() {
+        return new PaymentResponse()
+                .resultCode(PaymentResponse.ResultCodeEnum.IDENTIFYSHOPPER)
+                .pspReference("NC6HT9CRT65ZGN82")
+                .merchantReference(REFERENCE)
+                .action(new PaymentResponseAction(new CheckoutThreeDS2Action()
+                        .type(CheckoutThreeDS2Action.TypeEnum.THREEDS2)
+                        .subtype("fingerprint")
+                        .paymentData("Ab02b4c0!" + "e".repeat(600))
+                        .token("eyJ0aHJlZURTTWV0aG9kTm90aWZpY2F0aW9uVVJMIjoi" + "f".repeat(400))))
+                .additionalData(Map.of("cardSummary", "1111", "paymentMethod", "visa"));
+    }
+
+    static PaymentDetailsResponse paymentDetailsResponse() {
+        return new PaymentDetailsResponse()
+                .resultCode(PaymentDetailsResponse.ResultCodeEnum.AUTHORISED)
+                .pspReference("NC6HT9CRT65ZGN82")
+                .merchantReference(REFERENCE)
+                .additionalData(Map.of("cardSummary", "1111", "paymentMethod", "visa"));
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.adyenwebdemo.service;
+
+import com.adyen.model.checkout.JSON;
+import com.adyen.model.checkout.PaymentResponse;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The JSON work of one /advanced/api/payments request: parsing Adyen's /payments response and writing the
+ * {@link AdvancedFlowService#toPaymentResult} body to the response stream, with reflective property access versus
+ * the Blackbird-generated accessors of {@link CheckoutJson}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CheckoutJsonBenchmark {
+
+    private final ByteArrayOutputStream responseStream = new ByteArrayOutputStream(8192);
+
+    private Map<String, Object> paymentResult;
+    private String adyenResponseBody;
+
+    private ObjectWriter reflectionWriter;
+    private ObjectReader reflectionReader;
+    private ObjectWriter blackbirdWriter;
+    private ObjectReader blackbirdReader;
+
+    @Setup
+    public void setUp() throws IOException {
+        PaymentResponse paymentResponse = BenchmarkFixtures.paymentResponse();
+        paymentResult = AdvancedFlowService.toPaymentResult(paymentResponse);
+        adyenResponseBody = paymentResponse.toJson();
+
+        // Configured like Spring Boot's default ObjectMapper, and copies of the Adyen checkout models' mapper
+        ObjectMapper webMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        reflectionWriter = webMapper.copy().writerFor(Map.class);
+        blackbirdWriter = webMapper.copy().registerModule(new BlackbirdModule()).writerFor(Map.class);
+        reflectionReader = JSON.getMapper().copy().readerFor(PaymentResponse.class);
+        blackbirdReader = JSON.getMapper().copy().registerModule(new BlackbirdModule()).readerFor(PaymentResponse.class);
+    }
+
+    @Benchmark
+    public int reflection() throws IOException {
+        return payment(reflectionReader, reflectionWriter);
+    }
+
+    @Benchmark
+    public int blackbird() throws IOException {
+        return payment(blackbirdReader, blackbirdWriter);
+    }
+
+    private int payment(ObjectReader reader, ObjectWriter writer) throws IOException {
+        PaymentResponse response = reader.readValue(adyenResponseBody);
+        responseStream.reset();
+        writer.writeValue(responseStream, AdvancedFlowService.toPaymentResult(response));
+        return responseStream.size();
+    }
+
+    @Benchmark
+    public int reflectionWriteOnly() throws IOException {
+        responseStream.reset();
+        reflectionWriter.writeValue(responseStream, paymentResult);
+        return responseStream.size();
+    }
+
+    @Benchmark
+    public int blackbirdWriteOnly() throws IOException {
+        responseStream.reset();
+        blackbirdWriter.writeValue(responseStream, paymentResult);
+        return responseStream.size();
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.adyenwebdemo.service;
+
+import com.adyen.model.checkout.CheckoutPaymentMethod;
+import com.example.adyenwebdemo.model.AdvancedPaymentRequest;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binding the /advanced/api/payments body: typed {@link AdvancedPaymentRequest} versus the former
+ * Map binding followed by a paymentMethod serialize / {@link CheckoutPaymentMethod#fromJson} round trip.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PaymentRequestBindingBenchmark {
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {
+    };
+
+    // Configured like Spring Boot's default ObjectMapper
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @Benchmark
+    public AdvancedPaymentRequest typedBinding() throws IOException {
+        return objectMapper.readValue(BenchmarkFixtures.ADVANCED_PAYMENT_JSON, AdvancedPaymentRequest.class);
+    }
+
+    @Benchmark
+    public CheckoutPaymentMethod mapRoundTrip() throws IOException {
+        Map<String, Object> paymentData = objectMapper.readValue(BenchmarkFixtures.ADVANCED_PAYMENT_JSON, MAP_TYPE);
+        String paymentMethodJson = objectMapper.writeValueAsString(paymentData.get("paymentMethod"));
+        return CheckoutPaymentMethod.fromJson(paymentMethodJson);
+    }
+}
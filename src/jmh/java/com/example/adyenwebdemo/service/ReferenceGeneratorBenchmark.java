@@ -0,0 +1,41 @@
+package com.example.adyenwebdemo.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merchant reference generation from many threads at once, as under load: the previous ORDER-&lt;randomUUID&gt;,
+ * which serializes on the shared SecureRandom, against {@link TimeOrderedReferenceGenerator}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class ReferenceGeneratorBenchmark {
+
+    private final ReferenceGenerator uuid = new UuidReferenceGenerator();
+    private final ReferenceGenerator timeOrdered = new TimeOrderedReferenceGenerator(7, "TEST");
+
+    @Benchmark
+    public String randomUuid() {
+        return uuid.next();
+    }
+
+    @Benchmark
+    public String timeOrdered() {
+        return timeOrdered.next();
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.adyenwebdemo.service;
+
+import com.adyen.model.checkout.CreateCheckoutSessionRequest;
+import com.adyen.model.checkout.PaymentDetailsResponse;
+import com.example.adyenwebdemo.model.AdyenPaymentDetailsResponse;
+import com.example.adyenwebdemo.model.SessionsFlowRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU-bound mapping in {@link SessionsFlowService}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SessionsMappingBenchmark {
+
+    private SessionsFlowRequest sessionsFlowRequest;
+    private PaymentDetailsResponse paymentDetailsResponse;
+
+    @Setup
+    public void setUp() {
+        sessionsFlowRequest = BenchmarkFixtures.sessionsFlowRequest();
+        paymentDetailsResponse = BenchmarkFixtures.paymentDetailsResponse();
+    }
+
+    @Benchmark
+    public CreateCheckoutSessionRequest buildSessionRequest() {
+        return SessionsFlowService.buildSessionRequest(sessionsFlowRequest,
+                BenchmarkFixtures.MERCHANT_ACCOUNT, BenchmarkFixtures.REFERENCE);
+    }
+
+    @Benchmark
+    public AdyenPaymentDetailsResponse toDetailsResponse() {
+        return SessionsFlowService.toDetailsResponse(paymentDetailsResponse);
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.adyenwebdemo.webhook;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DuplicateFilter} holding tens of millions of keys: lookups of new keys (whose probable-duplicate answers
+ * are false positives, reported as the falsePositives/checks counters), of keys still in the exact window and of
+ * keys only remembered by the Bloom filter, plus steady-state adds including generation rotations.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-XX:MaxDirectMemorySize=1g")
+public class DuplicateFilterBenchmark {
+
+    private static final double FPP = 0.000001;
+    private static final int EXACT_CAPACITY = 262_144;
+    private static final long WINDOW_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final long GENERATION_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    /**
+     * A filter that has seen {@code keys} keys, all within one Bloom generation
+     */
+    @State(Scope.Benchmark)
+    public static class Filled {
+
+        @Param({"10000000", "30000000"})
+        long keys;
+
+        DuplicateFilter filter;
+        long now;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            now = System.currentTimeMillis();
+            filter = DuplicateFilter.open(null, keys, FPP, GENERATION_MILLIS, EXACT_CAPACITY, WINDOW_MILLIS);
+            long start = System.nanoTime();
+            for (long i = 0; i < keys; i++) {
+                filter.add(key(i), now);
+            }
+            System.out.printf("%nFilled %d keys in %d ms, filter %d MB%n", keys,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), filter.sizeBytes() >> 20);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            filter.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Probes {
+
+        public long checks;
+        public long falsePositives;
+        long next;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            checks = 0;
+            falsePositives = 0;
+        }
+    }
+
+    /**
+     * Steady state of a production-sized filter: adds of new keys, rotating a generation every million keys
+     */
+    @State(Scope.Thread)
+    public static class Rotating {
+
+        DuplicateFilter filter;
+        long next;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            filter = DuplicateFilter.open(null, 1_000_000, FPP, GENERATION_MILLIS, EXACT_CAPACITY, WINDOW_MILLIS);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            filter.close();
+        }
+    }
+
+    @Benchmark
+    public DuplicateFilter.Result checkNew(Filled filled, Probes probes) {
+        // Keys above the filled range were never added
+        DuplicateFilter.Result result = filled.filter.check(key(filled.keys + probes.next++), filled.now);
+        probes.checks++;
+        if (result != DuplicateFilter.Result.NEW) {
+            probes.falsePositives++;
+        }
+        return result;
+    }
+
+    @Benchmark
+    public DuplicateFilter.Result checkRecent(Filled filled, Probes probes) {
+        // The last keys added are still in the exact table
+        return filled.filter.check(key(filled.keys - 1 - (probes.next++ & (EXACT_CAPACITY / 4 - 1))), filled.now);
+    }
+
+    @Benchmark
+    public DuplicateFilter.Result checkOld(Filled filled, Probes probes) {
+        // The first keys added were evicted from the exact table long ago
+        return filled.filter.check(key(probes.next++ % (filled.keys / 2)), filled.now);
+    }
+
+    @Benchmark
+    public DuplicateFilter.Result add(Rotating rotating) {
+        return rotating.filter.add(key(rotating.next++), System.currentTimeMillis());
+    }
+
+    private static long key(long i) {
+        return DuplicateFilter.hash("PSP" + i, "AUTHORISATION", "true");
+    }
+}
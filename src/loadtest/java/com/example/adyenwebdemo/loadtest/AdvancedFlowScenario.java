@@ -0,0 +1,74 @@
+package com.example.adyenwebdemo.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Advanced flow as driven by advanced-flow.js: payment methods, payment, and the details call when the payment
+ * answers with a redirect or 3DS2 action. The redirect itself is skipped; its redirectResult is the action's
+ * paymentData, as issued by the checkout stub.
+ */
+final class AdvancedFlowScenario implements CheckoutScenario {
+
+    @Override
+    public String name() {
+        return "advanced";
+    }
+
+    @Override
+    public CompletableFuture<?> run(StepClient client, long iteration, boolean measured) {
+        String shopperReference = "loadtest-shopper-" + iteration % 1000;
+        Map<String, Object> paymentMethodsRequest = Map.of(
+                "amount", 1000,
+                "currency", "EUR",
+                "countryCode", "NL",
+                "shopperReference", shopperReference,
+                "enableRecurring", false);
+
+        return client.post("advanced.paymentMethods", "/advanced/api/paymentMethods", paymentMethodsRequest, measured)
+                .thenCompose(paymentMethods -> client.submit("advanced.payments", "/advanced/api/payments",
+                        paymentRequest(client, shopperReference), measured))
+                .thenCompose(payment -> {
+                    JsonNode action = payment.path("action");
+                    if (action.isMissingNode() || action.isNull()) {
+                        return CompletableFuture.completedFuture(payment);
+                    }
+                    String paymentData = action.path("paymentData").asText("");
+                    Map<String, Object> details = "redirect".equals(action.path("type").asText())
+                            ? Map.of("redirectResult", paymentData)
+                            : Map.of("threeDSResult", "loadtest-" + iteration, "paymentData", paymentData);
+                    return client.post("advanced.details", "/advanced/api/payments/details", details, measured);
+                });
+    }
+
+    /**
+     * The body advanced-flow.js sends; the same card every time, so only the Idempotency-Key tells submits apart
+     */
+    private static Map<String, Object> paymentRequest(StepClient client, String shopperReference) {
+        String encrypted = "adyenjs_0_1_25$loadtest";
+        return Map.of(
+                "amount", Map.of("currency", "EUR", "value", 1000),
+                "paymentMethod", Map.of(
+                        "type", "scheme",
+                        "holderName", "Load Test",
+                        "encryptedCardNumber", encrypted,
+                        "encryptedExpiryMonth", encrypted,
+                        "encryptedExpiryYear", encrypted,
+                        "encryptedSecurityCode", encrypted),
+                "shopperReference", shopperReference,
+                "countryCode", "NL",
+                "enableRecurring", false,
+                "browserInfo", Map.of(
+                        "acceptHeader", "*/*",
+                        "colorDepth", 24,
+                        "language", "en-US",
+                        "javaEnabled", false,
+                        "screenHeight", 1080,
+                        "screenWidth", 1920,
+                        "userAgent", "adyen-web-demo-loadtest",
+                        "timeZoneOffset", 0),
+                "returnUrl", client.baseUrl() + "/advanced/result");
+    }
+}
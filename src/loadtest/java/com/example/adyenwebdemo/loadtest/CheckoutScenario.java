@@ -0,0 +1,20 @@
+package com.example.adyenwebdemo.loadtest;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * One shopper's checkout, as the sequence of calls the browser script of a flow makes
+ */
+interface CheckoutScenario {
+
+    /**
+     * Name of the flow, prefix of its step names in the report
+     */
+    String name();
+
+    /**
+     * @param iteration unique per arrival, used to make references and card data distinct
+     * @param measured  false during warm-up
+     */
+    CompletableFuture<?> run(StepClient client, long iteration, boolean measured);
+}
@@ -0,0 +1,180 @@
+package com.example.adyenwebdemo.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load generator for the checkout flows.
+ * <p>
+ * Scenarios start on a fixed arrival schedule, whether or not earlier ones have finished, so a slow application
+ * builds up a queue instead of slowing the generator down. Each step's latency is measured from the moment its
+ * request is sent, each scenario's from its scheduled arrival, so delays caused by the generator falling behind are
+ * included (no coordinated omission). Run the application with the stub profile, then:
+ * <pre>
+ * ./mvnw -Ploadtest test-compile exec:exec -Dloadtest.rate=50 -Dloadtest.duration-seconds=120
+ * </pre>
+ * The report is written as JSON to {@code target/loadtest}.
+ */
+public final class LoadTest {
+
+    private static final DateTimeFormatter REPORT_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")
+            .withZone(ZoneOffset.UTC);
+
+    private final LoadTestSettings settings;
+    private final List<CheckoutScenario> scenarios;
+    private final StepClient client;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private LoadTest(LoadTestSettings settings, StepClient client) {
+        this.settings = settings;
+        this.client = client;
+        this.scenarios = settings.flows().stream().map(LoadTest::scenario).toList();
+    }
+
+    public static void main(String[] args) throws Exception {
+        run(LoadTestSettings.fromSystemProperties(), new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT));
+    }
+
+    /**
+     * Runs one load test and writes its report
+     *
+     * @return the measured statistics per scenario and step
+     */
+    static Map<String, StepStats> run(LoadTestSettings settings, ObjectMapper objectMapper) throws Exception {
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(settings.clientThreads());
+        try {
+            HttpClient httpClient = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .executor(clientExecutor)
+                    .build();
+            StepClient client = new StepClient(httpClient, objectMapper, settings.baseUrl(),
+                    Duration.ofSeconds(settings.requestTimeoutSeconds()));
+            Instant startedAt = Instant.now();
+            LoadTest loadTest = new LoadTest(settings, client);
+            loadTest.run();
+            Path report = loadTest.writeReport(objectMapper, startedAt);
+            System.out.println("Report written to " + report.toAbsolutePath());
+            return client.allStats();
+        } finally {
+            clientExecutor.shutdownNow();
+        }
+    }
+
+    static CheckoutScenario scenario(String flow) {
+        return switch (flow) {
+            case "sessions" -> new SessionsFlowScenario("sessions", "");
+            case "reactive" -> new SessionsFlowScenario("reactive", "/reactive");
+            case "advanced" -> new AdvancedFlowScenario();
+            case "results" -> new ResultPageScenario();
+            default -> throw new IllegalArgumentException("Unknown flow: " + flow + " (sessions, reactive, advanced, results)");
+        };
+    }
+
+    private void run() throws InterruptedException {
+        System.out.printf("Running %s at %.1f arrivals/s against %s: %d s warm-up, %d s measured%n",
+                settings.flows(), settings.rate(), settings.baseUrl(), settings.warmupSeconds(), settings.durationSeconds());
+
+        Random random = new Random(settings.seed());
+        double meanGapNanos = TimeUnit.SECONDS.toNanos(1) / settings.rate();
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(settings.warmupSeconds());
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(settings.durationSeconds());
+
+        long arrival = start;
+        long iteration = 0;
+        while (arrival < end) {
+            long wait = arrival - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            launch(scenarios.get((int) (iteration % scenarios.size())), iteration, arrival, arrival >= measureFrom);
+            iteration++;
+            double gap = settings.poisson() ? -Math.log(1 - random.nextDouble()) * meanGapNanos : meanGapNanos;
+            arrival += (long) gap;
+        }
+
+        long drainUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(settings.drainSeconds());
+        while (inFlight.get() > 0 && System.nanoTime() < drainUntil) {
+            Thread.sleep(100);
+        }
+        if (inFlight.get() > 0) {
+            System.out.printf("%d scenarios still in flight after %d s drain%n", inFlight.get(), settings.drainSeconds());
+        }
+        if (dropped.get() > 0) {
+            System.out.printf("%d arrivals dropped at %d scenarios in flight%n", dropped.get(), settings.maxInFlight());
+        }
+    }
+
+    private void launch(CheckoutScenario scenario, long iteration, long scheduledAt, boolean measured) {
+        if (inFlight.get() >= settings.maxInFlight()) {
+            if (measured) {
+                dropped.incrementAndGet();
+            }
+            return;
+        }
+        inFlight.incrementAndGet();
+        scenario.run(client, iteration, measured).whenComplete((result, error) -> {
+            inFlight.decrementAndGet();
+            if (measured) {
+                client.stats(scenario.name()).record(System.nanoTime() - scheduledAt,
+                        error == null ? "completed" : "failed", error != null);
+            }
+        });
+    }
+
+    private Path writeReport(ObjectMapper objectMapper, Instant startedAt) throws IOException {
+        ObjectNode report = objectMapper.createObjectNode();
+        report.put("label", settings.label());
+        report.put("startedAt", startedAt.toString());
+        report.set("settings", objectMapper.valueToTree(Map.of(
+                "baseUrl", settings.baseUrl(),
+                "flows", settings.flows(),
+                "rate", settings.rate(),
+                "poisson", settings.poisson(),
+                "warmupSeconds", settings.warmupSeconds(),
+                "durationSeconds", settings.durationSeconds(),
+                "maxInFlight", settings.maxInFlight(),
+                "seed", settings.seed())));
+        report.put("dropped", dropped.get());
+
+        ObjectNode scenarioNodes = report.putObject("scenarios");
+        ObjectNode steps = report.putObject("steps");
+        System.out.printf("%n%-28s %8s %7s %9s %9s %9s %9s %9s%n", "", "count", "errors", "p50 ms", "p90 ms", "p99 ms",
+                "p99.9 ms", "max ms");
+        for (Map.Entry<String, StepStats> entry : new TreeMap<>(client.allStats()).entrySet()) {
+            String name = entry.getKey();
+            StepStats stats = entry.getValue();
+            stats.writeTo((name.contains(".") ? steps : scenarioNodes).putObject(name), settings.durationSeconds());
+            System.out.printf("%-28s %8d %7d %9.1f %9.1f %9.1f %9.1f %9.1f%n", name, stats.count(), stats.errors(),
+                    stats.percentileMillis(50), stats.percentileMillis(90), stats.percentileMillis(99),
+                    stats.percentileMillis(99.9), stats.percentileMillis(100));
+        }
+
+        Files.createDirectories(settings.reportDir());
+        Path file = settings.reportDir().resolve("loadtest-" + settings.label() + "-" + REPORT_TIMESTAMP.format(startedAt) + ".json");
+        objectMapper.writeValue(file.toFile(), report);
+        return file;
+    }
+}
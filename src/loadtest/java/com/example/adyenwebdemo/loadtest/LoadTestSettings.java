@@ -0,0 +1,43 @@
+package com.example.adyenwebdemo.loadtest;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Load test parameters, read from -Dloadtest.* system properties
+ *
+ * @param baseUrl       application under test
+ * @param flows         scenarios to run, one arrival at a time in rotation: sessions, reactive, advanced, results
+ * @param rate          arrivals per second, independent of how fast the application answers (open model)
+ * @param poisson       exponentially distributed gaps between arrivals instead of a constant rate
+ * @param maxInFlight   scenarios in progress beyond which new arrivals are counted as dropped instead of started
+ * @param label         name of the run in the report, e.g. the build or execution mode under test
+ */
+record LoadTestSettings(String baseUrl, List<String> flows, double rate, boolean poisson,
+                        int warmupSeconds, int durationSeconds, int drainSeconds, int maxInFlight,
+                        int requestTimeoutSeconds, int clientThreads, long seed, String label, Path reportDir) {
+
+    static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings(
+                System.getProperty("loadtest.base-url", "http://localhost:8080"),
+                Arrays.stream(System.getProperty("loadtest.flows", "sessions,advanced").split(","))
+                        .map(String::trim).filter(flow -> !flow.isEmpty()).toList(),
+                Double.parseDouble(System.getProperty("loadtest.rate", "20")),
+                Boolean.parseBoolean(System.getProperty("loadtest.poisson", "true")),
+                Integer.getInteger("loadtest.warmup-seconds", 10),
+                Integer.getInteger("loadtest.duration-seconds", 60),
+                Integer.getInteger("loadtest.drain-seconds", 30),
+                Integer.getInteger("loadtest.max-in-flight", 5000),
+                Integer.getInteger("loadtest.request-timeout-seconds", 30),
+                Integer.getInteger("loadtest.client-threads", 8),
+                Long.getLong("loadtest.seed", 42L),
+                System.getProperty("loadtest.label", "default"),
+                Path.of(System.getProperty("loadtest.report-dir", "target/loadtest")));
+    }
+
+    LoadTestSettings withLabel(String label) {
+        return new LoadTestSettings(baseUrl, flows, rate, poisson, warmupSeconds, durationSeconds, drainSeconds,
+                maxInFlight, requestTimeoutSeconds, clientThreads, seed, label, reportDir);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.adyenwebdemo.loadtest;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Shoppers returning to the result pages: GET /result and /success with a redirectResult, as after a redirect
+ * payment. The redirectResults come from a small pool, so after the first round the payments are final in the
+ * payment state store and the requests measure page rendering rather than Adyen calls.
+ */
+final class ResultPageScenario implements CheckoutScenario {
+
+    private static final int REDIRECT_RESULTS = 100;
+
+    @Override
+    public String name() {
+        return "results";
+    }
+
+    @Override
+    public CompletableFuture<?> run(StepClient client, long iteration, boolean measured) {
+        String query = "?redirectResult=" + URLEncoder.encode(redirectResult(iteration % REDIRECT_RESULTS),
+                StandardCharsets.UTF_8);
+        return client.get("results.result", "/result" + query, measured)
+                .thenCompose(page -> client.get("results.success", "/success" + query, measured));
+    }
+
+    /**
+     * In the format the checkout stub issues: its /payments/details answers with these references
+     */
+    private static String redirectResult(long payment) {
+        String state = String.format("LOADTEST%08d|loadtest-result-%d", payment, payment);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(state.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.adyenwebdemo.loadtest;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sessions flow as driven by sessions-flow.js: create the session, submit the 3DS result, fetch the session result.
+ * The payment itself goes from the Drop-in straight to Adyen and is not part of the application's load.
+ */
+final class SessionsFlowScenario implements CheckoutScenario {
+
+    private final String name;
+    private final String prefix;
+
+    /**
+     * @param prefix "" for the blocking API, "/reactive" for the reactive one
+     */
+    SessionsFlowScenario(String name, String prefix) {
+        this.name = name;
+        this.prefix = prefix;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public CompletableFuture<?> run(StepClient client, long iteration, boolean measured) {
+        Map<String, Object> sessionRequest = Map.of(
+                "amount", 1000,
+                "currency", "EUR",
+                "countryCode", "NL",
+                "returnUrl", client.baseUrl() + "/success",
+                "enableRecurring", false,
+                "shopperReference", "loadtest-shopper-" + iteration % 1000);
+
+        return client.submit(name + ".sessions", prefix + "/api/sessions", sessionRequest, measured)
+                .thenCompose(session -> client.post(name + ".3DSDetails", prefix + "/api/payments/3DSDetails",
+                                Map.of("threeDSResult", "loadtest-" + iteration,
+                                        "merchantReference", session.path("reference").asText()), measured)
+                        .thenCompose(details -> client.post(name + ".sessionResult", prefix + "/api/sessions/result",
+                                Map.of("sessionId", session.path("sessionId").asText(),
+                                        "sessionResult", "loadtest-" + iteration), measured)));
+    }
+}
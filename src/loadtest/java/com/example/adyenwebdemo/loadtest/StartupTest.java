@@ -0,0 +1,154 @@
+package com.example.adyenwebdemo.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to first successful checkout of a freshly started application, to compare build and startup options
+ * (plain jar, cds profile, warm-up on or off).
+ * <p>
+ * Each run starts the application with {@code -Dstartup.command}, waits for its readiness probe and then runs
+ * checkouts of one flow back to back. It reports the time from process start to readiness and to the end of the
+ * first successful checkout, and the latency of the first {@code -Dstartup.checkouts} checkouts, when the JIT is
+ * still warming up. Start the application against the stub, e.g.:
+ * <pre>
+ * ./mvnw -Ploadtest test-compile exec:exec -Dloadtest.main=com.example.adyenwebdemo.loadtest.StartupTest \
+ *     -Dstartup.command="java -jar target/adyen-web-demo-2.0.0.jar --spring.profiles.active=stub" -Dloadtest.label=jar
+ * </pre>
+ */
+public final class StartupTest {
+
+    private static final DateTimeFormatter REPORT_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")
+            .withZone(ZoneOffset.UTC);
+    private static final long POLL_MILLIS = 20;
+
+    private final List<String> command = Arrays.asList(System.getProperty("startup.command", "").trim().split("\\s+"));
+    private final String baseUrl = System.getProperty("startup.base-url", "http://localhost:8080");
+    private final String flow = System.getProperty("startup.flow", "sessions");
+    private final int runs = Integer.getInteger("startup.runs", 5);
+    private final int checkouts = Integer.getInteger("startup.checkouts", 200);
+    private final int readyTimeoutSeconds = Integer.getInteger("startup.ready-timeout-seconds", 120);
+    private final String label = System.getProperty("startup.label", "default");
+    private final Path reportDir = Path.of(System.getProperty("startup.report-dir", "target/loadtest"));
+
+    public static void main(String[] args) throws Exception {
+        new StartupTest().run();
+    }
+
+    private void run() throws Exception {
+        if (command.get(0).isEmpty()) {
+            throw new IllegalArgumentException("Set -Dstartup.command to the command that starts the application");
+        }
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        Files.createDirectories(reportDir);
+        Instant startedAt = Instant.now();
+
+        ObjectNode report = objectMapper.createObjectNode();
+        report.put("label", label);
+        report.put("startedAt", startedAt.toString());
+        report.put("command", String.join(" ", command));
+        report.put("flow", flow);
+        ArrayNode runNodes = report.putArray("runs");
+        StepStats readiness = new StepStats();
+        StepStats firstCheckout = new StepStats();
+
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(2);
+        try {
+            HttpClient httpClient = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(1))
+                    .executor(clientExecutor)
+                    .build();
+            for (int run = 0; run < runs; run++) {
+                StepClient client = new StepClient(httpClient, objectMapper, baseUrl, Duration.ofSeconds(30));
+                ObjectNode runNode = runNodes.addObject();
+                measure(client, run, runNode, readiness, firstCheckout);
+                System.out.printf("Run %d: ready after %d ms, first checkout after %d ms%n", run + 1,
+                        runNode.path("readyMs").asLong(), runNode.path("firstCheckoutMs").asLong());
+            }
+        } finally {
+            clientExecutor.shutdownNow();
+        }
+
+        readiness.writeTo(report.putObject("readiness"), 1);
+        firstCheckout.writeTo(report.putObject("firstCheckout"), 1);
+        Path file = reportDir.resolve("startup-" + label + "-" + REPORT_TIMESTAMP.format(startedAt) + ".json");
+        objectMapper.writeValue(file.toFile(), report);
+        System.out.printf("Readiness p50 %.0f ms, first checkout p50 %.0f ms over %d runs%n",
+                readiness.percentileMillis(50), firstCheckout.percentileMillis(50), runs);
+        System.out.println("Report written to " + file.toAbsolutePath());
+    }
+
+    private void measure(StepClient client, int run, ObjectNode runNode, StepStats readiness, StepStats firstCheckout)
+            throws IOException, InterruptedException {
+        CheckoutScenario scenario = LoadTest.scenario(flow);
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(reportDir.resolve("startup-" + label + "-run" + (run + 1) + ".log").toFile())
+                .start();
+        long start = System.nanoTime();
+        try {
+            long deadline = start + TimeUnit.SECONDS.toNanos(readyTimeoutSeconds);
+            while (!ready(client)) {
+                if (!process.isAlive() || System.nanoTime() > deadline) {
+                    throw new IllegalStateException("Application did not become ready in run " + (run + 1));
+                }
+                Thread.sleep(POLL_MILLIS);
+            }
+            long ready = System.nanoTime() - start;
+            readiness.record(ready, "ready", false);
+            runNode.put("readyMs", TimeUnit.NANOSECONDS.toMillis(ready));
+
+            // The first checkouts are measured individually: they are the ones slowed down by a cold JVM
+            long firstSuccess = -1;
+            long checkoutsStart = System.nanoTime();
+            for (int i = 0; i < checkouts; i++) {
+                try {
+                    scenario.run(client, (long) run * checkouts + i, true).join();
+                    if (firstSuccess < 0) {
+                        firstSuccess = System.nanoTime() - start;
+                    }
+                } catch (RuntimeException e) {
+                    runNode.put("failedCheckouts", runNode.path("failedCheckouts").asInt() + 1);
+                }
+            }
+            if (firstSuccess >= 0) {
+                firstCheckout.record(firstSuccess, "completed", false);
+                runNode.put("firstCheckoutMs", TimeUnit.NANOSECONDS.toMillis(firstSuccess));
+            }
+            double seconds = (System.nanoTime() - checkoutsStart) / 1e9;
+            ObjectNode steps = runNode.putObject("steps");
+            client.allStats().forEach((name, stats) -> stats.writeTo(steps.putObject(name), seconds));
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    static boolean ready(StepClient client) {
+        try {
+            client.get("readiness", "/actuator/health/readiness", false).join();
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.adyenwebdemo.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Makes the HTTP calls of a scenario step by step and records each step's latency and outcome.
+ * A step that does not answer 2xx fails the rest of its scenario.
+ */
+final class StepClient {
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final String baseUrl;
+    private final Duration requestTimeout;
+    private final Map<String, StepStats> stats = new ConcurrentHashMap<>();
+
+    StepClient(HttpClient httpClient, ObjectMapper objectMapper, String baseUrl, Duration requestTimeout) {
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.baseUrl = baseUrl;
+        this.requestTimeout = requestTimeout;
+    }
+
+    String baseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * POSTs the body without an Idempotency-Key, as the browser scripts do for every call but a submit
+     *
+     * @param step     name in the report, e.g. "sessions.3DSDetails"
+     * @param measured false during warm-up, when the call is made but not recorded
+     */
+    CompletableFuture<JsonNode> post(String step, String path, Object body, boolean measured) {
+        return post(step, path, body, null, measured);
+    }
+
+    /**
+     * POSTs the body of a submit with a new Idempotency-Key, as the browser scripts do for the first send of a checkout
+     * attempt's session creation or Advanced flow payment
+     */
+    CompletableFuture<JsonNode> submit(String step, String path, Object body, boolean measured) {
+        return post(step, path, body, UUID.randomUUID().toString(), measured);
+    }
+
+    private CompletableFuture<JsonNode> post(String step, String path, Object body, String idempotencyKey,
+                                             boolean measured) {
+        HttpRequest request;
+        try {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .timeout(requestTimeout)
+                    .header("Content-Type", "application/json")
+                    .header("Accept", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)));
+            if (idempotencyKey != null) {
+                builder.header("Idempotency-Key", idempotencyKey);
+            }
+            request = builder.build();
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return send(step, request, measured).thenApply(body -> {
+            try {
+                return objectMapper.readTree(body);
+            } catch (IOException e) {
+                throw new StepFailedException(step, "unreadable response: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * GETs a page, e.g. a result page the shopper is redirected to
+     */
+    CompletableFuture<byte[]> get(String step, String pathAndQuery, boolean measured) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + pathAndQuery))
+                .timeout(requestTimeout)
+                .header("Accept", "text/html")
+                .GET()
+                .build();
+        return send(step, request, measured);
+    }
+
+    private CompletableFuture<byte[]> send(String step, HttpRequest request, boolean measured) {
+        long start = System.nanoTime();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .handle((response, error) -> {
+                    long elapsed = System.nanoTime() - start;
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error;
+                        record(step, measured, elapsed, cause.getClass().getSimpleName(), true);
+                        throw new StepFailedException(step, cause.toString());
+                    }
+                    boolean success = response.statusCode() / 100 == 2;
+                    record(step, measured, elapsed, String.valueOf(response.statusCode()), !success);
+                    if (!success) {
+                        throw new StepFailedException(step, "HTTP " + response.statusCode());
+                    }
+                    return response.body();
+                });
+    }
+
+    StepStats stats(String name) {
+        return stats.computeIfAbsent(name, key -> new StepStats());
+    }
+
+    Map<String, StepStats> allStats() {
+        return stats;
+    }
+
+    private void record(String step, boolean measured, long elapsedNanos, String outcome, boolean error) {
+        if (measured) {
+            stats(step).record(elapsedNanos, outcome, error);
+        }
+    }
+
+    static final class StepFailedException extends RuntimeException {
+        StepFailedException(String step, String reason) {
+            super(step + " failed: " + reason, null, false, false);
+        }
+    }
+}
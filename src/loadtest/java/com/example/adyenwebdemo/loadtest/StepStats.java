@@ -0,0 +1,71 @@
+package com.example.adyenwebdemo.loadtest;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency histogram (microseconds) and outcome counts of one step, or of a whole scenario
+ */
+final class StepStats {
+
+    private final Histogram latency = new ConcurrentHistogram(TimeUnit.MINUTES.toMicros(10), 3);
+    private final Map<String, AtomicLong> outcomes = new ConcurrentHashMap<>();
+    private final AtomicLong errors = new AtomicLong();
+
+    /**
+     * @param outcome HTTP status, or the exception type when there was no response
+     */
+    void record(long elapsedNanos, String outcome, boolean error) {
+        latency.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(elapsedNanos), latency.getHighestTrackableValue()));
+        outcomes.computeIfAbsent(outcome, key -> new AtomicLong()).incrementAndGet();
+        if (error) {
+            errors.incrementAndGet();
+        }
+    }
+
+    long count() {
+        return latency.getTotalCount();
+    }
+
+    long errors() {
+        return errors.get();
+    }
+
+    double percentileMillis(double percentile) {
+        return latency.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    /**
+     * Summary plus the compressed histogram, which HdrHistogram can decode to compare full distributions between runs
+     */
+    void writeTo(ObjectNode node, double seconds) {
+        Histogram snapshot = latency.copy();
+        node.put("count", snapshot.getTotalCount());
+        node.put("errors", errors.get());
+        node.put("throughputPerSecond", snapshot.getTotalCount() / seconds);
+        ObjectNode outcomeCounts = node.putObject("outcomes");
+        new TreeMap<>(outcomes).forEach((outcome, count) -> outcomeCounts.put(outcome, count.get()));
+
+        ObjectNode millis = node.putObject("latencyMs");
+        millis.put("mean", snapshot.getMean() / 1000.0);
+        millis.put("p50", snapshot.getValueAtPercentile(50) / 1000.0);
+        millis.put("p90", snapshot.getValueAtPercentile(90) / 1000.0);
+        millis.put("p99", snapshot.getValueAtPercentile(99) / 1000.0);
+        millis.put("p999", snapshot.getValueAtPercentile(99.9) / 1000.0);
+        millis.put("max", snapshot.getMaxValue() / 1000.0);
+
+        ByteBuffer buffer = ByteBuffer.allocate(snapshot.getNeededByteBufferCapacity());
+        int length = snapshot.encodeIntoCompressedByteBuffer(buffer);
+        node.put("histogram", Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length)));
+    }
+}
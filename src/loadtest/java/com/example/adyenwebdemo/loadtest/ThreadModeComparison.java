@@ -0,0 +1,135 @@
+package com.example.adyenwebdemo.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The same load test against the application on platform threads and on virtual threads.
+ * <p>
+ * Starts the application with {@code -Dstartup.command} and {@code --spring.threads.virtual.enabled=false} appended,
+ * runs {@link LoadTest} labelled {@code <label>-platform}, stops it and repeats with virtual threads, then prints
+ * throughput, p50 and p99 of both runs side by side. Virtual threads need a Java 21 build ({@code -Pjava21}); with
+ * Java 17 both runs use platform threads. Start the application against the stub, e.g.:
+ * <pre>
+ * ./mvnw -Ploadtest test-compile exec:exec -Dloadtest.main=com.example.adyenwebdemo.loadtest.ThreadModeComparison \
+ *     -Dstartup.command="java -jar target/adyen-web-demo-2.0.0.jar --spring.profiles.active=stub" \
+ *     -Dloadtest.rate=200 -Dloadtest.label=threads
+ * </pre>
+ * Both reports and the comparison are written as JSON to {@code target/loadtest}.
+ */
+public final class ThreadModeComparison {
+
+    private static final DateTimeFormatter REPORT_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")
+            .withZone(ZoneOffset.UTC);
+    private static final long POLL_MILLIS = 100;
+    private static final List<String> MODES = List.of("platform", "virtual");
+
+    private final List<String> command = Arrays.asList(System.getProperty("startup.command", "").trim().split("\\s+"));
+    private final int readyTimeoutSeconds = Integer.getInteger("startup.ready-timeout-seconds", 120);
+    private final LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+
+    public static void main(String[] args) throws Exception {
+        new ThreadModeComparison().run();
+    }
+
+    private void run() throws Exception {
+        if (command.get(0).isEmpty()) {
+            throw new IllegalArgumentException("Set -Dstartup.command to the command that starts the application");
+        }
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        Files.createDirectories(settings.reportDir());
+        Instant startedAt = Instant.now();
+
+        Map<String, Map<String, StepStats>> results = new LinkedHashMap<>();
+        for (String mode : MODES) {
+            results.put(mode, runMode(mode, objectMapper));
+        }
+
+        ObjectNode report = objectMapper.createObjectNode();
+        report.put("label", settings.label());
+        report.put("startedAt", startedAt.toString());
+        report.put("command", String.join(" ", command));
+        report.put("rate", settings.rate());
+        report.put("durationSeconds", settings.durationSeconds());
+        ObjectNode modes = report.putObject("modes");
+        results.forEach((mode, stats) -> {
+            ObjectNode modeNode = modes.putObject(mode);
+            stats.forEach((name, stepStats) -> stepStats.writeTo(modeNode.putObject(name), settings.durationSeconds()));
+        });
+        Path file = settings.reportDir().resolve("threads-" + settings.label() + "-"
+                + REPORT_TIMESTAMP.format(startedAt) + ".json");
+        objectMapper.writeValue(file.toFile(), report);
+
+        printTable(results);
+        System.out.println("Comparison written to " + file.toAbsolutePath());
+    }
+
+    private Map<String, StepStats> runMode(String mode, ObjectMapper objectMapper) throws Exception {
+        List<String> modeCommand = new ArrayList<>(command);
+        modeCommand.add("--spring.threads.virtual.enabled=" + mode.equals("virtual"));
+        Process process = new ProcessBuilder(modeCommand)
+                .redirectErrorStream(true)
+                .redirectOutput(settings.reportDir().resolve("threads-" + settings.label() + "-" + mode + ".log")
+                        .toFile())
+                .start();
+        ExecutorService clientExecutor = Executors.newSingleThreadExecutor();
+        try {
+            HttpClient httpClient = HttpClient.newBuilder()
+                    .connectTimeout(Duration.ofSeconds(1))
+                    .executor(clientExecutor)
+                    .build();
+            StepClient client = new StepClient(httpClient, objectMapper, settings.baseUrl(), Duration.ofSeconds(5));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(readyTimeoutSeconds);
+            while (!StartupTest.ready(client)) {
+                if (!process.isAlive() || System.nanoTime() > deadline) {
+                    throw new IllegalStateException("Application did not become ready with " + mode + " threads");
+                }
+                Thread.sleep(POLL_MILLIS);
+            }
+            System.out.println("Running load test on " + mode + " threads");
+            return LoadTest.run(settings.withLabel(settings.label() + "-" + mode), objectMapper);
+        } finally {
+            clientExecutor.shutdownNow();
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private void printTable(Map<String, Map<String, StepStats>> results) {
+        TreeSet<String> names = new TreeSet<>();
+        results.values().forEach(stats -> names.addAll(stats.keySet()));
+        System.out.printf("%-32s %-9s %10s %10s %10s %8s%n", "step", "threads", "per sec", "p50 ms", "p99 ms",
+                "errors");
+        for (String name : names) {
+            results.forEach((mode, stats) -> {
+                StepStats stepStats = stats.get(name);
+                if (stepStats == null) {
+                    return;
+                }
+                System.out.printf("%-32s %-9s %10.1f %10.1f %10.1f %8d%n", name, mode,
+                        stepStats.count() / (double) settings.durationSeconds(), stepStats.percentileMillis(50),
+                        stepStats.percentileMillis(99), stepStats.errors());
+            });
+        }
+    }
+}
@@ -2,8 +2,10 @@ package com.example.adyenwebdemo;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class AdyenWebDemoApplication {
 
     public static void main(String[] args) {
@@ -2,11 +2,21 @@ package com.example.adyenwebdemo.config;
 
 import com.adyen.Client;
 import com.adyen.enums.Environment;
+import com.adyen.httpclient.ClientInterface;
 import com.adyen.service.checkout.PaymentsApi;
+import com.example.adyenwebdemo.http.PooledAdyenHttpClient;
+import com.example.adyenwebdemo.model.AdyenOperation;
 import lombok.Data;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.util.StringUtils;
+
+import java.util.EnumMap;
+import java.util.Map;
 
 @Configuration
 @Data
@@ -27,16 +37,80 @@ public class AdyenConfig {
     @Value("${adyen.hmac.key}")
     private String hmacKey;
 
+    /**
+     * Overrides the Checkout API base URL, e.g. to point at the local stub; empty uses the Adyen endpoint of the environment
+     */
+    @Value("${adyen.checkout.base-url:}")
+    private String checkoutBaseUrl;
+
     @Bean
-    public Client adyenClient() {
+    public Client adyenClient(ObjectProvider<ClientInterface> httpClient) {
+        // Use the configured transport if there is one, otherwise the library default
+        return client(apiKey, environment, httpClient.getIfAvailable());
+    }
+
+    /**
+     * Adyen client for one API credential; a null transport keeps the library default
+     */
+    public static Client client(String apiKey, String environment, ClientInterface httpClient) {
         // In v39.0.0, the Client constructor and configuration is slightly different
         Client client = new Client(apiKey, Environment.valueOf(environment.toUpperCase()));
         client.setApplicationName("Adyen Web Demo");
+        if (httpClient != null) {
+            client.setHttpClient(httpClient);
+        }
         return client;
     }
 
+    /**
+     * Pool and timeout settings of the pooled transport, also used for the pools of additional merchant routes
+     */
     @Bean
+    public PooledAdyenHttpClient.Settings adyenHttpSettings(
+            org.springframework.core.env.Environment springEnvironment,
+            @Value("${adyen.http.max-total:200}") int maxTotal,
+            @Value("${adyen.http.max-per-route:50}") int maxPerRoute,
+            @Value("${adyen.http.connect-timeout-ms:5000}") long connectTimeoutMillis,
+            @Value("${adyen.http.connection-request-timeout-ms:2000}") long connectionRequestTimeoutMillis,
+            @Value("${adyen.http.read-timeout-ms:30000}") long readTimeoutMillis,
+            @Value("${adyen.http.idle-eviction-ms:30000}") long idleEvictionMillis,
+            @Value("${adyen.http.time-to-live-ms:300000}") long timeToLiveMillis) {
+        Map<AdyenOperation, Long> readTimeouts = new EnumMap<>(AdyenOperation.class);
+        for (AdyenOperation operation : AdyenOperation.values()) {
+            Long timeout = springEnvironment.getProperty("adyen.http.read-timeout-ms." + operation.key(), Long.class);
+            if (timeout != null) {
+                readTimeouts.put(operation, timeout);
+            }
+        }
+        return new PooledAdyenHttpClient.Settings(maxTotal, maxPerRoute, connectTimeoutMillis,
+                connectionRequestTimeoutMillis, readTimeoutMillis, readTimeouts, idleEvictionMillis, timeToLiveMillis);
+    }
+
+    /**
+     * Pooled keep-alive transport for the Adyen client; set adyen.http.transport=default to use the library's own
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "adyen.http.transport", havingValue = "pooled", matchIfMissing = true)
+    public PooledAdyenHttpClient pooledAdyenHttpClient(PooledAdyenHttpClient.Settings adyenHttpSettings) {
+        return new PooledAdyenHttpClient(adyenHttpSettings);
+    }
+
+    /**
+     * Depends on {@link com.example.adyenwebdemo.service.CheckoutJson}, which sets up the checkout models' mapper
+     */
+    @Bean
+    @DependsOn("checkoutJson")
     public PaymentsApi paymentsApi(Client client) {
+        return paymentsApi(client, checkoutBaseUrl);
+    }
+
+    /**
+     * Checkout API of a client, at the given base URL or, if empty, the Adyen endpoint of the client's environment
+     */
+    public static PaymentsApi paymentsApi(Client client, String checkoutBaseUrl) {
+        if (StringUtils.hasText(checkoutBaseUrl)) {
+            return new PaymentsApi(client, checkoutBaseUrl);
+        }
         return new PaymentsApi(client);
     }
 }
@@ -0,0 +1,21 @@
+package com.example.adyenwebdemo.config;
+
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Spring Boot registers every Jackson module bean with the application's ObjectMapper, which the MVC message
+ * converters use for request and response bodies
+ */
+@Configuration
+public class JsonConfig {
+
+    /**
+     * Bean properties are read and written through generated lambdas instead of reflection
+     */
+    @Bean
+    public BlackbirdModule blackbirdModule() {
+        return new BlackbirdModule();
+    }
+}
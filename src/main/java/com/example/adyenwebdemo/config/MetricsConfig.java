@@ -0,0 +1,108 @@
+package com.example.adyenwebdemo.config;
+
+import com.example.adyenwebdemo.http.PooledAdyenHttpClient;
+import com.example.adyenwebdemo.service.PayloadLogger;
+import com.example.adyenwebdemo.service.SessionPrewarmPool;
+import com.example.adyenwebdemo.webhook.NotificationDeduplicator;
+import com.example.adyenwebdemo.webhook.WebhookIngestionService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Exposes the internal statistics of the webhook queue, the Adyen HTTP pool, the session pre-warming pool and the
+ * payload logger as meters.
+ * Adyen API call metrics are recorded by {@link com.example.adyenwebdemo.service.AdyenApiMetrics}.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder webhookMetrics(WebhookIngestionService webhooks) {
+        return registry -> {
+            Gauge.builder("adyen.webhook.queue.depth", webhooks, w -> w.stats().queueDepth())
+                    .description("Notifications waiting to be processed")
+                    .register(registry);
+            FunctionCounter.builder("adyen.webhook.notifications.enqueued", webhooks, w -> w.stats().enqueued())
+                    .register(registry);
+            FunctionCounter.builder("adyen.webhook.notifications.rejected", webhooks, w -> w.stats().rejected())
+                    .description("Notifications rejected because the queue had no room for their batch")
+                    .register(registry);
+            FunctionCounter.builder("adyen.webhook.batches.unconfigured", webhooks, w -> w.stats().unconfigured())
+                    .description("Webhook batches refused because no HMAC key is configured")
+                    .register(registry);
+            FunctionCounter.builder("adyen.webhook.notifications.invalid.signature", webhooks, w -> w.stats().invalidSignature())
+                    .register(registry);
+            FunctionCounter.builder("adyen.webhook.notifications.processed", webhooks, w -> w.stats().processed())
+                    .register(registry);
+            FunctionCounter.builder("adyen.webhook.notifications.failed", webhooks, w -> w.stats().failed())
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder webhookDeduplicationMetrics(NotificationDeduplicator deduplicator) {
+        return registry -> {
+            FunctionCounter.builder("adyen.webhook.notifications.duplicate", deduplicator, d -> d.stats().duplicates())
+                    .description("Notifications delivered before, dropped on an exact match or processed anyway on a "
+                            + "Bloom filter match")
+                    .tag("match", "exact")
+                    .register(registry);
+            FunctionCounter.builder("adyen.webhook.notifications.duplicate", deduplicator, d -> d.stats().probableDuplicates())
+                    .description("Notifications delivered before, dropped on an exact match or processed anyway on a "
+                            + "Bloom filter match")
+                    .tag("match", "bloom")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * The pool only exists when the pooled client is enabled; looked up when the meters are bound, so this does
+     * not depend on the order in which configuration classes are processed
+     */
+    @Bean
+    public MeterBinder adyenHttpPoolMetrics(ObjectProvider<PooledAdyenHttpClient> httpClients) {
+        return registry -> httpClients.ifAvailable(httpClient -> {
+            Gauge.builder("adyen.http.pool.leased", httpClient, c -> c.poolStats().getLeased())
+                    .description("Connections to Adyen in use")
+                    .register(registry);
+            Gauge.builder("adyen.http.pool.available", httpClient, c -> c.poolStats().getAvailable())
+                    .description("Idle keep-alive connections to Adyen")
+                    .register(registry);
+            Gauge.builder("adyen.http.pool.pending", httpClient, c -> c.poolStats().getPending())
+                    .description("Requests waiting for a connection to Adyen")
+                    .register(registry);
+        });
+    }
+
+    @Bean
+    public MeterBinder sessionPrewarmMetrics(SessionPrewarmPool sessionPrewarmPool) {
+        return registry -> {
+            Gauge.builder("adyen.sessions.prewarm.pooled", sessionPrewarmPool, p -> p.stats().pooled())
+                    .description("Pre-warmed sessions ready to be handed out")
+                    .register(registry);
+            FunctionCounter.builder("adyen.sessions.prewarm.hits", sessionPrewarmPool, p -> p.stats().hits())
+                    .register(registry);
+            FunctionCounter.builder("adyen.sessions.prewarm.misses", sessionPrewarmPool, p -> p.stats().misses())
+                    .description("Requests for a pre-warmed cart that found its pool empty")
+                    .register(registry);
+            FunctionCounter.builder("adyen.sessions.prewarm.expired", sessionPrewarmPool, p -> p.stats().expired())
+                    .description("Pre-warmed sessions dropped unused")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder payloadLoggerMetrics(PayloadLogger payloadLogger) {
+        return registry -> {
+            Gauge.builder("adyen.payload.logging.buffered", payloadLogger, p -> p.stats().buffered())
+                    .register(registry);
+            FunctionCounter.builder("adyen.payload.logging.dropped", payloadLogger, p -> p.stats().dropped())
+                    .description("Sampled payloads dropped because the buffer was full")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.adyenwebdemo.config;
+
+import com.example.adyenwebdemo.service.PaymentMethodsCache;
+import com.example.adyenwebdemo.webhook.HmacSignatureValidator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Chooses how long stored payment methods are cached. The webhook TTL is only used with an HMAC key: without one
+ * every webhook is refused, so nothing would update them.
+ */
+@Configuration
+@Slf4j
+public class PaymentMethodsCacheConfig {
+
+    @Bean
+    public PaymentMethodsCache paymentMethodsCache(
+            @Value("${adyen.payment-methods.cache.ttl-seconds:300}") long ttlSeconds,
+            @Value("${adyen.payment-methods.cache.max-size:1000}") long maxSize,
+            @Value("${adyen.payment-methods.cache.amount-bucket:1000}") long amountBucket,
+            @Value("${adyen.payment-methods.cache.stored.ttl-seconds:300}") long storedTtlSeconds,
+            @Value("${adyen.payment-methods.cache.stored.webhook-ttl-seconds:0}") long storedWebhookTtlSeconds,
+            @Value("${adyen.payment-methods.cache.stored.max-size:10000}") long storedMaxSize,
+            HmacSignatureValidator hmacSignatureValidator) {
+        long effectiveStoredTtlSeconds = storedTtlSeconds;
+        if (storedWebhookTtlSeconds > 0 && hmacSignatureValidator.isConfigured()) {
+            effectiveStoredTtlSeconds = storedWebhookTtlSeconds;
+        } else if (storedWebhookTtlSeconds > 0) {
+            log.warn("No HMAC key: webhooks cannot update stored payment methods, caching them for {} s",
+                    storedTtlSeconds);
+        }
+        return new PaymentMethodsCache(ttlSeconds, maxSize, amountBucket, effectiveStoredTtlSeconds, storedMaxSize);
+    }
+}
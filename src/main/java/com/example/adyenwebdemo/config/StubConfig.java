@@ -0,0 +1,48 @@
+package com.example.adyenwebdemo.config;
+
+import com.example.adyenwebdemo.model.AdyenOperation;
+import com.example.adyenwebdemo.stub.AdyenCheckoutStub;
+import com.example.adyenwebdemo.stub.LatencyDistribution;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Starts the embedded Adyen checkout stub with the application when adyen.stub.enabled=true (the "stub" profile)
+ */
+@Configuration
+@ConditionalOnProperty(name = "adyen.stub.enabled", havingValue = "true")
+public class StubConfig {
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public AdyenCheckoutStub adyenCheckoutStub(
+            Environment environment,
+            @Value("${adyen.stub.port:8089}") int port,
+            @Value("${adyen.stub.threads:4}") int threads,
+            @Value("${adyen.stub.latency:lognormal:50,250}") String latency,
+            @Value("${adyen.stub.error-rate:0}") double errorRate,
+            @Value("${adyen.stub.throttle-rate:0}") double throttleRate,
+            @Value("${adyen.stub.timeout-rate:0}") double timeoutRate,
+            @Value("${adyen.stub.timeout-ms:65000}") long timeoutMillis,
+            @Value("${adyen.stub.payments.script:Authorised}") List<String> paymentsScript,
+            @Value("${adyen.stub.details.script:Authorised}") List<String> detailsScript,
+            @Value("${adyen.stub.seed:42}") long seed) {
+        Map<AdyenOperation, LatencyDistribution> latencyByOperation = new EnumMap<>(AdyenOperation.class);
+        for (AdyenOperation operation : AdyenOperation.values()) {
+            String spec = environment.getProperty("adyen.stub.latency." + operation.key());
+            if (spec != null) {
+                latencyByOperation.put(operation, LatencyDistribution.parse(spec));
+            }
+        }
+        return new AdyenCheckoutStub(new AdyenCheckoutStub.Settings(port, threads, LatencyDistribution.parse(latency),
+                latencyByOperation, errorRate, throttleRate, timeoutRate, timeoutMillis,
+                paymentsScript.stream().map(String::trim).toList(), detailsScript.stream().map(String::trim).toList(),
+                seed));
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.adyenwebdemo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves /css and /js under content-hashed URLs (templates link them with th:href/th:src, which the resource chain
+ * rewrites to e.g. /css/styles-&lt;md5&gt;.css), so they can be cached for a long time, and with a strong ETag computed
+ * once per file from its content.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final Map<String, String> etags = new ConcurrentHashMap<>();
+
+    @Value("${app.static.max-age-days:365}")
+    private long maxAgeDays;
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        for (String directory : new String[]{"css", "js"}) {
+            registry.addResourceHandler("/" + directory + "/**")
+                    .addResourceLocations("classpath:/static/" + directory + "/")
+                    .setCacheControl(CacheControl.maxAge(Duration.ofDays(maxAgeDays)).cachePublic())
+                    .setEtagGenerator(this::etag)
+                    .resourceChain(true)
+                    .addResolver(new VersionResourceResolver().addContentVersionStrategy("/**"));
+        }
+    }
+
+    private String etag(Resource resource) {
+        return etags.computeIfAbsent(resource.getDescription(), description -> {
+            try (InputStream content = resource.getInputStream()) {
+                return DigestUtils.md5DigestAsHex(content);
+            } catch (IOException e) {
+                // Served without an ETag
+                return null;
+            }
+        });
+    }
+}
@@ -1,8 +1,11 @@
 package com.example.adyenwebdemo.controller;
 
 import com.adyen.service.exception.ApiException;
+import com.example.adyenwebdemo.model.AdvancedPaymentRequest;
+import com.example.adyenwebdemo.model.PaymentOutcome;
 import com.example.adyenwebdemo.model.SessionsFlowRequest;
 import com.example.adyenwebdemo.service.AdvancedFlowService;
+import com.example.adyenwebdemo.service.IdempotencyService;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -13,6 +16,7 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.Map;
 
 @Controller
@@ -41,11 +45,17 @@ public class AdvancedFlowController {
     @PostMapping("/api/paymentMethods")
     @ResponseBody
     public ResponseEntity<?> getPaymentMethods(@RequestBody SessionsFlowRequest paymentRequest) {
+        String missingField = paymentRequest.missingField();
+        if (missingField != null) {
+            log.error("Missing required field: {}", missingField);
+            return ResponseEntity.badRequest().build();
+        }
+
         try {
             log.info("Getting payment methods for advanced flow: {}", paymentRequest);
             Map<String, Object> response = advancedFlowService.getPaymentMethods(paymentRequest);
             return ResponseEntity.ok(response);
-        } catch (Exception e) {
+        } catch (IOException | ApiException e) {
             log.error("Error getting payment methods", e);
             return ResponseEntity.badRequest().build();
         }
@@ -57,21 +67,28 @@ public class AdvancedFlowController {
     @PostMapping("/api/payments")
     @ResponseBody
     public ResponseEntity<?> makePayment(
-            @RequestBody Map<String, Object> paymentData,
+            @RequestBody AdvancedPaymentRequest paymentData,
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
             HttpServletRequest request) {
+        String missingField = paymentData.missingField();
+        if (missingField != null) {
+            log.error("Missing required field: {}", missingField);
+            return ResponseEntity.badRequest().build();
+        }
+
         try {
-            log.info("Making payment with advanced flow: {}", paymentData);
+            log.info("Making payment with advanced flow");
             
             // Add return URL if not provided
-            if (!paymentData.containsKey("returnUrl")) {
+            if (paymentData.getReturnUrl() == null) {
                 String returnUrl = request.getScheme() + "://" + 
                         request.getServerName() + ":" + request.getServerPort() + "/result";
-                paymentData.put("returnUrl", returnUrl);
+                paymentData.setReturnUrl(returnUrl);
             }
 
-            Map<String, Object> response = advancedFlowService.makePayment(paymentData);
+            Map<String, Object> response = advancedFlowService.makePayment(paymentData, idempotencyKey);
             return ResponseEntity.ok(response);
-        } catch (Exception e) {
+        } catch (IOException | ApiException e) {
             log.error("Error making payment", e);
             return ResponseEntity.badRequest().build();
         }
@@ -82,10 +99,12 @@ public class AdvancedFlowController {
      */
     @PostMapping("/api/payments/details")
     @ResponseBody
-    public ResponseEntity<?> submitPaymentDetails(@RequestBody Map<String, Object> detailsData) {
+    public ResponseEntity<?> submitPaymentDetails(
+            @RequestBody Map<String, Object> detailsData,
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         try {
-            log.info("Submitting payment details for advanced flow: {}", detailsData);
-            Map<String, Object> response = advancedFlowService.submitPaymentDetails(detailsData);
+            log.info("Submitting payment details for advanced flow");
+            Map<String, Object> response = advancedFlowService.submitPaymentDetails(detailsData, idempotencyKey);
             return ResponseEntity.ok(response);
         } catch (IOException | ApiException e) {
             log.error("Error submitting payment details", e);
@@ -99,31 +118,29 @@ public class AdvancedFlowController {
     @GetMapping("/result")
     public String handleResult(
             @RequestParam(value = "redirectResult", required = false) String redirectResult,
+            @RequestParam(value = "reference", required = false) String reference,
             Model model) {
         
         if (redirectResult != null && !redirectResult.isEmpty()) {
             try {
                 log.info("Received redirect result for advanced flow");
                 // Process redirect result through service
-                Map<String, Object> result = advancedFlowService.submitPaymentDetails(
-                    Map.of("redirectResult", redirectResult)
-                );
+                Map<String, Object> detailsData = new HashMap<>();
+                detailsData.put("redirectResult", redirectResult);
+                detailsData.put("merchantReference", reference);
+                Map<String, Object> result = advancedFlowService.submitPaymentDetails(detailsData, null);
                 
                 // Add flow type to result
                 result.put("flowType", "advanced");
                 model.addAttribute("paymentResult", result);
                 
                 // Redirect based on result code
-                String resultCode = (String) result.get("resultCode");
-                if (resultCode != null) {
-                    if (resultCode.equals("Authorised")) {
-                        return "success";
-                    } else if (resultCode.equals("Pending") || resultCode.equals("Received")) {
-                        return "pending";
-                    } else {
-                        model.addAttribute("error", "Payment was not successful: " + resultCode);
-                        return "failed";
+                PaymentOutcome outcome = (PaymentOutcome) result.get("outcome");
+                if (outcome != null) {
+                    if (outcome == PaymentOutcome.FAILED) {
+                        model.addAttribute("error", "Payment was not successful: " + result.get("resultCode"));
                     }
+                    return outcome.view();
                 }
             } catch (Exception e) {
                 log.error("Error processing redirect result", e);
@@ -0,0 +1,25 @@
+package com.example.adyenwebdemo.controller;
+
+import com.example.adyenwebdemo.resilience.AdyenUnavailableException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+/**
+ * Adyen calls are being shed: answer 503 with Retry-After instead of a generic error, for every controller
+ */
+@ControllerAdvice
+@Slf4j
+public class AdyenUnavailableHandler {
+
+    @ExceptionHandler(AdyenUnavailableException.class)
+    public ResponseEntity<Void> unavailable(AdyenUnavailableException e) {
+        log.warn("Failing fast: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .build();
+    }
+}
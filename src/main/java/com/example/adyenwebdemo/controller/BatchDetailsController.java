@@ -0,0 +1,70 @@
+package com.example.adyenwebdemo.controller;
+
+import com.example.adyenwebdemo.model.BatchDetailsRequest;
+import com.example.adyenwebdemo.model.BatchDetailsResult;
+import com.example.adyenwebdemo.service.BatchDetailsService;
+import com.example.adyenwebdemo.service.CheckoutJson;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.IOException;
+
+@Controller
+@RequiredArgsConstructor
+@Slf4j
+public class BatchDetailsController {
+
+    private final BatchDetailsService batchDetailsService;
+    private final CheckoutJson checkoutJson;
+
+    @Value("${adyen.batch.timeout-seconds:300}")
+    private long timeoutSeconds;
+
+    /**
+     * Resolves many details submissions and session lookups at once. Answers with NDJSON, one
+     * {@link BatchDetailsResult} line per item as soon as it completes, so results arrive in completion order.
+     */
+    @PostMapping("/api/batch/details")
+    @ResponseBody
+    public ResponseEntity<ResponseBodyEmitter> resolveDetails(@RequestBody BatchDetailsRequest batch) {
+        try {
+            batchDetailsService.validate(batch);
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid details batch: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+
+        log.info("Resolving a batch of {} details", batch.getItems().size());
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(timeoutSeconds * 1000);
+        batchDetailsService.resolve(batch, result -> send(emitter, result))
+                .whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        emitter.completeWithError(error);
+                    } else {
+                        emitter.complete();
+                    }
+                });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(emitter);
+    }
+
+    /**
+     * @return false once the client is gone or the response timed out
+     */
+    private boolean send(ResponseBodyEmitter emitter, BatchDetailsResult result) {
+        try {
+            emitter.send(checkoutJson.toLine(result), MediaType.APPLICATION_NDJSON);
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            log.warn("Stopping details batch, result {} could not be sent: {}", result.getIndex(), e.getMessage());
+            return false;
+        }
+    }
+}
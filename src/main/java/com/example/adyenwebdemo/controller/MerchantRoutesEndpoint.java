@@ -0,0 +1,55 @@
+package com.example.adyenwebdemo.controller;
+
+import com.example.adyenwebdemo.routing.MerchantRoute;
+import com.example.adyenwebdemo.routing.MerchantRouter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merchant routes at /actuator/merchantroutes. An actuator endpoint rather than an application controller, so it is
+ * only reachable when exposed (management.endpoints.web.exposure.include) and, with management.server.port, only on
+ * the management port
+ */
+@Component
+@Endpoint(id = "merchantroutes")
+@RequiredArgsConstructor
+@Slf4j
+public class MerchantRoutesEndpoint {
+
+    private final MerchantRouter merchantRouter;
+
+    /**
+     * Current routes in the order they are tried, the default route last
+     */
+    @ReadOperation
+    public List<MerchantRoute.Stats> routes() {
+        return merchantRouter.stats();
+    }
+
+    /**
+     * Re-read the routes file now instead of at the next check
+     */
+    @WriteOperation
+    public WebEndpointResponse<Map<String, Object>> reload() {
+        try {
+            boolean changed = merchantRouter.reload();
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("changed", changed);
+            response.put("routes", merchantRouter.stats());
+            return new WebEndpointResponse<>(response);
+        } catch (IllegalArgumentException | IOException e) {
+            log.error("Invalid merchant routes: {}", e.getMessage());
+            return new WebEndpointResponse<>(Map.of("error", e.getMessage()), WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.adyenwebdemo.controller;
+
+import com.example.adyenwebdemo.model.AdyenOperation;
+import com.example.adyenwebdemo.service.PayloadLogger;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Payload logging sample rates at /actuator/payloadlogging, exposed and bound to the management port like
+ * {@link MerchantRoutesEndpoint}
+ */
+@Component
+@Endpoint(id = "payloadlogging")
+@RequiredArgsConstructor
+@Slf4j
+public class PayloadLoggingEndpoint {
+
+    private final PayloadLogger payloadLogger;
+
+    /**
+     * Current sampling rates and buffer statistics
+     */
+    @ReadOperation
+    public Map<String, Object> status() {
+        Map<String, Double> rates = new LinkedHashMap<>();
+        payloadLogger.getSampleRates().forEach((operation, rate) -> rates.put(operation.key(), rate));
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("sampleRates", rates);
+        response.put("stats", payloadLogger.stats());
+        return response;
+    }
+
+    /**
+     * Change the sampling rate of one operation without a restart; the rate is the sampleRate field of the body
+     */
+    @WriteOperation
+    public WebEndpointResponse<Map<String, Object>> setSampleRate(@Selector String operation, double sampleRate) {
+        try {
+            payloadLogger.setSampleRate(AdyenOperation.fromKey(operation), sampleRate);
+            return new WebEndpointResponse<>(status());
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid payload logging update: {}", e.getMessage());
+            return new WebEndpointResponse<>(Map.of("error", e.getMessage()), WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+    }
+}
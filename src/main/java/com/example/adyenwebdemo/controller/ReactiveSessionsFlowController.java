@@ -0,0 +1,109 @@
+package com.example.adyenwebdemo.controller;
+
+import com.example.adyenwebdemo.model.AdyenPaymentDetailsResponse;
+import com.example.adyenwebdemo.model.RedirectDetailsRequest;
+import com.example.adyenwebdemo.model.SessionsFlowRequest;
+import com.example.adyenwebdemo.model.SessionsFlowResponse;
+import com.example.adyenwebdemo.model.ThreeDSDetailsRequest;
+import com.example.adyenwebdemo.resilience.AdyenUnavailableException;
+import com.example.adyenwebdemo.service.IdempotencyService;
+import com.example.adyenwebdemo.service.ReactiveSessionsFlowService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Non-blocking variant of the Sessions flow API under /reactive.
+ * Handlers return a {@link Mono}, so the request thread is released while Adyen is being called.
+ */
+@Controller
+@RequiredArgsConstructor
+@Slf4j
+@RequestMapping("/reactive")
+public class ReactiveSessionsFlowController {
+
+    private final ReactiveSessionsFlowService reactiveSessionsFlowService;
+
+    /**
+     * Creates a payment session using Adyen API
+     */
+    @PostMapping("/api/sessions")
+    @ResponseBody
+    public Mono<ResponseEntity<SessionsFlowResponse>> createPaymentSession(
+            @RequestBody SessionsFlowRequest paymentRequest,
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            HttpServletRequest request) {
+        String missingField = paymentRequest.missingField();
+        if (missingField != null) {
+            log.error("Missing required field: {}", missingField);
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        if (paymentRequest.getReturnUrl() == null) {
+            paymentRequest.setReturnUrl(request.getScheme() + "://" +
+                    request.getServerName() + ":" + request.getServerPort() + "/success");
+        }
+
+        return handle(reactiveSessionsFlowService.createPaymentSession(paymentRequest, idempotencyKey),
+                "Error creating payment session");
+    }
+
+    /**
+     * Get session result from Adyen using session ID and session result
+     */
+    @PostMapping("/api/sessions/result")
+    @ResponseBody
+    public Mono<ResponseEntity<AdyenPaymentDetailsResponse>> getSessionResult(@RequestBody Map<String, String> request) {
+        String sessionId = request.get("sessionId");
+        String sessionResult = request.get("sessionResult");
+        if (sessionId == null || sessionResult == null) {
+            log.error("Missing sessionId or sessionResult in request");
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+
+        return handle(reactiveSessionsFlowService.getSessionResult(sessionId, sessionResult),
+                "Error getting session result");
+    }
+
+    /**
+     * Handle payment details submission from frontend
+     */
+    @PostMapping("/api/payments/details")
+    @ResponseBody
+    public Mono<ResponseEntity<AdyenPaymentDetailsResponse>> paymentDetails(
+            @RequestBody RedirectDetailsRequest detailsRequest,
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return handle(reactiveSessionsFlowService.submitPaymentDetails(detailsRequest, idempotencyKey),
+                "Error submitting payment details");
+    }
+
+    /**
+     * Handle 3DS authentication details submission from frontend
+     */
+    @PostMapping("/api/payments/3DSDetails")
+    @ResponseBody
+    public Mono<ResponseEntity<AdyenPaymentDetailsResponse>> threeDSDetails(
+            @RequestBody ThreeDSDetailsRequest detailsRequest,
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return handle(reactiveSessionsFlowService.submit3DSDetails(detailsRequest, idempotencyKey),
+                "Error submitting 3DS details");
+    }
+
+    /**
+     * Same responses as the blocking API: 200 with the body, 503 with Retry-After when calls are shed, 400 otherwise
+     */
+    private static <T> Mono<ResponseEntity<T>> handle(Mono<T> result, String errorMessage) {
+        return result
+                .map(ResponseEntity::ok)
+                // Shed calls are answered by AdyenUnavailableHandler
+                .onErrorResume(e -> !(e instanceof AdyenUnavailableException), e -> {
+                    log.error(errorMessage, e);
+                    return Mono.just(ResponseEntity.badRequest().build());
+                });
+    }
+}
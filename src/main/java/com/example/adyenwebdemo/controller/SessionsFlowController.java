@@ -3,14 +3,18 @@ package com.example.adyenwebdemo.controller;
 import com.adyen.service.exception.ApiException;
 import com.example.adyenwebdemo.model.RedirectDetailsRequest;
 import com.example.adyenwebdemo.model.AdyenPaymentDetailsResponse;
+import com.example.adyenwebdemo.model.PaymentOutcome;
 import com.example.adyenwebdemo.model.SessionsFlowRequest;
 import com.example.adyenwebdemo.model.SessionsFlowResponse;
 import com.example.adyenwebdemo.model.ThreeDSDetailsRequest;
+import com.example.adyenwebdemo.service.IdempotencyService;
 import com.example.adyenwebdemo.service.SessionsFlowService;
+import com.example.adyenwebdemo.webhook.WebhookIngestionService;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -27,6 +31,7 @@ import java.util.Map;
 public class SessionsFlowController {
 
     private final SessionsFlowService sessionsFlowService;
+    private final WebhookIngestionService webhookIngestionService;
 
     @Value("${adyen.client.key}")
     private String clientKey;
@@ -55,6 +60,7 @@ public class SessionsFlowController {
     @GetMapping("/success")
     public String handleRedirect(
             @RequestParam(value = "redirectResult", required = false) String redirectResult,
+            @RequestParam(value = "reference", required = false) String reference,
             Model model) {
 
         // If there's a redirectResult, we need to handle it
@@ -65,10 +71,11 @@ public class SessionsFlowController {
                 // Create a redirect details request
                 RedirectDetailsRequest detailsRequest = RedirectDetailsRequest.builder()
                         .redirectResult(redirectResult)
+                        .merchantReference(reference)
                         .build();
 
                 // Submit details to Adyen
-                AdyenPaymentDetailsResponse response = sessionsFlowService.submitPaymentDetails(detailsRequest);
+                AdyenPaymentDetailsResponse response = sessionsFlowService.submitPaymentDetails(detailsRequest, null);
                 log.info("Payment details processed: {}", response);
 
                 // Add payment result to model
@@ -76,16 +83,12 @@ public class SessionsFlowController {
                 log.info("Added payment result to model: {}", response);
 
                 // Determine where to redirect based on result code
-                if (response.getResultCode() != null) {
-                    String resultCode = response.getResultCode().toUpperCase();
-                    if (resultCode.equals("AUTHORISED") || resultCode.equals("AUTHENTICATED")) {
-                        return "success";
-                    } else if (resultCode.equals("PENDING") || resultCode.equals("RECEIVED")) {
-                        return "pending";
-                    } else {
-                        model.addAttribute("error", "Payment was not successful: " + resultCode);
-                        return "failed";
+                PaymentOutcome outcome = response.getOutcome();
+                if (outcome != null) {
+                    if (outcome == PaymentOutcome.FAILED) {
+                        model.addAttribute("error", "Payment was not successful: " + response.getResultCode());
                     }
+                    return outcome.view();
                 }
             } catch (Exception e) {
                 log.error("Error processing redirect result", e);
@@ -124,6 +127,7 @@ public class SessionsFlowController {
     @GetMapping("/result")
     public String handleUnifiedResult(
             @RequestParam(value = "redirectResult", required = false) String redirectResult,
+            @RequestParam(value = "reference", required = false) String reference,
             Model model) {
 
         // If there's a redirectResult, we need to handle it
@@ -134,10 +138,11 @@ public class SessionsFlowController {
                 // Create a redirect details request
                 RedirectDetailsRequest detailsRequest = RedirectDetailsRequest.builder()
                         .redirectResult(redirectResult)
+                        .merchantReference(reference)
                         .build();
 
                 // Submit details to Adyen
-                AdyenPaymentDetailsResponse response = sessionsFlowService.submitPaymentDetails(detailsRequest);
+                AdyenPaymentDetailsResponse response = sessionsFlowService.submitPaymentDetails(detailsRequest, null);
                 log.info("Payment details processed: {}", response);
 
                 // Add payment result to model
@@ -145,16 +150,12 @@ public class SessionsFlowController {
                 log.info("Added payment result to model: {}", response);
 
                 // Determine where to redirect based on result code
-                if (response.getResultCode() != null) {
-                    String resultCode = response.getResultCode().toUpperCase();
-                    if (resultCode.equals("AUTHORISED") || resultCode.equals("AUTHENTICATED")) {
-                        return "success";
-                    } else if (resultCode.equals("PENDING") || resultCode.equals("RECEIVED")) {
-                        return "pending";
-                    } else {
-                        model.addAttribute("error", "Payment was not successful: " + resultCode);
-                        return "failed";
+                PaymentOutcome outcome = response.getOutcome();
+                if (outcome != null) {
+                    if (outcome == PaymentOutcome.FAILED) {
+                        model.addAttribute("error", "Payment was not successful: " + response.getResultCode());
                     }
+                    return outcome.view();
                 }
             } catch (Exception e) {
                 log.error("Error processing redirect result", e);
@@ -176,10 +177,12 @@ public class SessionsFlowController {
     @ResponseBody
     public ResponseEntity<SessionsFlowResponse> createPaymentSession(
             @RequestBody SessionsFlowRequest paymentRequest, 
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
             HttpServletRequest request) {
         // Manual validation
-        if (paymentRequest.getShopperReference() == null || paymentRequest.getShopperReference().trim().isEmpty()) {
-            log.error("Missing required field: shopperReference");
+        String missingField = paymentRequest.missingField();
+        if (missingField != null) {
+            log.error("Missing required field: {}", missingField);
             return ResponseEntity.badRequest().build();
         }
 
@@ -192,23 +195,31 @@ public class SessionsFlowController {
                         request.getServerName() + ":" + request.getServerPort() + "/success");
             }
 
-            SessionsFlowResponse response = sessionsFlowService.createPaymentSession(paymentRequest);
+            SessionsFlowResponse response = sessionsFlowService.createPaymentSession(paymentRequest, idempotencyKey);
             return ResponseEntity.ok(response);
-        } catch (Exception e) {
+        } catch (IOException | ApiException e) {
             log.error("Error creating payment session", e);
             return ResponseEntity.badRequest().build();
         }
     }
 
     /**
-     * Handles Adyen webhook notifications
+     * Handles Adyen webhook notifications.
+     * Items are validated and queued for asynchronous processing. A batch that cannot be queued as a whole, or
+     * arrives while no HMAC key is configured, answers 503 so Adyen retries it.
      */
     @PostMapping("/api/payments/webhook")
     @ResponseBody
-    public ResponseEntity<?> webhook(@RequestBody String payload) {
-        // In a real application, you should validate the HMAC signature
-        // and process the webhook notification
-        log.info("Received webhook notification: {}", payload);
+    public ResponseEntity<?> webhook(HttpServletRequest request) {
+        try {
+            if (!webhookIngestionService.ingest(request.getInputStream())) {
+                log.warn("Webhook batch not queued, asking Adyen to retry");
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+            }
+        } catch (IOException e) {
+            log.error("Error reading webhook notification", e);
+            return ResponseEntity.badRequest().build();
+        }
         return ResponseEntity.ok(Collections.singletonMap("notificationResponse", "[accepted]"));
     }
 
@@ -219,10 +230,11 @@ public class SessionsFlowController {
     @PostMapping("/api/payments/details")
     @ResponseBody
     public ResponseEntity<AdyenPaymentDetailsResponse> paymentDetails(
-            @RequestBody RedirectDetailsRequest detailsRequest) {
+            @RequestBody RedirectDetailsRequest detailsRequest,
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         try {
-            log.info("Submitting payment details: {}", detailsRequest);
-            AdyenPaymentDetailsResponse response = sessionsFlowService.submitPaymentDetails(detailsRequest);
+            log.info("Submitting payment details");
+            AdyenPaymentDetailsResponse response = sessionsFlowService.submitPaymentDetails(detailsRequest, idempotencyKey);
             log.info("Details processed with result: {}", response.getResultCode());
             return ResponseEntity.ok(response);
         } catch (IOException | ApiException e) {
@@ -238,10 +250,11 @@ public class SessionsFlowController {
     @PostMapping("/api/payments/3DSDetails")
     @ResponseBody
     public ResponseEntity<AdyenPaymentDetailsResponse> threeDSDetails(
-            @RequestBody ThreeDSDetailsRequest detailsRequest) {
+            @RequestBody ThreeDSDetailsRequest detailsRequest,
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         try {
-            log.info("Submitting 3DS details: {}", detailsRequest);
-            AdyenPaymentDetailsResponse response = sessionsFlowService.submit3DSDetails(detailsRequest);
+            log.info("Submitting 3DS details");
+            AdyenPaymentDetailsResponse response = sessionsFlowService.submit3DSDetails(detailsRequest, idempotencyKey);
             log.info("3DS details processed with result: {}", response.getResultCode());
             return ResponseEntity.ok(response);
         } catch (IOException | ApiException e) {
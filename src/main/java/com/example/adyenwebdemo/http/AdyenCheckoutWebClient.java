@@ -0,0 +1,183 @@
+package com.example.adyenwebdemo.http;
+
+import com.adyen.Client;
+import com.adyen.service.exception.ApiException;
+import com.example.adyenwebdemo.config.AdyenConfig;
+import com.example.adyenwebdemo.model.AdyenOperation;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Non-blocking client for the Adyen Checkout API on Reactor Netty, used by the reactive flow.
+ * <p>
+ * Requests and responses are the raw JSON of the Adyen library models. Failures are mapped onto the exceptions the
+ * blocking client throws: error responses to {@link ApiException} with the HTTP status and headers, connection
+ * problems and read timeouts to {@link IOException}. Pool size and timeouts follow the {@code adyen.http.*} settings.
+ * <p>
+ * Every merchant route has its own {@link Connection}: a connection pool, its API key and its Checkout base URL,
+ * which may only be left empty with the TEST environment; LIVE URLs carry the merchant's prefix, so a route (or
+ * startup, for the default route's {@code adyen.checkout.base-url}) fails without one.
+ */
+@Component
+@Slf4j
+public class AdyenCheckoutWebClient {
+
+    private static final String TEST_BASE_URL = "https://checkout-test.adyen.com/v71";
+
+    private final WebClient.Builder webClientBuilder;
+    private final int connectTimeoutMillis;
+    private final Duration connectionRequestTimeout;
+    private final Duration idleEviction;
+    private final Duration defaultReadTimeout;
+    private final Map<AdyenOperation, Duration> readTimeouts = new EnumMap<>(AdyenOperation.class);
+    private final Connection defaultConnection;
+
+    public AdyenCheckoutWebClient(
+            WebClient.Builder webClientBuilder,
+            AdyenConfig adyenConfig,
+            Environment environment,
+            @Value("${adyen.http.max-total:200}") int maxConnections,
+            @Value("${adyen.http.connect-timeout-ms:5000}") int connectTimeoutMillis,
+            @Value("${adyen.http.connection-request-timeout-ms:2000}") long connectionRequestTimeoutMillis,
+            @Value("${adyen.http.read-timeout-ms:30000}") long readTimeoutMillis,
+            @Value("${adyen.http.idle-eviction-ms:30000}") long idleEvictionMillis) {
+        this.webClientBuilder = webClientBuilder;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.connectionRequestTimeout = Duration.ofMillis(connectionRequestTimeoutMillis);
+        this.idleEviction = Duration.ofMillis(idleEvictionMillis);
+        this.defaultReadTimeout = Duration.ofMillis(readTimeoutMillis);
+        for (AdyenOperation operation : AdyenOperation.values()) {
+            Long timeout = environment.getProperty("adyen.http.read-timeout-ms." + operation.key(), Long.class);
+            if (timeout != null) {
+                readTimeouts.put(operation, Duration.ofMillis(timeout));
+            }
+        }
+        this.defaultConnection = connect("default", adyenConfig.getApiKey(), adyenConfig.getEnvironment(),
+                adyenConfig.getCheckoutBaseUrl(), maxConnections);
+    }
+
+    /**
+     * The base URL to call, or the TEST endpoint if none is configured
+     *
+     * @throws IllegalArgumentException if the environment is not TEST and no base URL is configured
+     */
+    public static String checkoutBaseUrl(String environment, String checkoutBaseUrl) {
+        if (StringUtils.hasText(checkoutBaseUrl)) {
+            return checkoutBaseUrl;
+        }
+        if (!"TEST".equalsIgnoreCase(environment)) {
+            throw new IllegalArgumentException("A Checkout base URL must be set for the " + environment
+                    + " environment, e.g. https://<prefix>-checkout-live.adyenpayments.com/checkout/v71");
+        }
+        return TEST_BASE_URL;
+    }
+
+    /**
+     * The connection of the default route, with adyen.api.key and adyen.checkout.base-url; closed with the client
+     */
+    public Connection defaultConnection() {
+        return defaultConnection;
+    }
+
+    /**
+     * Opens a connection pool of its own for a merchant route; the caller closes it with the route
+     */
+    public Connection connect(String name, String apiKey, String environment, String checkoutBaseUrl,
+                              int maxConnections) {
+        String baseUrl = checkoutBaseUrl(environment, checkoutBaseUrl);
+        ConnectionProvider connectionProvider = ConnectionProvider.builder("adyen-checkout-" + name)
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(connectionRequestTimeout)
+                .maxIdleTime(idleEviction)
+                .build();
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMillis);
+
+        WebClient webClient = webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .defaultHeader("x-api-key", apiKey)
+                .defaultHeader("User-Agent", "Adyen Web Demo " + Client.LIB_NAME + "/" + Client.LIB_VERSION)
+                .build();
+        log.info("Reactive Adyen Checkout connection {} created for {}", name, baseUrl);
+        return new Connection(baseUrl, webClient, connectionProvider);
+    }
+
+    /**
+     * POSTs a JSON body to a Checkout endpoint of the connection's base URL, e.g. {@code /sessions}
+     */
+    public Mono<String> post(AdyenOperation operation, Connection connection, String path, String body,
+                             String idempotencyKey) {
+        return exchange(operation, connection.webClient().post()
+                .uri(connection.baseUrl() + path)
+                .contentType(MediaType.APPLICATION_JSON)
+                .headers(headers -> {
+                    if (idempotencyKey != null) {
+                        headers.set("Idempotency-Key", idempotencyKey);
+                    }
+                })
+                .bodyValue(body));
+    }
+
+    /**
+     * GETs a Checkout resource of the connection's base URL, e.g. {@code /sessions/{id}?sessionResult=...}
+     */
+    public Mono<String> get(AdyenOperation operation, Connection connection, String pathTemplate,
+                            Object... uriVariables) {
+        return exchange(operation, connection.webClient().get()
+                .uri(connection.baseUrl() + pathTemplate, uriVariables));
+    }
+
+    private Mono<String> exchange(AdyenOperation operation, WebClient.RequestHeadersSpec<?> request) {
+        Duration readTimeout = readTimeouts.getOrDefault(operation, defaultReadTimeout);
+        return request
+                .accept(MediaType.APPLICATION_JSON)
+                .retrieve()
+                .onStatus(HttpStatusCode::isError, response -> response.bodyToMono(String.class)
+                        .defaultIfEmpty("")
+                        .map(body -> new ApiException(body, response.statusCode().value(),
+                                response.headers().asHttpHeaders())))
+                .bodyToMono(String.class)
+                .defaultIfEmpty("")
+                .timeout(readTimeout)
+                .onErrorMap(TimeoutException.class, e -> new SocketTimeoutException(
+                        "Adyen " + operation.key() + " did not respond within " + readTimeout.toMillis() + " ms"))
+                .onErrorMap(WebClientRequestException.class, e -> new IOException(e.getMessage(), e));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        defaultConnection.close();
+    }
+
+    /**
+     * A merchant route's connection pool and the client sending its API key to its Checkout base URL
+     */
+    public record Connection(String baseUrl, WebClient webClient, ConnectionProvider connectionProvider)
+            implements AutoCloseable {
+
+        @Override
+        public void close() {
+            connectionProvider.dispose();
+        }
+    }
+}
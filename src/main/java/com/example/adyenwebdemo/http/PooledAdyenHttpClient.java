@@ -0,0 +1,217 @@
+package com.example.adyenwebdemo.http;
+
+import com.adyen.Client;
+import com.adyen.Config;
+import com.adyen.constants.ApiConstants;
+import com.adyen.httpclient.AdyenHttpClient;
+import com.adyen.httpclient.HTTPClientException;
+import com.adyen.model.RequestOptions;
+import com.example.adyenwebdemo.model.AdyenOperation;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.classic.methods.HttpDelete;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.classic.methods.HttpPatch;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.classic.methods.HttpPut;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.apache.hc.core5.net.URIBuilder;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Transport for the Adyen {@link Client} backed by one long-lived, pooled Apache HttpClient.
+ * <p>
+ * The library's default {@link AdyenHttpClient} builds a new HttpClient (and TLS connection) per request;
+ * this implementation keeps connections alive and reuses them across calls, applies a read timeout per
+ * {@link AdyenOperation} and evicts idle connections in the background.
+ */
+@Slf4j
+public class PooledAdyenHttpClient extends AdyenHttpClient implements AutoCloseable {
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final Map<AdyenOperation, RequestConfig> requestConfigs = new EnumMap<>(AdyenOperation.class);
+    private final RequestConfig defaultRequestConfig;
+
+    public PooledAdyenHttpClient(Settings settings) {
+        ConnectionConfig connectionConfig = ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(settings.connectTimeoutMillis()))
+                .setTimeToLive(TimeValue.ofMilliseconds(settings.timeToLiveMillis()))
+                .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                .build();
+        this.connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(settings.maxTotal())
+                .setMaxConnPerRoute(settings.maxPerRoute())
+                .setDefaultConnectionConfig(connectionConfig)
+                .build();
+
+        this.defaultRequestConfig = requestConfig(settings, settings.readTimeoutMillis());
+        settings.readTimeoutMillisByOperation().forEach((operation, timeout) ->
+                requestConfigs.put(operation, requestConfig(settings, timeout)));
+
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(defaultRequestConfig)
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(settings.idleEvictionMillis()))
+                .disableCookieManagement()
+                .build();
+
+        log.info("Pooled Adyen HTTP transport created: maxTotal={}, maxPerRoute={}, connectTimeout={}ms",
+                settings.maxTotal(), settings.maxPerRoute(), settings.connectTimeoutMillis());
+    }
+
+    private static RequestConfig requestConfig(Settings settings, long readTimeoutMillis) {
+        return RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(settings.connectionRequestTimeoutMillis()))
+                .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMillis))
+                .build();
+    }
+
+    @Override
+    public String request(String endpoint, String requestBody, Config config, boolean isApiKeyRequired,
+                          RequestOptions requestOptions, ApiConstants.HttpMethod httpMethod,
+                          Map<String, String> params) throws IOException, HTTPClientException {
+        HttpUriRequestBase request = createRequest(endpoint, requestBody, httpMethod, params);
+        setHeaders(request, config, isApiKeyRequired, requestOptions);
+
+        AdyenOperation operation = AdyenOperation.fromPath(endpoint);
+        request.setConfig(operation != null ? requestConfigs.getOrDefault(operation, defaultRequestConfig) : defaultRequestConfig);
+
+        Response response = httpClient.execute(request, httpResponse -> new Response(
+                httpResponse.getCode(),
+                httpResponse.getReasonPhrase(),
+                httpResponse.getEntity() != null ? EntityUtils.toString(httpResponse.getEntity(), StandardCharsets.UTF_8) : "",
+                headers(httpResponse.getHeaders())));
+
+        if (response.code() < 200 || response.code() >= 300) {
+            throw new HTTPClientException(response.code(), response.reason(), response.headers(), response.body());
+        }
+        return response.body();
+    }
+
+    private static HttpUriRequestBase createRequest(String endpoint, String requestBody,
+                                                    ApiConstants.HttpMethod httpMethod,
+                                                    Map<String, String> params) throws IOException {
+        URI uri;
+        try {
+            URIBuilder builder = new URIBuilder(endpoint);
+            if (params != null) {
+                params.forEach(builder::addParameter);
+            }
+            uri = builder.build();
+        } catch (URISyntaxException e) {
+            throw new IOException("Invalid Adyen endpoint: " + endpoint, e);
+        }
+
+        ApiConstants.HttpMethod method = httpMethod != null ? httpMethod : ApiConstants.HttpMethod.POST;
+        HttpUriRequestBase request = switch (method) {
+            case GET -> new HttpGet(uri);
+            case DELETE -> new HttpDelete(uri);
+            case PATCH -> new HttpPatch(uri);
+            case PUT -> new HttpPut(uri);
+            default -> new HttpPost(uri);
+        };
+        if (requestBody != null && (method == ApiConstants.HttpMethod.POST || method == ApiConstants.HttpMethod.PATCH
+                || method == ApiConstants.HttpMethod.PUT)) {
+            request.setEntity(new StringEntity(requestBody, ContentType.APPLICATION_JSON));
+        }
+        return request;
+    }
+
+    private static void setHeaders(HttpUriRequestBase request, Config config, boolean isApiKeyRequired,
+                                   RequestOptions requestOptions) {
+        request.setHeader("Content-Type", "application/json");
+        request.setHeader("Accept-Charset", "UTF-8");
+        request.setHeader("Cache-Control", "no-cache");
+        String applicationName = config.getApplicationName() != null ? config.getApplicationName() + " " : "";
+        request.setHeader("User-Agent", applicationName + Client.LIB_NAME + "/" + Client.LIB_VERSION);
+        request.setHeader("adyen-library-name", Client.LIB_NAME);
+        request.setHeader("adyen-library-version", Client.LIB_VERSION);
+
+        if (config.getApiKey() != null && !config.getApiKey().isEmpty()) {
+            request.setHeader("x-api-key", config.getApiKey());
+        } else if (isApiKeyRequired) {
+            throw new IllegalStateException("API key is required");
+        } else if (config.getUsername() != null && config.getPassword() != null) {
+            String credentials = config.getUsername() + ":" + config.getPassword();
+            request.setHeader("Authorization",
+                    "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        // The headers of the request options, as the library's AdyenHttpClient sends them
+        if (requestOptions != null) {
+            if (requestOptions.getIdempotencyKey() != null) {
+                request.setHeader("Idempotency-Key", requestOptions.getIdempotencyKey());
+            }
+            if (requestOptions.getRequestedVerificationCodeHeader() != null) {
+                request.setHeader("x-requested-verification-code", requestOptions.getRequestedVerificationCodeHeader());
+            }
+            if (requestOptions.getAdditionalServiceHeaders() != null) {
+                requestOptions.getAdditionalServiceHeaders().forEach(request::setHeader);
+            }
+        }
+    }
+
+    private static Map<String, List<String>> headers(Header[] headers) {
+        Map<String, List<String>> result = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (Header header : headers) {
+            result.computeIfAbsent(header.getName(), name -> new ArrayList<>()).add(header.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Leased, pending and available connections across all routes
+     */
+    public PoolStats poolStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+    }
+
+    private record Response(int code, String reason, String body, Map<String, List<String>> headers) {
+    }
+
+    /**
+     * Pool and timeout configuration of the transport
+     */
+    public record Settings(int maxTotal, int maxPerRoute, long connectTimeoutMillis,
+                           long connectionRequestTimeoutMillis, long readTimeoutMillis,
+                           Map<AdyenOperation, Long> readTimeoutMillisByOperation,
+                           long idleEvictionMillis, long timeToLiveMillis) {
+
+        /**
+         * The same settings with a pool of maxConnections, all of which may go to the one Adyen host
+         */
+        public Settings withPoolSize(int maxConnections) {
+            return new Settings(maxConnections, maxConnections, connectTimeoutMillis, connectionRequestTimeoutMillis,
+                    readTimeoutMillis, readTimeoutMillisByOperation, idleEvictionMillis, timeToLiveMillis);
+        }
+    }
+}
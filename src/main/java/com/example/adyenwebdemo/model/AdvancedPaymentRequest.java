@@ -0,0 +1,41 @@
+package com.example.adyenwebdemo.model;
+
+import com.adyen.model.checkout.Amount;
+import com.adyen.model.checkout.BrowserInfo;
+import com.adyen.model.checkout.CheckoutPaymentMethod;
+import lombok.Data;
+
+/**
+ * Body of /advanced/api/payments as sent by the Drop-in onSubmit handler.
+ * paymentMethod and browserInfo are bound straight to the Adyen models.
+ */
+@Data
+public class AdvancedPaymentRequest {
+    private Amount amount;
+    private CheckoutPaymentMethod paymentMethod;
+    private BrowserInfo browserInfo;
+    private String shopperReference;
+    private String countryCode;
+    private boolean enableRecurring;
+    private String returnUrl;
+    /**
+     * Storefront brand, optional; selects the merchant route together with country and currency
+     */
+    private String brand;
+
+    /**
+     * The first field a payment cannot be made or routed without, or null if none is missing
+     */
+    public String missingField() {
+        if (amount == null || amount.getValue() == null) {
+            return "amount";
+        }
+        if (amount.getCurrency() == null || amount.getCurrency().isBlank()) {
+            return "currency";
+        }
+        if (countryCode == null || countryCode.isBlank()) {
+            return "countryCode";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.adyenwebdemo.model;
+
+/**
+ * The Adyen Checkout API operations used by this application
+ */
+public enum AdyenOperation {
+    SESSIONS("sessions"),
+    SESSION_RESULT("sessionResult"),
+    PAYMENT_METHODS("paymentMethods"),
+    PAYMENTS("payments"),
+    PAYMENTS_DETAILS("paymentsDetails");
+
+    private final String key;
+
+    AdyenOperation(String key) {
+        this.key = key;
+    }
+
+    /**
+     * Stable name used in configuration properties, metrics and logs
+     */
+    public String key() {
+        return key;
+    }
+
+    /**
+     * Resolves the operation from a Checkout API endpoint URL, or null if it is not one of ours
+     */
+    public static AdyenOperation fromPath(String endpoint) {
+        if (endpoint.endsWith("/payments/details")) {
+            return PAYMENTS_DETAILS;
+        }
+        if (endpoint.endsWith("/payments")) {
+            return PAYMENTS;
+        }
+        if (endpoint.endsWith("/paymentMethods")) {
+            return PAYMENT_METHODS;
+        }
+        if (endpoint.endsWith("/sessions")) {
+            return SESSIONS;
+        }
+        if (endpoint.contains("/sessions/")) {
+            return SESSION_RESULT;
+        }
+        return null;
+    }
+
+    public static AdyenOperation fromKey(String key) {
+        for (AdyenOperation operation : values()) {
+            if (operation.key.equalsIgnoreCase(key)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown Adyen operation: " + key);
+    }
+}
@@ -13,6 +13,7 @@ import java.util.Map;
 @AllArgsConstructor
 public class AdyenPaymentDetailsResponse {
     private String resultCode;
+    private PaymentOutcome outcome;
     private String pspReference;
     private String merchantReference;
     private Map<String, String> additionalData;
@@ -0,0 +1,49 @@
+package com.example.adyenwebdemo.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Details submissions and session lookups resolved together by POST /api/batch/details
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchDetailsRequest {
+    private List<Item> items;
+
+    /**
+     * One lookup. The type selects which fields are used:
+     * <ul>
+     *     <li>{@code redirect} - redirectResult and/or paymentData, and merchantReference, as
+     *     /api/payments/details</li>
+     *     <li>{@code threeDS} - threeDSResult, paymentData and merchantReference, as /api/payments/3DSDetails</li>
+     *     <li>{@code sessionResult} - sessionId and sessionResult, as /api/sessions/result</li>
+     *     <li>{@code advanced} - details, as /advanced/api/payments/details</li>
+     * </ul>
+     * The merchantReference selects the merchant route the payment was made on; without it the default route is used.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+        // Echoed in the result line so callers can match results, which arrive in completion order
+        private String id;
+        private String type;
+        private String redirectResult;
+        private String threeDSResult;
+        private String paymentData;
+        private String merchantReference;
+        private String sessionId;
+        private String sessionResult;
+        private Map<String, Object> details;
+        private String idempotencyKey;
+    }
+}
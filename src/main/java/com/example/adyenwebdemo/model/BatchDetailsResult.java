@@ -0,0 +1,21 @@
+package com.example.adyenwebdemo.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * One NDJSON line of a batch details response. status is the HTTP status the single-item endpoint would have
+ * answered with.
+ */
+@Value
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchDetailsResult {
+    String id;
+    int index;
+    int status;
+    Object result;
+    String error;
+    Long retryAfterSeconds;
+}
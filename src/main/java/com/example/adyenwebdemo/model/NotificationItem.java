@@ -0,0 +1,34 @@
+package com.example.adyenwebdemo.model;
+
+import com.adyen.model.checkout.Amount;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A single NotificationRequestItem from an Adyen webhook batch
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class NotificationItem {
+    private String eventCode;
+    private String eventDate;
+    private String success;
+    private String pspReference;
+    private String originalReference;
+    private String merchantAccountCode;
+    private String merchantReference;
+    private String paymentMethod;
+    private String reason;
+    private Amount amount;
+    private List<String> operations;
+    private Map<String, String> additionalData;
+
+    @JsonIgnore
+    public boolean isSuccessful() {
+        return "true".equalsIgnoreCase(success);
+    }
+}
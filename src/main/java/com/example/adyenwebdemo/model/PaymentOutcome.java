@@ -0,0 +1,103 @@
+package com.example.adyenwebdemo.model;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * What an Adyen result code or session status means for the shopper, and which result page shows it.
+ * <p>
+ * Classification is a table lookup: Adyen enums (the ResultCodeEnum of each response model, the session
+ * StatusEnum) by ordinal in a per-type table, stored result code strings case-insensitively. Neither converts
+ * or allocates strings. Unknown codes are logged and {@link #PENDING}: a code added by Adyen must not tell a shopper
+ * whose payment may have gone through that it failed.
+ */
+@Slf4j
+public enum PaymentOutcome {
+    SUCCESS("success"),
+    PENDING("pending"),
+    /**
+     * The shopper still has to complete an action (redirect, 3DS, voucher)
+     */
+    ACTION("pending"),
+    FAILED("failed");
+
+    private static final Map<String, PaymentOutcome> BY_CODE = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        // Payment result codes
+        BY_CODE.put("Authorised", SUCCESS);
+        BY_CODE.put("Success", SUCCESS);
+        BY_CODE.put("Authenticated", SUCCESS);
+        BY_CODE.put("Pending", PENDING);
+        BY_CODE.put("Received", PENDING);
+        BY_CODE.put("PartiallyAuthorised", PENDING);
+        BY_CODE.put("AuthenticationFinished", PENDING);
+        BY_CODE.put("AuthenticationNotRequired", PENDING);
+        BY_CODE.put("RedirectShopper", ACTION);
+        BY_CODE.put("IdentifyShopper", ACTION);
+        BY_CODE.put("ChallengeShopper", ACTION);
+        BY_CODE.put("PresentToShopper", ACTION);
+        BY_CODE.put("Refused", FAILED);
+        BY_CODE.put("Cancelled", FAILED);
+        BY_CODE.put("Error", FAILED);
+        // Session statuses
+        BY_CODE.put("active", PENDING);
+        BY_CODE.put("completed", SUCCESS);
+        BY_CODE.put("paymentPending", PENDING);
+        BY_CODE.put("canceled", FAILED);
+        BY_CODE.put("expired", FAILED);
+    }
+
+    /**
+     * Outcome per ordinal of each Adyen enum type, built from the enum's values on first use
+     */
+    private static final ClassValue<PaymentOutcome[]> BY_ENUM = new ClassValue<>() {
+        @Override
+        protected PaymentOutcome[] computeValue(Class<?> type) {
+            Object[] constants = type.getEnumConstants();
+            PaymentOutcome[] outcomes = new PaymentOutcome[constants.length];
+            for (int i = 0; i < constants.length; i++) {
+                // Adyen enums' toString() is the API value, e.g. "Authorised"
+                outcomes[i] = of(constants[i].toString());
+            }
+            return outcomes;
+        }
+    };
+
+    private final String view;
+
+    PaymentOutcome(String view) {
+        this.view = view;
+    }
+
+    /**
+     * Result page template for this outcome
+     */
+    public String view() {
+        return view;
+    }
+
+    /**
+     * Classifies an Adyen ResultCodeEnum or session StatusEnum, or returns null for null
+     */
+    public static PaymentOutcome of(Enum<?> code) {
+        return code == null ? null : BY_ENUM.get(code.getDeclaringClass())[code.ordinal()];
+    }
+
+    /**
+     * Classifies a result code as stored or returned by Adyen, e.g. "Authorised", or returns null for null
+     */
+    public static PaymentOutcome of(String code) {
+        if (code == null) {
+            return null;
+        }
+        PaymentOutcome outcome = BY_CODE.get(code);
+        if (outcome == null) {
+            log.warn("Unknown Adyen result code {}, treating it as pending", code);
+            return PENDING;
+        }
+        return outcome;
+    }
+}
@@ -12,6 +12,10 @@ import lombok.NoArgsConstructor;
 public class RedirectDetailsRequest {
     private String redirectResult;
     private String paymentData;
+    /**
+     * The reference parameter of the return URL, selecting the merchant route the payment was made on
+     */
+    private String merchantReference;
     // Note: We don't need to include details field here as it's handled
     // differently in the actual Adyen API call using PaymentCompletionDetails
 }
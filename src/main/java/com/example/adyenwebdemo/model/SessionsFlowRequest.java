@@ -10,4 +10,28 @@ public class SessionsFlowRequest {
     private String returnUrl;
     private boolean enableRecurring;
     private String shopperReference;
+    /**
+     * Storefront brand, optional; selects the merchant route together with country and currency
+     */
+    private String brand;
+
+    /**
+     * The first field a checkout cannot be priced or routed without, or null if none is missing.
+     * A shopperReference is only required to store a payment method; guest checkouts go without one.
+     */
+    public String missingField() {
+        if (amount == null) {
+            return "amount";
+        }
+        if (currency == null || currency.isBlank()) {
+            return "currency";
+        }
+        if (countryCode == null || countryCode.isBlank()) {
+            return "countryCode";
+        }
+        if (enableRecurring && (shopperReference == null || shopperReference.isBlank())) {
+            return "shopperReference";
+        }
+        return null;
+    }
 }
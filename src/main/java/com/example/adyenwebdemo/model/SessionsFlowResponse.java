@@ -9,4 +9,5 @@ public class SessionsFlowResponse {
     private String sessionId;
     private String sessionData;
     private String clientKey;
+    private String reference;
 }
@@ -12,4 +12,8 @@ import lombok.NoArgsConstructor;
 public class ThreeDSDetailsRequest {
     private String threeDSResult;
     private String paymentData;
+    /**
+     * The payment's merchant reference, selecting the merchant route it was made on
+     */
+    private String merchantReference;
 }
@@ -0,0 +1,60 @@
+package com.example.adyenwebdemo.resilience;
+
+/**
+ * AIMD concurrency limit: each successful call while the limit is in use raises it additively
+ * (by about one per limit's worth of calls), each dropped call (failure or slow response) cuts it
+ * multiplicatively by {@code backoffRatio}. Calls beyond the current limit are rejected rather than queued.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+
+    private double limit;
+    private int inFlight;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+    }
+
+    /**
+     * Returns whether a call may proceed; every permitted call must be followed by
+     * {@link #onComplete(boolean)} or {@link #cancel()}
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    public synchronized void onComplete(boolean dropped) {
+        int concurrency = inFlight--;
+        if (dropped) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } else if (concurrency * 2 >= limit) {
+            // Only grow while the limit is actually being used
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+    }
+
+    /**
+     * Releases a permit without adjusting the limit, for calls that never reached Adyen
+     */
+    public synchronized void cancel() {
+        inFlight--;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.adyenwebdemo.resilience;
+
+import com.example.adyenwebdemo.model.AdyenOperation;
+import lombok.Getter;
+
+/**
+ * Thrown instead of calling Adyen when the operation's circuit is open or its concurrency limit is reached
+ */
+@Getter
+public class AdyenUnavailableException extends RuntimeException {
+
+    private final AdyenOperation operation;
+    private final long retryAfterSeconds;
+
+    public AdyenUnavailableException(AdyenOperation operation, String reason, long retryAfterSeconds) {
+        super("Adyen " + operation.key() + " unavailable: " + reason);
+        this.operation = operation;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
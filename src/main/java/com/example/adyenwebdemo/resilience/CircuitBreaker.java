@@ -0,0 +1,131 @@
+package com.example.adyenwebdemo.resilience;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+
+/**
+ * Count-based circuit breaker.
+ * <p>
+ * While CLOSED the outcome of the last {@code windowSize} calls is tracked; once at least {@code minimumCalls}
+ * are recorded and the failure rate reaches the threshold the breaker OPENs and rejects calls for
+ * {@code openDuration}. It then lets {@code halfOpenCalls} trial calls through (HALF_OPEN): any failure opens
+ * it again, all of them succeeding closes it.
+ * <p>
+ * Permits carry the generation of the state they were granted in, which changes on every transition, so a late
+ * result of a call permitted before the last transition is ignored instead of counting as a trial.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openDurationNanos;
+    private final int halfOpenCalls;
+
+    private final boolean[] window;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+
+    private State state = State.CLOSED;
+    private long generation;
+    private long openedAt;
+    private int trialPermits;
+    private int trialSuccesses;
+
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, double failureRateThreshold,
+                          Duration openDuration, int halfOpenCalls) {
+        this.name = name;
+        this.window = new boolean[Math.max(1, windowSize)];
+        this.minimumCalls = Math.min(Math.max(1, minimumCalls), window.length);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+    }
+
+    /**
+     * Returns a permit if a call may proceed, or -1; every permit must be handed back through
+     * {@link #onResult(long, boolean)}
+     */
+    public synchronized long tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openDurationNanos) {
+                return -1;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialPermits >= halfOpenCalls) {
+                return -1;
+            }
+            trialPermits++;
+        }
+        return generation;
+    }
+
+    public synchronized void onResult(long permit, boolean failure) {
+        if (permit != generation) {
+            // Late result of a call permitted in an earlier state
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            if (failure) {
+                transitionTo(State.OPEN);
+            } else if (++trialSuccesses >= halfOpenCalls) {
+                transitionTo(State.CLOSED);
+            }
+            return;
+        }
+        if (windowCount == window.length) {
+            if (window[windowIndex]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+
+        if (windowCount >= minimumCalls && windowFailures >= failureRateThreshold * windowCount) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    /**
+     * Seconds until an open breaker lets trial calls through, at least 1
+     */
+    public synchronized long retryAfterSeconds() {
+        if (state != State.OPEN) {
+            return 1;
+        }
+        long remainingNanos = openDurationNanos - (System.nanoTime() - openedAt);
+        return Math.max(1, Duration.ofNanos(remainingNanos).toSeconds() + 1);
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void transitionTo(State next) {
+        log.warn("Circuit breaker {} {} -> {} (failures {}/{})", name, state, next, windowFailures, windowCount);
+        state = next;
+        generation++;
+        trialPermits = 0;
+        trialSuccesses = 0;
+        if (next == State.OPEN) {
+            openedAt = System.nanoTime();
+        }
+        if (next == State.CLOSED) {
+            windowIndex = 0;
+            windowCount = 0;
+            windowFailures = 0;
+        }
+    }
+}
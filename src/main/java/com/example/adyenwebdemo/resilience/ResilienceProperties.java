@@ -0,0 +1,70 @@
+package com.example.adyenwebdemo.resilience;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.List;
+
+/**
+ * Settings of the resilience layer around Adyen calls, adyen.resilience.*
+ * <p>
+ * Per-operation overrides of the rate (adyen.resilience.rate.per-second.&lt;operation&gt; and
+ * adyen.resilience.rate.burst.&lt;operation&gt;) are looked up when an operation's bucket is created.
+ *
+ * @param enabled     whether calls go through circuit breakers and concurrency limits at all
+ * @param slowCallMs  calls slower than this count as failures
+ */
+@ConfigurationProperties("adyen.resilience")
+public record ResilienceProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("10000") long slowCallMs,
+        @DefaultValue Circuit circuit,
+        @DefaultValue Limit limit,
+        @DefaultValue Rate rate,
+        @DefaultValue Retry retry) {
+
+    /**
+     * {@link CircuitBreaker} of each operation
+     */
+    public record Circuit(
+            @DefaultValue("50") int windowSize,
+            @DefaultValue("20") int minimumCalls,
+            @DefaultValue("0.5") double failureRateThreshold,
+            @DefaultValue("30") long openSeconds,
+            @DefaultValue("5") int halfOpenCalls) {
+    }
+
+    /**
+     * {@link AdaptiveConcurrencyLimiter} of each operation
+     */
+    public record Limit(
+            @DefaultValue("50") int initial,
+            @DefaultValue("2") int min,
+            @DefaultValue("200") int max,
+            @DefaultValue("0.7") double backoffRatio) {
+    }
+
+    /**
+     * {@link TokenBucket} of each operation and merchant account
+     *
+     * @param maxWaitMs longest a call waits in line before it is rejected
+     */
+    public record Rate(
+            @DefaultValue("true") boolean enabled,
+            @DefaultValue("100") double perSecond,
+            @DefaultValue("50") int burst,
+            @DefaultValue("250") long maxWaitMs) {
+    }
+
+    /**
+     * Retries of failed reads that are safe to repeat, with exponential backoff and full jitter
+     *
+     * @param operations keys of the operations to retry, e.g. paymentMethods
+     */
+    public record Retry(
+            @DefaultValue({"paymentMethods", "sessionResult"}) List<String> operations,
+            @DefaultValue("3") int maxAttempts,
+            @DefaultValue("100") long baseDelayMs,
+            @DefaultValue("2000") long maxDelayMs) {
+    }
+}
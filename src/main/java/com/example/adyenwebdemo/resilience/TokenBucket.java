@@ -0,0 +1,52 @@
+package com.example.adyenwebdemo.resilience;
+
+/**
+ * Token bucket of {@code ratePerSecond} with room for bursts of {@code burst} calls, kept as the theoretical
+ * arrival time of the next call (GCRA). Callers reserve their slot up front, so they are served in the order they
+ * arrive, and wait for it outside the lock; a caller whose slot is further away than its maximum wait reserves
+ * nothing and is rejected.
+ * <p>
+ * Times are {@link System#nanoTime()} values.
+ */
+public class TokenBucket {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+
+    private long nextArrival;
+
+    public TokenBucket(double ratePerSecond, int burst) {
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / ratePerSecond));
+        this.burstNanos = (Math.max(1, burst) - 1) * intervalNanos;
+        this.nextArrival = System.nanoTime() - burstNanos;
+    }
+
+    /**
+     * Reserves the next slot if it is at most {@code maxWaitNanos} away
+     *
+     * @return nanoseconds to wait before calling, or -1 if nothing was reserved
+     */
+    public synchronized long reserve(long now, long maxWaitNanos) {
+        long base = Math.max(nextArrival, now);
+        long wait = Math.max(0, base - burstNanos - now);
+        if (wait > maxWaitNanos) {
+            return -1;
+        }
+        nextArrival = base + intervalNanos;
+        return wait;
+    }
+
+    /**
+     * Nanoseconds until a call could be made without waiting
+     */
+    public synchronized long nanosUntilAvailable(long now) {
+        return Math.max(0, Math.max(nextArrival, now) - burstNanos - now);
+    }
+
+    /**
+     * Holds back all calls until {@code until}, as asked by a Retry-After; calls resume one interval apart
+     */
+    public synchronized void pauseUntil(long until) {
+        nextArrival = Math.max(nextArrival, until + burstNanos);
+    }
+}
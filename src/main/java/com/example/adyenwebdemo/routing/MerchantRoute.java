@@ -0,0 +1,156 @@
+package com.example.adyenwebdemo.routing;
+
+import com.adyen.service.checkout.PaymentsApi;
+import com.example.adyenwebdemo.http.AdyenCheckoutWebClient;
+import com.example.adyenwebdemo.http.PooledAdyenHttpClient;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A merchant account with the API credential used for it, and everything that talks to Adyen on its behalf:
+ * its own {@link PaymentsApi}, connection pools (blocking and reactive) and limit of concurrent calls, so a busy
+ * route cannot take the connections or request threads of the others.
+ */
+@Slf4j
+public class MerchantRoute implements AutoCloseable {
+
+    private final Definition definition;
+    private final PaymentsApi paymentsApi;
+    private final PooledAdyenHttpClient httpClient;
+    private final AdyenCheckoutWebClient.Connection checkoutConnection;
+    private final boolean ownsHttpClient;
+    private final Semaphore permits;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    MerchantRoute(Definition definition, PaymentsApi paymentsApi, PooledAdyenHttpClient httpClient,
+                  AdyenCheckoutWebClient.Connection checkoutConnection, boolean ownsHttpClient) {
+        this.definition = definition;
+        this.paymentsApi = paymentsApi;
+        this.httpClient = httpClient;
+        this.checkoutConnection = checkoutConnection;
+        this.ownsHttpClient = ownsHttpClient;
+        this.permits = definition.maxConcurrentCalls() > 0 ? new Semaphore(definition.maxConcurrentCalls()) : null;
+    }
+
+    public String getName() {
+        return definition.name();
+    }
+
+    public String getMerchantAccount() {
+        return definition.merchantAccount();
+    }
+
+    public String getApiKey() {
+        return definition.apiKey();
+    }
+
+    public String getClientKey() {
+        return definition.clientKey();
+    }
+
+    public PaymentsApi getPaymentsApi() {
+        return paymentsApi;
+    }
+
+    /**
+     * The route's connection for {@link AdyenCheckoutWebClient}, with its API key and Checkout base URL
+     */
+    public AdyenCheckoutWebClient.Connection getCheckoutConnection() {
+        return checkoutConnection;
+    }
+
+    Definition getDefinition() {
+        return definition;
+    }
+
+    /**
+     * Whether a checkout for this country, currency and brand belongs to the route; an empty criterion matches all
+     */
+    boolean matches(String countryCode, String currency, String brand) {
+        return matches(definition.countries(), countryCode) && matches(definition.currencies(), currency)
+                && matches(definition.brands(), brand);
+    }
+
+    private static boolean matches(Set<String> accepted, String value) {
+        return accepted.isEmpty() || (value != null && accepted.contains(value.toUpperCase(Locale.ROOT)));
+    }
+
+    /**
+     * Takes one of the route's concurrent calls
+     *
+     * @return false if all are in use
+     */
+    public boolean tryAcquire() {
+        if (permits != null && !permits.tryAcquire()) {
+            return false;
+        }
+        inFlight.incrementAndGet();
+        return true;
+    }
+
+    public void release() {
+        inFlight.decrementAndGet();
+        if (permits != null) {
+            permits.release();
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(definition.name(), definition.merchantAccount(), inFlight.get(),
+                definition.maxConcurrentCalls(), httpClient != null ? httpClient.poolStats().getLeased() : 0);
+    }
+
+    /**
+     * Closes the route's own connection pools; the default route shares the application's and leaves them open
+     */
+    @Override
+    public void close() {
+        if (!ownsHttpClient) {
+            return;
+        }
+        if (httpClient != null) {
+            try {
+                httpClient.close();
+            } catch (IOException e) {
+                log.warn("Could not close the connection pool of route {}", definition.name(), e);
+            }
+        }
+        if (checkoutConnection != null) {
+            checkoutConnection.close();
+        }
+    }
+
+    /**
+     * Configuration of a route; routes with equal definitions are kept as they are across reloads
+     *
+     * @param countries          upper-case country codes, empty for all
+     * @param currencies         upper-case currency codes, empty for all
+     * @param brands             upper-case brands, empty for all
+     * @param maxConnections     size of each of the route's connection pools
+     * @param maxConcurrentCalls concurrent Adyen calls of the route, 0 for no limit
+     */
+    public record Definition(String name, String merchantAccount, String apiKey, String clientKey,
+                             String environment, String checkoutBaseUrl, Set<String> countries,
+                             Set<String> currencies, Set<String> brands, int maxConnections,
+                             int maxConcurrentCalls) {
+
+        /**
+         * Leaves the API key out of logs
+         */
+        @Override
+        public String toString() {
+            return "Definition[name=" + name + ", merchantAccount=" + merchantAccount + ", countries=" + countries
+                    + ", currencies=" + currencies + ", brands=" + brands + ", maxConnections=" + maxConnections
+                    + ", maxConcurrentCalls=" + maxConcurrentCalls + "]";
+        }
+    }
+
+    public record Stats(String name, String merchantAccount, int inFlight, int maxConcurrentCalls,
+                        int leasedConnections) {
+    }
+}
@@ -0,0 +1,399 @@
+package com.example.adyenwebdemo.routing;
+
+import com.adyen.Client;
+import com.adyen.service.checkout.PaymentsApi;
+import com.example.adyenwebdemo.config.AdyenConfig;
+import com.example.adyenwebdemo.http.AdyenCheckoutWebClient;
+import com.example.adyenwebdemo.http.PooledAdyenHttpClient;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Picks the {@link MerchantRoute} (merchant account, API credential, connection pool and limits) of a checkout.
+ * <p>
+ * Routes are read from the properties file adyen.routing.file and tried in the order of its {@code routes} entry;
+ * the first whose countries, currencies and brands all accept the checkout serves it. Checkouts no route accepts,
+ * and everything when no file is configured, go to the default route: adyen.merchant.account with adyen.api.key
+ * and the application's {@link PaymentsApi}.
+ * <p>
+ * The file is checked for changes every adyen.routing.reload-seconds (or reloaded on demand). Routes whose
+ * definition is unchanged keep their pools; replaced and removed routes are closed after adyen.routing.drain-seconds,
+ * once their in-flight calls are done. An invalid file leaves the current routes in place.
+ */
+@Component
+@Slf4j
+public class MerchantRouter {
+
+    public static final String DEFAULT_ROUTE = "default";
+    public static final String REFERENCE_PARAMETER = "reference";
+
+    private final AdyenConfig adyenConfig;
+    private final PooledAdyenHttpClient.Settings httpSettings;
+    private final boolean pooledTransport;
+    private final AdyenCheckoutWebClient checkoutWebClient;
+    private final MeterRegistry registry;
+    private final MerchantRoute defaultRoute;
+    private final Path file;
+    private final long reloadSeconds;
+    private final long drainSeconds;
+    private final int defaultMaxConnections;
+    private final int defaultMaxConcurrentCalls;
+    /**
+     * Route names by session id and by merchant reference
+     */
+    private final Cache<String, String> rememberedRoutes;
+    private final Map<MerchantRoute, List<Meter>> meters = new IdentityHashMap<>();
+
+    private volatile List<MerchantRoute> routes = List.of();
+    private String loadedContent;
+    private long checkedModified = -1;
+    private long checkedSize = -1;
+    private ScheduledExecutorService reloader;
+
+    public MerchantRouter(
+            AdyenConfig adyenConfig,
+            PaymentsApi paymentsApi,
+            PooledAdyenHttpClient.Settings httpSettings,
+            ObjectProvider<PooledAdyenHttpClient> pooledHttpClient,
+            AdyenCheckoutWebClient checkoutWebClient,
+            MeterRegistry registry,
+            @Value("${adyen.routing.file:}") String file,
+            @Value("${adyen.routing.reload-seconds:30}") long reloadSeconds,
+            @Value("${adyen.routing.drain-seconds:120}") long drainSeconds,
+            @Value("${adyen.routing.max-connections:50}") int defaultMaxConnections,
+            @Value("${adyen.routing.max-concurrent-calls:0}") int defaultMaxConcurrentCalls,
+            @Value("${adyen.routing.default.max-concurrent-calls:0}") int defaultRouteMaxConcurrentCalls,
+            @Value("${adyen.routing.session-ttl-seconds:3600}") long sessionTtlSeconds) {
+        this.adyenConfig = adyenConfig;
+        this.httpSettings = httpSettings;
+        PooledAdyenHttpClient sharedHttpClient = pooledHttpClient.getIfAvailable();
+        this.pooledTransport = sharedHttpClient != null;
+        this.checkoutWebClient = checkoutWebClient;
+        this.registry = registry;
+        this.file = StringUtils.hasText(file) ? Path.of(file) : null;
+        this.reloadSeconds = reloadSeconds;
+        this.drainSeconds = drainSeconds;
+        this.defaultMaxConnections = defaultMaxConnections;
+        this.defaultMaxConcurrentCalls = defaultMaxConcurrentCalls;
+        this.rememberedRoutes = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(sessionTtlSeconds))
+                .maximumSize(100_000)
+                .build();
+
+        this.defaultRoute = new MerchantRoute(new MerchantRoute.Definition(DEFAULT_ROUTE,
+                adyenConfig.getMerchantAccount(), adyenConfig.getApiKey(), adyenConfig.getClientKey(),
+                adyenConfig.getEnvironment(), adyenConfig.getCheckoutBaseUrl(), Set.of(), Set.of(), Set.of(),
+                httpSettings.maxTotal(), defaultRouteMaxConcurrentCalls), paymentsApi, sharedHttpClient,
+                checkoutWebClient.defaultConnection(), false);
+        meters.put(defaultRoute, registerMeters(defaultRoute));
+    }
+
+    @PostConstruct
+    void start() {
+        if (file == null) {
+            return;
+        }
+        try {
+            reload();
+        } catch (IOException | IllegalArgumentException e) {
+            log.error("Could not load merchant routes from {}, using the default route only", file, e);
+        }
+        reloader = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "merchant-routes");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (reloadSeconds > 0) {
+            reloader.scheduleWithFixedDelay(this::reloadIfModified, reloadSeconds, reloadSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * The route of a checkout, by the shopper's country, the currency and the brand it is made for
+     */
+    public MerchantRoute route(String countryCode, String currency, String brand) {
+        for (MerchantRoute route : routes) {
+            if (route.matches(countryCode, currency, brand)) {
+                return route;
+            }
+        }
+        return defaultRoute;
+    }
+
+    public MerchantRoute defaultRoute() {
+        return defaultRoute;
+    }
+
+    /**
+     * Remembers the route a session was created on, for looking up its result with the same credential
+     */
+    public void rememberSession(String sessionId, MerchantRoute route) {
+        remember(sessionId, route);
+    }
+
+    /**
+     * The current route of the one a session was created on, or the default route
+     */
+    public MerchantRoute forSession(String sessionId) {
+        return remembered(sessionId);
+    }
+
+    /**
+     * Remembers the route a payment (or the session it is made in) was submitted on, by its merchant reference, so
+     * its /payments/details call is made with the same credential
+     */
+    public void rememberPayment(String merchantReference, MerchantRoute route) {
+        remember(merchantReference, route);
+    }
+
+    /**
+     * The current route of the one a payment was submitted on, or the default route for payments not remembered
+     * (older than adyen.routing.session-ttl-seconds, or made on another node). The default route's credential
+     * should then be a company-level one that can complete the payments of all merchant accounts.
+     */
+    public MerchantRoute forPayment(String merchantReference) {
+        return remembered(merchantReference);
+    }
+
+    private void remember(String key, MerchantRoute route) {
+        if (key != null && route != defaultRoute) {
+            rememberedRoutes.put(key, route.getName());
+        }
+    }
+
+    private MerchantRoute remembered(String key) {
+        String name = key != null ? rememberedRoutes.getIfPresent(key) : null;
+        if (name != null) {
+            for (MerchantRoute route : routes) {
+                if (route.getName().equals(name)) {
+                    return route;
+                }
+            }
+        }
+        return defaultRoute;
+    }
+
+    /**
+     * The return URL with the merchant reference added as {@value #REFERENCE_PARAMETER} parameter: Adyen redirects
+     * the shopper back to it with the redirectResult, and the reference picks the route of the details call
+     */
+    public static String withReference(String returnUrl, String reference) {
+        if (!StringUtils.hasText(returnUrl) || reference == null) {
+            return returnUrl;
+        }
+        return UriComponentsBuilder.fromUriString(returnUrl)
+                .replaceQueryParam(REFERENCE_PARAMETER, reference)
+                .build()
+                .toUriString();
+    }
+
+    public List<MerchantRoute.Stats> stats() {
+        List<MerchantRoute.Stats> stats = new ArrayList<>();
+        routes.forEach(route -> stats.add(route.stats()));
+        stats.add(defaultRoute.stats());
+        return stats;
+    }
+
+    private void reloadIfModified() {
+        try {
+            long modified = Files.exists(file) ? Files.getLastModifiedTime(file).toMillis() : 0;
+            long size = modified > 0 ? Files.size(file) : 0;
+            if (modified != checkedModified || size != checkedSize) {
+                checkedModified = modified;
+                checkedSize = size;
+                reload();
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            log.error("Could not reload merchant routes from {}, keeping the current routes", file, e);
+        }
+    }
+
+    /**
+     * Re-reads the routes file and switches to its routes if it changed
+     *
+     * @return whether the routes changed
+     * @throws IllegalArgumentException if the file is invalid; the current routes stay in place
+     */
+    public synchronized boolean reload() throws IOException {
+        if (file == null) {
+            return false;
+        }
+        String content = Files.exists(file) ? Files.readString(file, StandardCharsets.UTF_8) : "";
+        if (content.equals(loadedContent)) {
+            return false;
+        }
+        List<MerchantRoute.Definition> definitions = parse(content);
+
+        List<MerchantRoute> current = routes;
+        List<MerchantRoute> next = new ArrayList<>();
+        for (MerchantRoute.Definition definition : definitions) {
+            MerchantRoute kept = current.stream()
+                    .filter(route -> route.getDefinition().equals(definition))
+                    .findFirst()
+                    .orElse(null);
+            next.add(kept != null ? kept : create(definition));
+        }
+        List<MerchantRoute> retired = current.stream()
+                .filter(route -> next.stream().noneMatch(kept -> kept == route))
+                .toList();
+
+        retired.forEach(route -> meters.remove(route).forEach(registry::remove));
+        next.stream().filter(route -> !meters.containsKey(route))
+                .forEach(route -> meters.put(route, registerMeters(route)));
+        routes = List.copyOf(next);
+        loadedContent = content;
+        log.info("Merchant routes loaded from {}: {}", file, next.stream().map(MerchantRoute::getName).toList());
+
+        for (MerchantRoute route : retired) {
+            log.info("Closing route {} in {} s", route.getName(), drainSeconds);
+            if (reloader != null) {
+                reloader.schedule(route::close, drainSeconds, TimeUnit.SECONDS);
+            } else {
+                route.close();
+            }
+        }
+        return true;
+    }
+
+    private MerchantRoute create(MerchantRoute.Definition definition) {
+        PooledAdyenHttpClient httpClient = pooledTransport
+                ? new PooledAdyenHttpClient(httpSettings.withPoolSize(definition.maxConnections())) : null;
+        Client client = AdyenConfig.client(definition.apiKey(), definition.environment(), httpClient);
+        AdyenCheckoutWebClient.Connection checkoutConnection = checkoutWebClient.connect(definition.name(),
+                definition.apiKey(), definition.environment(), definition.checkoutBaseUrl(),
+                definition.maxConnections());
+        return new MerchantRoute(definition, AdyenConfig.paymentsApi(client, definition.checkoutBaseUrl()),
+                httpClient, checkoutConnection, true);
+    }
+
+    /**
+     * Parses the routes file:
+     * <pre>
+     * routes=brand-a-eu,brand-b-us
+     * route.brand-a-eu.merchant-account=BrandA_EU
+     * route.brand-a-eu.api-key=...
+     * route.brand-a-eu.countries=NL,DE,BE
+     * route.brand-a-eu.currencies=EUR
+     * route.brand-a-eu.brands=brand-a
+     * </pre>
+     * Optional per route: client-key, environment and checkout-base-url (default: those of the default route; the
+     * base URL is required outside TEST), max-connections and max-concurrent-calls (default:
+     * adyen.routing.max-connections/max-concurrent-calls).
+     */
+    List<MerchantRoute.Definition> parse(String content) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = new StringReader(content)) {
+            properties.load(reader);
+        }
+        List<MerchantRoute.Definition> definitions = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        for (String name : list(properties.getProperty("routes"))) {
+            if (!names.add(name) || DEFAULT_ROUTE.equals(name)) {
+                throw new IllegalArgumentException("Duplicate or reserved route name: " + name);
+            }
+            String prefix = "route." + name + ".";
+            String environment = properties.getProperty(prefix + "environment", adyenConfig.getEnvironment());
+            String checkoutBaseUrl = properties.getProperty(prefix + "checkout-base-url",
+                    adyenConfig.getCheckoutBaseUrl());
+            // Fails here rather than half-way through creating the routes' clients
+            AdyenCheckoutWebClient.checkoutBaseUrl(environment, checkoutBaseUrl);
+            definitions.add(new MerchantRoute.Definition(name,
+                    required(properties, prefix + "merchant-account"),
+                    required(properties, prefix + "api-key"),
+                    properties.getProperty(prefix + "client-key", adyenConfig.getClientKey()),
+                    environment,
+                    checkoutBaseUrl,
+                    upperCase(list(properties.getProperty(prefix + "countries"))),
+                    upperCase(list(properties.getProperty(prefix + "currencies"))),
+                    upperCase(list(properties.getProperty(prefix + "brands"))),
+                    integer(properties, prefix + "max-connections", defaultMaxConnections, 1),
+                    integer(properties, prefix + "max-concurrent-calls", defaultMaxConcurrentCalls, 0)));
+        }
+        return definitions;
+    }
+
+    private static String required(Properties properties, String key) {
+        String value = properties.getProperty(key);
+        if (!StringUtils.hasText(value)) {
+            throw new IllegalArgumentException("Missing " + key);
+        }
+        return value.trim();
+    }
+
+    private static int integer(Properties properties, String key, int defaultValue, int min) {
+        String value = properties.getProperty(key);
+        int parsed;
+        try {
+            parsed = StringUtils.hasText(value) ? Integer.parseInt(value.trim()) : defaultValue;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number: " + key + "=" + value);
+        }
+        if (parsed < min) {
+            throw new IllegalArgumentException(key + " must be at least " + min);
+        }
+        return parsed;
+    }
+
+    private static List<String> list(String value) {
+        if (value == null) {
+            return List.of();
+        }
+        return Arrays.stream(value.split(",")).map(String::trim).filter(item -> !item.isEmpty()).toList();
+    }
+
+    private static Set<String> upperCase(List<String> values) {
+        return values.stream().map(value -> value.toUpperCase(Locale.ROOT)).collect(Collectors.toUnmodifiableSet());
+    }
+
+    private List<Meter> registerMeters(MerchantRoute route) {
+        return List.of(
+                Gauge.builder("adyen.routing.in-flight", route, r -> r.stats().inFlight())
+                        .description("Adyen calls in progress on a merchant route")
+                        .tag("route", route.getName())
+                        .register(registry),
+                Gauge.builder("adyen.routing.http.leased", route, r -> r.stats().leasedConnections())
+                        .description("Connections of a merchant route's pool in use")
+                        .tag("route", route.getName())
+                        .register(registry));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (reloader != null) {
+            reloader.shutdownNow();
+        }
+        routes.forEach(MerchantRoute::close);
+    }
+}
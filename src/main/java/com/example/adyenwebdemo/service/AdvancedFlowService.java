@@ -1,49 +1,106 @@
 package com.example.adyenwebdemo.service;
 
 import com.adyen.model.checkout.*;
-import com.adyen.service.checkout.PaymentsApi;
 import com.adyen.service.exception.ApiException;
-import com.example.adyenwebdemo.config.AdyenConfig;
+import com.example.adyenwebdemo.model.AdvancedPaymentRequest;
+import com.example.adyenwebdemo.model.AdyenOperation;
+import com.example.adyenwebdemo.model.PaymentOutcome;
 import com.example.adyenwebdemo.model.SessionsFlowRequest;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.adyenwebdemo.routing.MerchantRoute;
+import com.example.adyenwebdemo.routing.MerchantRouter;
+import com.example.adyenwebdemo.state.PaymentEvent;
+import com.example.adyenwebdemo.state.PaymentEventType;
+import com.example.adyenwebdemo.state.PaymentState;
+import com.example.adyenwebdemo.state.PaymentStateStore;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class AdvancedFlowService {
 
-    private final PaymentsApi paymentsApi;
-    private final AdyenConfig adyenConfig;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final MerchantRouter merchantRouter;
+    private final PaymentMethodsCache paymentMethodsCache;
+    private final PayloadLogger payloadLogger;
+    private final IdempotencyService idempotencyService;
+    private final AdyenApiMetrics apiMetrics;
+    private final AdyenApiExecutor apiExecutor;
+    private final PaymentStateStore paymentStateStore;
+    private final ReferenceGenerator referenceGenerator;
+
+    private static final String SHOPPER_LOCALE = "en-US";
 
     /**
-     * Get available payment methods for the advanced flow
+     * Get available payment methods for the advanced flow.
+     * Generic and stored payment methods are served from {@link PaymentMethodsCache} when possible.
+     * They are those of the merchant account of the checkout's {@link MerchantRoute}.
      */
     public Map<String, Object> getPaymentMethods(SessionsFlowRequest paymentRequest) throws IOException, ApiException {
+        MerchantRoute route = merchantRouter.route(paymentRequest.getCountryCode(), paymentRequest.getCurrency(),
+                paymentRequest.getBrand());
+        String merchantAccount = route.getMerchantAccount();
+        long amountValue = paymentRequest.getAmount() * 100L; // Convert to minor units
+        PaymentMethodsCache.PaymentMethodsKey cacheKey = paymentMethodsCache.key(merchantAccount,
+                paymentRequest.getCountryCode(), paymentRequest.getCurrency(), amountValue, SHOPPER_LOCALE);
+
+        // Stored payment methods are cached per shopper; a miss fetches both lists in one call
+        List<StoredPaymentMethod> storedPaymentMethods = null;
+        String shopperReference = paymentRequest.getShopperReference();
+        if (shopperReference != null && !shopperReference.isEmpty()) {
+            storedPaymentMethods = paymentMethodsCache.getStoredPaymentMethods(merchantAccount, shopperReference, () -> {
+                PaymentMethodsResponse response = fetchPaymentMethods(route, paymentRequest, amountValue,
+                        shopperReference);
+                paymentMethodsCache.putPaymentMethods(cacheKey, response.getPaymentMethods());
+                return response.getStoredPaymentMethods();
+            });
+        }
+
+        List<PaymentMethod> paymentMethods = paymentMethodsCache.getPaymentMethods(cacheKey,
+                () -> fetchPaymentMethods(route, paymentRequest, amountValue, null).getPaymentMethods());
+
+        return toPaymentMethodsResult(paymentMethods, storedPaymentMethods);
+    }
+
+    /**
+     * Convert payment methods to map for JSON serialization
+     */
+    static Map<String, Object> toPaymentMethodsResult(List<PaymentMethod> paymentMethods,
+                                                      List<StoredPaymentMethod> storedPaymentMethods) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("paymentMethods", paymentMethods);
+        result.put("storedPaymentMethods", storedPaymentMethods);
+        return result;
+    }
+
+    /**
+     * Calls the Adyen /paymentMethods API, optionally including the shopper's stored payment methods
+     */
+    private PaymentMethodsResponse fetchPaymentMethods(MerchantRoute route, SessionsFlowRequest paymentRequest,
+                                                       long amountValue, String shopperReference)
+            throws IOException, ApiException {
         // Create amount object
         Amount amount = new Amount()
                 .currency(paymentRequest.getCurrency())
-                .value(paymentRequest.getAmount() * 100L); // Convert to minor units
+                .value(amountValue);
 
         // Create payment methods request
         PaymentMethodsRequest paymentMethodsRequest = new PaymentMethodsRequest()
-                .merchantAccount(adyenConfig.getMerchantAccount())
+                .merchantAccount(route.getMerchantAccount())
                 .amount(amount)
                 .countryCode(paymentRequest.getCountryCode())
-                .shopperLocale("en-US");
+                .shopperLocale(SHOPPER_LOCALE);
 
         // Add shopper reference for recurring payments
-        if (paymentRequest.getShopperReference() != null && !paymentRequest.getShopperReference().isEmpty()) {
-            paymentMethodsRequest.shopperReference(paymentRequest.getShopperReference());
+        if (shopperReference != null) {
+            paymentMethodsRequest.shopperReference(shopperReference);
         }
 
         // Log request details
@@ -52,101 +109,126 @@ public class AdvancedFlowService {
         log.info("Amount: {} {}", amount.getValue(), amount.getCurrency());
         log.info("Country Code: {}", paymentMethodsRequest.getCountryCode());
         log.info("Shopper Reference: {}", paymentMethodsRequest.getShopperReference());
-        try {
-            log.info("Full Request JSON: {}", objectMapper.writeValueAsString(paymentMethodsRequest));
-        } catch (JsonProcessingException e) {
-            log.warn("Could not serialize payment methods request to JSON", e);
-        }
+        payloadLogger.logRequest(AdyenOperation.PAYMENT_METHODS, paymentMethodsRequest);
 
         // Call Adyen API to get payment methods
-        PaymentMethodsResponse response = paymentsApi.paymentMethods(paymentMethodsRequest);
+        PaymentMethodsResponse response = apiExecutor.execute(route, AdyenOperation.PAYMENT_METHODS,
+                () -> route.getPaymentsApi().paymentMethods(paymentMethodsRequest));
         
         // Log detailed response
         log.info("=== ADYEN PAYMENT METHODS API RESPONSE ===");
         log.info("Payment Methods Count: {}", response.getPaymentMethods() != null ? response.getPaymentMethods().size() : 0);
         log.info("Stored Payment Methods Count: {}", response.getStoredPaymentMethods() != null ? response.getStoredPaymentMethods().size() : 0);
-        try {
-            log.info("Full Response JSON: {}", objectMapper.writeValueAsString(response));
-        } catch (JsonProcessingException e) {
-            log.warn("Could not serialize payment methods response to JSON", e);
-        }
+        payloadLogger.logResponse(AdyenOperation.PAYMENT_METHODS, response);
 
-        // Convert response to map for JSON serialization
-        Map<String, Object> result = new HashMap<>();
-        result.put("paymentMethods", response.getPaymentMethods());
-        result.put("storedPaymentMethods", response.getStoredPaymentMethods());
-        
-        return result;
+        return response;
     }
 
     /**
-     * Make a payment using the advanced flow
+     * Make a payment using the advanced flow.
+     * Resends with the same Idempotency-Key result in a single upstream payment.
      */
-    public Map<String, Object> makePayment(Map<String, Object> paymentData) throws IOException, ApiException {
+    public Map<String, Object> makePayment(AdvancedPaymentRequest paymentData, String idempotencyKey)
+            throws IOException, ApiException {
         log.info("=== ADYEN PAYMENTS API REQUEST ===");
         
         // Extract payment details from the request
-        Map<String, Object> amountData = (Map<String, Object>) paymentData.get("amount");
-        Amount amount = new Amount()
-                .currency((String) amountData.get("currency"))
-                .value(((Number) amountData.get("value")).longValue());
+        Amount amount = paymentData.getAmount();
         
         log.info("Amount: {} {}", amount.getValue(), amount.getCurrency());
-        log.info("Return URL: {}", paymentData.get("returnUrl"));
-        log.info("Shopper Reference: {}", paymentData.get("shopperReference"));
-        log.info("Country Code: {}", paymentData.get("countryCode"));
-        log.info("Enable Recurring: {}", paymentData.get("enableRecurring"));
+        log.info("Return URL: {}", paymentData.getReturnUrl());
+        log.info("Shopper Reference: {}", paymentData.getShopperReference());
+        log.info("Country Code: {}", paymentData.getCountryCode());
+        log.info("Enable Recurring: {}", paymentData.isEnableRecurring());
+
+        MerchantRoute route = merchantRouter.route(paymentData.getCountryCode(), amount.getCurrency(),
+                paymentData.getBrand());
+        PaymentRequest adyenPaymentRequest = apiMetrics.timeMapping(AdyenOperation.PAYMENTS, "request",
+                () -> buildPaymentRequest(paymentData, route.getMerchantAccount(),
+                        referenceGenerator.next()));
+        if (adyenPaymentRequest.getShopperInteraction() == PaymentRequest.ShopperInteractionEnum.CONTAUTH) {
+            log.info("=== STORED PAYMENT METHOD DETECTED ===");
+        }
+
+        // Log full request
+        payloadLogger.logRequest(AdyenOperation.PAYMENTS, adyenPaymentRequest);
 
+        // Call Adyen API to make payment
+        String key = idempotencyService.key(AdyenOperation.PAYMENTS, idempotencyKey,
+                adyenPaymentRequest.getReference());
+        PaymentResponse response = idempotencyService.execute(AdyenOperation.PAYMENTS, key, () -> {
+            paymentStateStore.record(PaymentEvent.of(PaymentEventType.PAYMENT_SUBMITTED,
+                    adyenPaymentRequest.getReference(), null, null, null));
+            return apiExecutor.execute(route, AdyenOperation.PAYMENTS,
+                    () -> route.getPaymentsApi().payments(adyenPaymentRequest, idempotencyService.requestOptions(key)),
+                    PaymentResponse::getResultCode);
+        });
+        merchantRouter.rememberPayment(adyenPaymentRequest.getReference(), route);
+        
+        // Log detailed response
+        log.info("=== ADYEN PAYMENTS API RESPONSE ===");
+        log.info("PSP Reference: {}", response.getPspReference());
+        log.info("Result Code: {}", response.getResultCode() != null ? response.getResultCode().toString() : "null");
+        log.info("Merchant Reference: {}", response.getMerchantReference());
+        log.info("Has Action: {}", response.getAction() != null);
+        if (response.getAction() != null && response.getAction().getActualInstance() != null) {
+            // PaymentResponseAction doesn't have getType(), log the action class instead of its paymentData
+            log.info("Action Type: {}", response.getAction().getActualInstance().getClass().getSimpleName());
+        }
+        if (response.getAdditionalData() != null) {
+            log.info("Additional Data: {}", response.getAdditionalData());
+        }
+        payloadLogger.logResponse(AdyenOperation.PAYMENTS, response);
+        paymentStateStore.recordResponse(response.getMerchantReference(), response.getPspReference(),
+                response.getResultCode() != null ? response.getResultCode().toString() : null,
+                PaymentOutcome.of(response.getResultCode()), null);
+
+        // A newly stored payment method makes the shopper's cached stored payment methods stale
+        if (Boolean.TRUE.equals(adyenPaymentRequest.getStorePaymentMethod())
+                && adyenPaymentRequest.getShopperReference() != null) {
+            paymentMethodsCache.invalidateStoredPaymentMethods(route.getMerchantAccount(),
+                    adyenPaymentRequest.getShopperReference());
+        }
+
+        return apiMetrics.timeMapping(AdyenOperation.PAYMENTS, "response", () -> toPaymentResult(response));
+    }
+
+    /**
+     * Builds the Adyen /payments request from the Drop-in payment data
+     */
+    static PaymentRequest buildPaymentRequest(AdvancedPaymentRequest paymentData, String merchantAccount, String reference) {
         // Create payment request using Adyen's PaymentRequest class
         PaymentRequest adyenPaymentRequest = new PaymentRequest()
-                .merchantAccount(adyenConfig.getMerchantAccount())
-                .amount(amount)
-                .reference("ORDER-" + UUID.randomUUID().toString())
-                .returnUrl((String) paymentData.get("returnUrl"));
+                .merchantAccount(merchantAccount)
+                .amount(paymentData.getAmount())
+                .reference(reference)
+                .returnUrl(MerchantRouter.withReference(paymentData.getReturnUrl(), reference));
 
         // Add payment method details
         boolean isUsingStoredPaymentMethod = false;
-        if (paymentData.containsKey("paymentMethod")) {
-            try {
-                // Convert payment method data to JSON string and deserialize using Adyen's method
-                String paymentMethodJson = convertMapToJson(paymentData.get("paymentMethod"));
-                CheckoutPaymentMethod paymentMethod = CheckoutPaymentMethod.fromJson(paymentMethodJson);
-                
-                // Check if this is a stored payment method
-                Map<String, Object> paymentMethodData = (Map<String, Object>) paymentData.get("paymentMethod");
-                if (paymentMethodData.containsKey("storedPaymentMethodId") || 
-                    paymentMethodData.containsKey("recurringDetailReference")) {
-                    isUsingStoredPaymentMethod = true;
-                    log.info("Using stored payment method: {}", 
-                            paymentMethodData.get("storedPaymentMethodId") != null ? 
-                            paymentMethodData.get("storedPaymentMethodId") : 
-                            paymentMethodData.get("recurringDetailReference"));
-                }
-                
-                adyenPaymentRequest.paymentMethod(paymentMethod);
-            } catch (Exception e) {
-                log.error("Error processing payment method data", e);
-                throw new RuntimeException("Invalid payment method data", e);
-            }
+        if (paymentData.getPaymentMethod() != null) {
+            // Check if this is a stored payment method
+            isUsingStoredPaymentMethod = storedPaymentMethodId(paymentData.getPaymentMethod()) != null;
+            
+            adyenPaymentRequest.paymentMethod(paymentData.getPaymentMethod());
         }
 
 
         // Add shopper reference if provided
-        if (paymentData.containsKey("shopperReference")) {
-            adyenPaymentRequest.shopperReference((String) paymentData.get("shopperReference"));
+        if (paymentData.getShopperReference() != null) {
+            adyenPaymentRequest.shopperReference(paymentData.getShopperReference());
         }
 
         // Add country code if provided
-        if (paymentData.containsKey("countryCode")) {
-            adyenPaymentRequest.countryCode((String) paymentData.get("countryCode"));
+        if (paymentData.getCountryCode() != null) {
+            adyenPaymentRequest.countryCode(paymentData.getCountryCode());
         }
 
         // Configure recurring and stored payment method settings
-        boolean enableRecurring = paymentData.containsKey("enableRecurring") && (Boolean) paymentData.get("enableRecurring");
+        boolean enableRecurring = paymentData.isEnableRecurring();
         
         if (isUsingStoredPaymentMethod) {
             // Using existing stored payment method
-            log.info("=== STORED PAYMENT METHOD DETECTED ===");
             adyenPaymentRequest.recurringProcessingModel(PaymentRequest.RecurringProcessingModelEnum.CARDONFILE);
             adyenPaymentRequest.shopperInteraction(PaymentRequest.ShopperInteractionEnum.CONTAUTH);
             adyenPaymentRequest.storePaymentMethod(false); // Don't store again
@@ -158,20 +240,8 @@ public class AdvancedFlowService {
         }
 
         // Add browser info for 3DS
-        if (paymentData.containsKey("browserInfo")) {
-            Map<String, Object> browserInfoData = (Map<String, Object>) paymentData.get("browserInfo");
-            BrowserInfo browserInfo = new BrowserInfo()
-                    .userAgent((String) browserInfoData.get("userAgent"))
-                    .acceptHeader((String) browserInfoData.get("acceptHeader"))
-                    .language((String) browserInfoData.get("language"))
-                    .colorDepth(((Number) browserInfoData.get("colorDepth")).intValue())
-                    .screenHeight(((Number) browserInfoData.get("screenHeight")).intValue())
-                    .screenWidth(((Number) browserInfoData.get("screenWidth")).intValue())
-                    .timeZoneOffset(((Number) browserInfoData.get("timeZoneOffset")).intValue())
-                    .javaEnabled((Boolean) browserInfoData.get("javaEnabled"));
-            
-            adyenPaymentRequest.browserInfo(browserInfo);
-
+        if (paymentData.getBrowserInfo() != null) {
+            adyenPaymentRequest.browserInfo(paymentData.getBrowserInfo());
         }
 
         // Determine 3DS native or redirect
@@ -183,38 +253,16 @@ public class AdvancedFlowService {
         adyenPaymentRequest.setChannel(PaymentRequest.ChannelEnum.WEB);
         adyenPaymentRequest.setOrigin("http://localhost:8080");
 
-        // Log full request
-        try {
-            log.info("Full Request JSON: {}", objectMapper.writeValueAsString(adyenPaymentRequest));
-        } catch (JsonProcessingException e) {
-            log.warn("Could not serialize payment request to JSON", e);
-        }
-
-        // Call Adyen API to make payment
-        PaymentResponse response = paymentsApi.payments(adyenPaymentRequest);
-        
-        // Log detailed response
-        log.info("=== ADYEN PAYMENTS API RESPONSE ===");
-        log.info("PSP Reference: {}", response.getPspReference());
-        log.info("Result Code: {}", response.getResultCode() != null ? response.getResultCode().toString() : "null");
-        log.info("Merchant Reference: {}", response.getMerchantReference());
-        log.info("Has Action: {}", response.getAction() != null);
-        if (response.getAction() != null) {
-            // PaymentResponseAction doesn't have getType(), log the action object instead
-            log.info("Action Details: {}", response.getAction());
-        }
-        if (response.getAdditionalData() != null) {
-            log.info("Additional Data: {}", response.getAdditionalData());
-        }
-        try {
-            log.info("Full Response JSON: {}", objectMapper.writeValueAsString(response));
-        } catch (JsonProcessingException e) {
-            log.warn("Could not serialize payment response to JSON", e);
-        }
+        return adyenPaymentRequest;
+    }
 
-        // Convert response to map for frontend following Adyen's official example format
+    /**
+     * Convert response to map for frontend following Adyen's official example format
+     */
+    static Map<String, Object> toPaymentResult(PaymentResponse response) {
         Map<String, Object> result = new HashMap<>();
         result.put("resultCode", response.getResultCode() != null ? response.getResultCode().toString() : null);
+        result.put("outcome", PaymentOutcome.of(response.getResultCode()));
         result.put("pspReference", response.getPspReference());
         result.put("merchantReference", response.getMerchantReference());
         
@@ -244,11 +292,21 @@ public class AdvancedFlowService {
     /**
      * Submit payment details for advanced flow (3DS, redirects, etc.)
      */
-    public Map<String, Object> submitPaymentDetails(Map<String, Object> detailsData) throws IOException, ApiException {
+    public Map<String, Object> submitPaymentDetails(Map<String, Object> detailsData, String idempotencyKey)
+            throws IOException, ApiException {
+        // Reloading the result page re-submits the same redirectResult; answer from the payment state instead
+        String redirectResult = (String) detailsData.get("redirectResult");
+        Optional<PaymentState> known = paymentStateStore.findByRedirectResult(redirectResult);
+        if (known.isPresent() && known.get().isFinal()) {
+            log.info("Payment {} already has a result, serving it from the payment state store",
+                    known.get().merchantReference());
+            return fromState(known.get());
+        }
+
         log.info("=== ADYEN PAYMENT DETAILS API REQUEST (Advanced Flow) ===");
-        log.info("Payment Data: {}", detailsData.get("paymentData"));
-        log.info("Redirect Result: {}", detailsData.get("redirectResult"));
-        log.info("3DS Result: {}", detailsData.get("threeDSResult"));
+        log.info("Has Payment Data: {}", detailsData.containsKey("paymentData"));
+        log.info("Has Redirect Result: {}", detailsData.containsKey("redirectResult"));
+        log.info("Has 3DS Result: {}", detailsData.containsKey("threeDSResult"));
 
         // Create payment details request
         PaymentDetailsRequest paymentDetailsRequest = new PaymentDetailsRequest();
@@ -280,14 +338,24 @@ public class AdvancedFlowService {
         paymentDetailsRequest.details(details);
 
         // Log full request
-        try {
-            log.info("Full Request JSON: {}", objectMapper.writeValueAsString(paymentDetailsRequest));
-        } catch (JsonProcessingException e) {
-            log.warn("Could not serialize payment details request to JSON", e);
-        }
-
-        // Call Adyen API
-        PaymentDetailsResponse response = paymentsApi.paymentsDetails(paymentDetailsRequest);
+        payloadLogger.logRequest(AdyenOperation.PAYMENTS_DETAILS, paymentDetailsRequest);
+
+        // Call Adyen API; a details payload can only be submitted once, duplicates reuse the first call's result
+        String key = idempotencyService.key(AdyenOperation.PAYMENTS_DETAILS, idempotencyKey,
+                detailsData.get("redirectResult"), detailsData.get("threeDSResult"), detailsData.get("paymentData"));
+        String redirectKey = PaymentStateStore.redirectKey(redirectResult);
+        // Details carry no country or currency; the payment's route is found by the merchant reference the browser
+        // (or the return URL) passes along, the default route's credential completes payments not remembered
+        String merchantReference = (String) detailsData.get("merchantReference");
+        MerchantRoute route = merchantRouter.forPayment(merchantReference);
+        PaymentDetailsResponse response = idempotencyService.execute(AdyenOperation.PAYMENTS_DETAILS, key, () -> {
+            paymentStateStore.record(PaymentEvent.of(PaymentEventType.DETAILS_SUBMITTED, merchantReference, null,
+                    null, redirectKey));
+            return apiExecutor.execute(route, AdyenOperation.PAYMENTS_DETAILS,
+                    () -> route.getPaymentsApi().paymentsDetails(paymentDetailsRequest,
+                            idempotencyService.requestOptions(key)),
+                    PaymentDetailsResponse::getResultCode);
+        });
         
         // Log detailed response
         log.info("=== ADYEN PAYMENT DETAILS API RESPONSE (Advanced Flow) ===");
@@ -297,15 +365,21 @@ public class AdvancedFlowService {
         if (response.getAdditionalData() != null) {
             log.info("Additional Data: {}", response.getAdditionalData());
         }
-        try {
-            log.info("Full Response JSON: {}", objectMapper.writeValueAsString(response));
-        } catch (JsonProcessingException e) {
-            log.warn("Could not serialize payment details response to JSON", e);
-        }
+        payloadLogger.logResponse(AdyenOperation.PAYMENTS_DETAILS, response);
+        paymentStateStore.recordResponse(response.getMerchantReference(), response.getPspReference(),
+                response.getResultCode() != null ? response.getResultCode().toString() : null,
+                PaymentOutcome.of(response.getResultCode()), redirectKey);
+
+        return apiMetrics.timeMapping(AdyenOperation.PAYMENTS_DETAILS, "response", () -> toDetailsResult(response));
+    }
 
-        // Convert response to map
+    /**
+     * Convert payment details response to map
+     */
+    static Map<String, Object> toDetailsResult(PaymentDetailsResponse response) {
         Map<String, Object> result = new HashMap<>();
         result.put("resultCode", response.getResultCode() != null ? response.getResultCode().toString() : null);
+        result.put("outcome", PaymentOutcome.of(response.getResultCode()));
         result.put("pspReference", response.getPspReference());
         result.put("merchantReference", response.getMerchantReference());
         
@@ -317,9 +391,28 @@ public class AdvancedFlowService {
     }
 
     /**
-     * Helper method to convert Map to JSON string
+     * Result of a payment that was already processed, in the shape of {@link #toDetailsResult}
+     */
+    static Map<String, Object> fromState(PaymentState state) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("resultCode", state.resultCode());
+        result.put("outcome", PaymentOutcome.of(state.resultCode()));
+        result.put("pspReference", state.pspReference());
+        result.put("merchantReference", state.merchantReference());
+        return result;
+    }
+
+    /**
+     * Returns the stored payment method id if the shopper paid with a stored payment method
      */
-    private String convertMapToJson(Object data) throws IOException {
-        return objectMapper.writeValueAsString(data);
+    private static String storedPaymentMethodId(CheckoutPaymentMethod paymentMethod) {
+        Object instance = paymentMethod.getActualInstance();
+        if (instance instanceof CardDetails card) {
+            return card.getStoredPaymentMethodId() != null ? card.getStoredPaymentMethodId() : card.getRecurringDetailReference();
+        }
+        if (instance instanceof StoredPaymentMethodDetails stored) {
+            return stored.getStoredPaymentMethodId() != null ? stored.getStoredPaymentMethodId() : stored.getRecurringDetailReference();
+        }
+        return null;
     }
 }
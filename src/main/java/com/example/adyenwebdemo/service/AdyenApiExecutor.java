@@ -0,0 +1,417 @@
+package com.example.adyenwebdemo.service;
+
+import com.adyen.service.exception.ApiException;
+import com.example.adyenwebdemo.model.AdyenOperation;
+import com.example.adyenwebdemo.resilience.AdaptiveConcurrencyLimiter;
+import com.example.adyenwebdemo.resilience.AdyenUnavailableException;
+import com.example.adyenwebdemo.resilience.CircuitBreaker;
+import com.example.adyenwebdemo.resilience.ResilienceProperties;
+import com.example.adyenwebdemo.resilience.TokenBucket;
+import com.example.adyenwebdemo.routing.MerchantRoute;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Single entry point for calls into the Adyen API.
+ * <p>
+ * Every operation has its own {@link CircuitBreaker} and {@link AdaptiveConcurrencyLimiter}: when Adyen degrades,
+ * calls fail fast with {@link AdyenUnavailableException} instead of tying up request threads until the read
+ * timeout. Timeouts, connection errors, 429 and 5xx responses and calls slower than the slow-call threshold count
+ * as failures; 4xx validation errors do not. Calls that go through are recorded by {@link AdyenApiMetrics}.
+ * Calls made on a {@link MerchantRoute} first take one of the route's concurrent calls.
+ * <p>
+ * Route calls are also paced by a {@link TokenBucket} per operation and merchant account, so peaks are spread
+ * out before Adyen answers them with 429. A call waits in line for up to the maximum queue wait and is rejected
+ * beyond it; a Retry-After from Adyen holds back the bucket for that long. Failed reads that are safe to repeat
+ * are retried with exponential backoff and full jitter.
+ */
+@Component
+@Slf4j
+public class AdyenApiExecutor {
+
+    private final AdyenApiMetrics apiMetrics;
+    private final MeterRegistry registry;
+    private final boolean enabled;
+    private final long slowCallNanos;
+    private final Map<AdyenOperation, CircuitBreaker> circuitBreakers = new EnumMap<>(AdyenOperation.class);
+    private final Map<AdyenOperation, AdaptiveConcurrencyLimiter> limiters = new EnumMap<>(AdyenOperation.class);
+    private final Map<QuotaKey, Quota> quotas = new ConcurrentHashMap<>();
+    private final Environment environment;
+    private final boolean rateLimitEnabled;
+    private final double defaultRatePerSecond;
+    private final int defaultBurst;
+    private final long maxQueueWaitNanos;
+    private final Set<AdyenOperation> retryableOperations = EnumSet.noneOf(AdyenOperation.class);
+    private final int maxAttempts;
+    private final long retryBaseDelayMillis;
+    private final long retryMaxDelayMillis;
+
+    public AdyenApiExecutor(AdyenApiMetrics apiMetrics, MeterRegistry registry, Environment environment,
+                            ResilienceProperties properties) {
+        this.apiMetrics = apiMetrics;
+        this.registry = registry;
+        this.enabled = properties.enabled();
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(properties.slowCallMs());
+        this.environment = environment;
+        ResilienceProperties.Rate rate = properties.rate();
+        this.rateLimitEnabled = rate.enabled();
+        this.defaultRatePerSecond = rate.perSecond();
+        this.defaultBurst = rate.burst();
+        this.maxQueueWaitNanos = TimeUnit.MILLISECONDS.toNanos(rate.maxWaitMs());
+        ResilienceProperties.Retry retry = properties.retry();
+        for (String operation : retry.operations()) {
+            if (!operation.isBlank()) {
+                retryableOperations.add(AdyenOperation.fromKey(operation.trim()));
+            }
+        }
+        this.maxAttempts = Math.max(1, retry.maxAttempts());
+        this.retryBaseDelayMillis = Math.max(1, retry.baseDelayMs());
+        this.retryMaxDelayMillis = Math.max(this.retryBaseDelayMillis, retry.maxDelayMs());
+        ResilienceProperties.Circuit circuit = properties.circuit();
+        ResilienceProperties.Limit limit = properties.limit();
+        for (AdyenOperation operation : AdyenOperation.values()) {
+            CircuitBreaker circuitBreaker = new CircuitBreaker(operation.key(), circuit.windowSize(),
+                    circuit.minimumCalls(), circuit.failureRateThreshold(), Duration.ofSeconds(circuit.openSeconds()),
+                    circuit.halfOpenCalls());
+            AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(limit.initial(), limit.min(),
+                    limit.max(), limit.backoffRatio());
+            circuitBreakers.put(operation, circuitBreaker);
+            limiters.put(operation, limiter);
+
+            Gauge.builder("adyen.resilience.circuit.state", circuitBreaker, c -> c.getState().ordinal())
+                    .description("Circuit state: 0 closed, 1 open, 2 half-open")
+                    .tag("operation", operation.key())
+                    .register(registry);
+            Gauge.builder("adyen.resilience.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                    .description("Current adaptive concurrency limit")
+                    .tag("operation", operation.key())
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Calls Adyen without a result code
+     */
+    public <T> T execute(AdyenOperation operation, AdyenCall<T> call) throws IOException, ApiException {
+        return execute(operation, call, response -> null);
+    }
+
+    /**
+     * Calls Adyen through the operation's circuit breaker and concurrency limit
+     *
+     * @throws AdyenUnavailableException if the call was rejected without reaching Adyen
+     */
+    public <T> T execute(AdyenOperation operation, AdyenCall<T> call, Function<T, ?> resultCode)
+            throws IOException, ApiException {
+        if (!enabled) {
+            return apiMetrics.record(operation, call, resultCode);
+        }
+
+        long permit = acquire(operation);
+        long start = System.nanoTime();
+        Throwable error = null;
+        try {
+            return apiMetrics.record(operation, call, resultCode);
+        } catch (IOException | ApiException | RuntimeException e) {
+            error = e;
+            throw e;
+        } finally {
+            release(operation, permit, start, error);
+        }
+    }
+
+    /**
+     * Asynchronous variant of {@link #execute(AdyenOperation, AdyenCall, Function)}; a rejected call
+     * completes exceptionally with {@link AdyenUnavailableException}
+     */
+    public <T> CompletableFuture<T> executeAsync(AdyenOperation operation, Supplier<CompletableFuture<T>> call,
+                                                 Function<T, ?> resultCode) {
+        if (!enabled) {
+            return apiMetrics.recordAsync(operation, call, resultCode);
+        }
+
+        long permit;
+        try {
+            permit = acquire(operation);
+        } catch (AdyenUnavailableException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        long start = System.nanoTime();
+        return apiMetrics.recordAsync(operation, call, resultCode)
+                .whenComplete((response, error) -> release(operation, permit, start, error));
+    }
+
+    /**
+     * Calls Adyen on a merchant route without a result code
+     */
+    public <T> T execute(MerchantRoute route, AdyenOperation operation, AdyenCall<T> call)
+            throws IOException, ApiException {
+        return execute(route, operation, call, response -> null);
+    }
+
+    /**
+     * Calls Adyen on a merchant route, within the route's limit of concurrent calls and the rate of its merchant
+     * account; retryable operations are tried again after upstream failures
+     *
+     * @throws AdyenUnavailableException if the call was rejected without reaching Adyen
+     */
+    public <T> T execute(MerchantRoute route, AdyenOperation operation, AdyenCall<T> call, Function<T, ?> resultCode)
+            throws IOException, ApiException {
+        for (int attempt = 1; ; attempt++) {
+            Quota quota = quota(route, operation);
+            pause(reserve(route, operation, quota), TimeUnit.NANOSECONDS);
+            acquire(route, operation);
+            long delayMillis;
+            try {
+                return execute(operation, call, resultCode);
+            } catch (IOException | ApiException e) {
+                delayMillis = retryDelayMillis(operation, quota, attempt, e);
+                if (delayMillis < 0) {
+                    throw e;
+                }
+            } finally {
+                route.release();
+            }
+            pause(delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Asynchronous variant of {@link #execute(MerchantRoute, AdyenOperation, AdyenCall, Function)}; waits in the
+     * queue and between attempts are scheduled instead of blocking the caller
+     */
+    public <T> CompletableFuture<T> executeAsync(MerchantRoute route, AdyenOperation operation,
+                                                 Supplier<CompletableFuture<T>> call, Function<T, ?> resultCode) {
+        return executeAsync(route, operation, call, resultCode, 1);
+    }
+
+    private <T> CompletableFuture<T> executeAsync(MerchantRoute route, AdyenOperation operation,
+                                                  Supplier<CompletableFuture<T>> call, Function<T, ?> resultCode,
+                                                  int attempt) {
+        Quota quota = quota(route, operation);
+        long waitNanos;
+        try {
+            waitNanos = reserve(route, operation, quota);
+        } catch (AdyenUnavailableException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<T> future = waitNanos > 0
+                ? CompletableFuture.supplyAsync(() -> send(route, operation, call, resultCode),
+                        CompletableFuture.delayedExecutor(waitNanos, TimeUnit.NANOSECONDS)).thenCompose(f -> f)
+                : send(route, operation, call, resultCode);
+        return future.exceptionallyCompose(error -> {
+            Throwable cause = unwrap(error);
+            long delayMillis = retryDelayMillis(operation, quota, attempt, cause);
+            if (delayMillis < 0) {
+                return CompletableFuture.failedFuture(cause);
+            }
+            Executor delayed = CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS);
+            return CompletableFuture.supplyAsync(() -> executeAsync(route, operation, call, resultCode, attempt + 1),
+                    delayed).thenCompose(f -> f);
+        });
+    }
+
+    private <T> CompletableFuture<T> send(MerchantRoute route, AdyenOperation operation,
+                                          Supplier<CompletableFuture<T>> call, Function<T, ?> resultCode) {
+        try {
+            acquire(route, operation);
+        } catch (AdyenUnavailableException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<T> future;
+        try {
+            future = executeAsync(operation, call, resultCode);
+        } catch (RuntimeException e) {
+            route.release();
+            throw e;
+        }
+        return future.whenComplete((response, error) -> route.release());
+    }
+
+    /**
+     * The rate bucket of the operation on the route's merchant account, or null if calls are not paced
+     */
+    private Quota quota(MerchantRoute route, AdyenOperation operation) {
+        if (!enabled || !rateLimitEnabled) {
+            return null;
+        }
+        return quotas.computeIfAbsent(new QuotaKey(operation, route.getMerchantAccount()), key -> new Quota(
+                new TokenBucket(
+                        environment.getProperty("adyen.resilience.rate.per-second." + operation.key(), Double.class,
+                                defaultRatePerSecond),
+                        environment.getProperty("adyen.resilience.rate.burst." + operation.key(), Integer.class,
+                                defaultBurst)),
+                Timer.builder("adyen.resilience.queue.wait")
+                        .description("Time Adyen calls waited for their merchant account's rate limit")
+                        .tag("operation", operation.key())
+                        .tag("merchantAccount", key.merchantAccount())
+                        .register(registry)));
+    }
+
+    /**
+     * Takes the next place in line of the bucket
+     *
+     * @return nanoseconds to wait before sending
+     * @throws AdyenUnavailableException if the wait would be longer than the maximum queue wait
+     */
+    private long reserve(MerchantRoute route, AdyenOperation operation, Quota quota) {
+        if (quota == null) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        long waitNanos = quota.bucket().reserve(now, maxQueueWaitNanos);
+        if (waitNanos < 0) {
+            long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(
+                    quota.bucket().nanosUntilAvailable(now) + TimeUnit.SECONDS.toNanos(1) - 1));
+            throw reject(operation, "rate_limit", "rate limit of merchant account " + route.getMerchantAccount()
+                    + " reached", retryAfterSeconds);
+        }
+        quota.queueWait().record(waitNanos, TimeUnit.NANOSECONDS);
+        return waitNanos;
+    }
+
+    /**
+     * Holds back the bucket for a Retry-After of the failed call, and decides whether to try again
+     *
+     * @return milliseconds to wait before the next attempt, or -1 to give up
+     */
+    private long retryDelayMillis(AdyenOperation operation, Quota quota, int attempt, Throwable error) {
+        long retryAfterMillis = retryAfterMillis(error);
+        if (retryAfterMillis > 0 && quota != null) {
+            quota.bucket().pauseUntil(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryAfterMillis));
+        }
+        if (!enabled || !retryableOperations.contains(operation) || attempt >= maxAttempts
+                || !isUpstreamFailure(error) || retryAfterMillis > retryMaxDelayMillis) {
+            return -1;
+        }
+        long ceiling = Math.min(retryMaxDelayMillis, retryBaseDelayMillis << Math.min(attempt - 1, 20));
+        long delayMillis = Math.max(retryAfterMillis, ThreadLocalRandom.current().nextLong(ceiling + 1));
+        Counter.builder("adyen.resilience.retries")
+                .description("Adyen calls tried again after an upstream failure")
+                .tag("operation", operation.key())
+                .register(registry)
+                .increment();
+        log.info("Retrying Adyen {} call in {} ms after attempt {}: {}", operation.key(), delayMillis, attempt,
+                error.toString());
+        return delayMillis;
+    }
+
+    /**
+     * The Retry-After of a throttled or unavailable response in milliseconds, or -1 if there is none
+     */
+    private static long retryAfterMillis(Throwable error) {
+        if (!(error instanceof ApiException apiException) || apiException.getResponseHeaders() == null) {
+            return -1;
+        }
+        for (Map.Entry<String, List<String>> header : apiException.getResponseHeaders().entrySet()) {
+            if ("Retry-After".equalsIgnoreCase(header.getKey()) && header.getValue() != null
+                    && !header.getValue().isEmpty()) {
+                try {
+                    return TimeUnit.SECONDS.toMillis(Long.parseLong(header.getValue().get(0).trim()));
+                } catch (NumberFormatException e) {
+                    // An HTTP date; the backoff alone has to do
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static void pause(long duration, TimeUnit unit) throws InterruptedIOException {
+        if (duration <= 0) {
+            return;
+        }
+        try {
+            unit.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to call Adyen");
+        }
+    }
+
+    private void acquire(MerchantRoute route, AdyenOperation operation) {
+        if (!route.tryAcquire()) {
+            throw reject(operation, "route_limit", "route " + route.getName() + " is at its limit of "
+                    + route.stats().maxConcurrentCalls() + " concurrent calls", 1);
+        }
+    }
+
+    /**
+     * @return the circuit breaker permit of the call
+     */
+    private long acquire(AdyenOperation operation) {
+        CircuitBreaker circuitBreaker = circuitBreakers.get(operation);
+        AdaptiveConcurrencyLimiter limiter = limiters.get(operation);
+        if (!limiter.tryAcquire()) {
+            throw reject(operation, "limit", "concurrency limit " + limiter.getLimit() + " reached", 1);
+        }
+        long permit = circuitBreaker.tryAcquire();
+        if (permit < 0) {
+            limiter.cancel();
+            throw reject(operation, "circuit_open", "circuit open", circuitBreaker.retryAfterSeconds());
+        }
+        return permit;
+    }
+
+    private void release(AdyenOperation operation, long permit, long start, Throwable error) {
+        boolean dropped = isUpstreamFailure(error) || System.nanoTime() - start > slowCallNanos;
+        circuitBreakers.get(operation).onResult(permit, dropped);
+        limiters.get(operation).onComplete(dropped);
+    }
+
+    /**
+     * Connection problems, timeouts, throttling and server errors; validation errors say nothing about Adyen's health
+     */
+    private static boolean isUpstreamFailure(Throwable error) {
+        Throwable cause = unwrap(error);
+        if (cause instanceof ApiException apiException) {
+            int status = apiException.getStatusCode();
+            return status <= 0 || status == 429 || status >= 500;
+        }
+        return cause instanceof IOException;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private AdyenUnavailableException reject(AdyenOperation operation, String cause, String reason,
+                                             long retryAfterSeconds) {
+        Counter.builder("adyen.resilience.rejected")
+                .description("Adyen calls rejected without being sent")
+                .tag("operation", operation.key())
+                .tag("reason", cause)
+                .register(registry)
+                .increment();
+        log.warn("Rejecting Adyen {} call: {}", operation.key(), reason);
+        return new AdyenUnavailableException(operation, reason, retryAfterSeconds);
+    }
+
+    private record QuotaKey(AdyenOperation operation, String merchantAccount) {
+    }
+
+    private record Quota(TokenBucket bucket, Timer queueWait) {
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.adyenwebdemo.service;
+
+import com.adyen.service.exception.ApiException;
+import com.example.adyenwebdemo.model.AdyenOperation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer instrumentation of the Adyen API calls and of our own request/response mapping.
+ * <ul>
+ *     <li>{@code adyen.api.requests} - upstream latency histogram per operation, outcome and result code</li>
+ *     <li>{@code adyen.api.errors} - failed calls per operation and HTTP status of the {@link ApiException}</li>
+ *     <li>{@code adyen.api.in.flight} - calls currently waiting on Adyen per operation</li>
+ *     <li>{@code adyen.mapping} - time spent building requests and mapping responses per operation and stage</li>
+ * </ul>
+ */
+@Component
+public class AdyenApiMetrics {
+
+    private static final String NONE = "none";
+
+    private final MeterRegistry registry;
+    private final Map<AdyenOperation, AtomicInteger> inFlight = new EnumMap<>(AdyenOperation.class);
+
+    public AdyenApiMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (AdyenOperation operation : AdyenOperation.values()) {
+            AtomicInteger active = new AtomicInteger();
+            inFlight.put(operation, active);
+            Gauge.builder("adyen.api.in.flight", active, AtomicInteger::get)
+                    .description("Adyen API calls in flight")
+                    .tag("operation", operation.key())
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Times an Adyen call without a result code
+     */
+    public <T> T record(AdyenOperation operation, AdyenCall<T> call) throws IOException, ApiException {
+        return record(operation, call, response -> null);
+    }
+
+    /**
+     * Times an Adyen call, tagging successful calls with the result code extracted from the response
+     */
+    public <T> T record(AdyenOperation operation, AdyenCall<T> call, Function<T, ?> resultCode)
+            throws IOException, ApiException {
+        inFlight.get(operation).incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            T response = call.call();
+            complete(operation, start, response, null, resultCode);
+            return response;
+        } catch (IOException | ApiException | RuntimeException e) {
+            complete(operation, start, null, e, resultCode);
+            throw e;
+        }
+    }
+
+    /**
+     * Times an asynchronous Adyen call from the moment it is started until its future completes
+     */
+    public <T> CompletableFuture<T> recordAsync(AdyenOperation operation, Supplier<CompletableFuture<T>> call,
+                                                Function<T, ?> resultCode) {
+        inFlight.get(operation).incrementAndGet();
+        long start = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future.whenComplete((response, error) -> complete(operation, start, response, error, resultCode));
+    }
+
+    private <T> void complete(AdyenOperation operation, long start, T response, Throwable error,
+                              Function<T, ?> resultCode) {
+        inFlight.get(operation).decrementAndGet();
+        String outcome;
+        String result = NONE;
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause == null) {
+            outcome = "success";
+            Object code = response != null ? resultCode.apply(response) : null;
+            result = code != null ? code.toString() : NONE;
+        } else if (cause instanceof ApiException apiException) {
+            outcome = "api_error";
+            result = apiException.getStatusCode() > 0 ? String.valueOf(apiException.getStatusCode()) : NONE;
+            error(operation, result);
+        } else if (cause instanceof IOException) {
+            outcome = "io_error";
+            error(operation, "io");
+        } else {
+            outcome = "error";
+            error(operation, NONE);
+        }
+        Timer.builder("adyen.api.requests")
+                .description("Latency of Adyen API calls")
+                .tag("operation", operation.key())
+                .tag("outcome", outcome)
+                .tag("result", result)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Times our own mapping work around a call, e.g. stage "request" or "response"
+     */
+    public <T> T timeMapping(AdyenOperation operation, String stage, Supplier<T> mapping) {
+        return Timer.builder("adyen.mapping")
+                .description("Time spent mapping Adyen requests and responses")
+                .tag("operation", operation.key())
+                .tag("stage", stage)
+                .register(registry)
+                .record(mapping);
+    }
+
+    private void error(AdyenOperation operation, String status) {
+        Counter.builder("adyen.api.errors")
+                .description("Failed Adyen API calls")
+                .tag("operation", operation.key())
+                .tag("status", status)
+                .register(registry)
+                .increment();
+    }
+}
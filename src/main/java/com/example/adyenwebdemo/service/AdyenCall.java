@@ -0,0 +1,14 @@
+package com.example.adyenwebdemo.service;
+
+import com.adyen.service.exception.ApiException;
+
+import java.io.IOException;
+
+/**
+ * A call into the Adyen API (or anything that may throw its checked exceptions)
+ */
+@FunctionalInterface
+public interface AdyenCall<T> {
+
+    T call() throws IOException, ApiException;
+}
@@ -0,0 +1,164 @@
+package com.example.adyenwebdemo.service;
+
+import com.adyen.service.exception.ApiException;
+import com.example.adyenwebdemo.model.BatchDetailsRequest;
+import com.example.adyenwebdemo.model.BatchDetailsResult;
+import com.example.adyenwebdemo.model.RedirectDetailsRequest;
+import com.example.adyenwebdemo.model.ThreeDSDetailsRequest;
+import com.example.adyenwebdemo.resilience.AdyenUnavailableException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Resolves batches of details submissions and session lookups in parallel through {@link SessionsFlowService}
+ * and {@link AdvancedFlowService}, so each item keeps its idempotency, state store and resilience handling.
+ * <p>
+ * A batch runs at most adyen.batch.concurrency items at a time, on a pool shared by all batches
+ * (adyen.batch.threads), and reports each result as soon as it is available.
+ */
+@Service
+@Slf4j
+public class BatchDetailsService {
+
+    private final SessionsFlowService sessionsFlowService;
+    private final AdvancedFlowService advancedFlowService;
+    private final int maxItems;
+    private final int concurrency;
+    private final ExecutorService executor;
+
+    public BatchDetailsService(
+            SessionsFlowService sessionsFlowService,
+            AdvancedFlowService advancedFlowService,
+            @Value("${adyen.batch.max-items:500}") int maxItems,
+            @Value("${adyen.batch.concurrency:8}") int concurrency,
+            @Value("${adyen.batch.threads:32}") int threads) {
+        this.sessionsFlowService = sessionsFlowService;
+        this.advancedFlowService = advancedFlowService;
+        this.maxItems = maxItems;
+        this.concurrency = concurrency;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "batch-details-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @throws IllegalArgumentException if the batch is empty or larger than adyen.batch.max-items
+     */
+    public void validate(BatchDetailsRequest batch) {
+        List<BatchDetailsRequest.Item> items = batch == null ? null : batch.getItems();
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("Batch has no items");
+        }
+        if (items.size() > maxItems) {
+            throw new IllegalArgumentException("Batch has " + items.size() + " items, at most " + maxItems + " allowed");
+        }
+    }
+
+    /**
+     * Resolves the items of a validated batch, passing each result to the listener in completion order.
+     * The listener returns false once the results can no longer be delivered; items not yet started are skipped.
+     *
+     * @return completes when every started item has been reported
+     */
+    public CompletableFuture<Void> resolve(BatchDetailsRequest batch, Predicate<BatchDetailsResult> listener) {
+        List<BatchDetailsRequest.Item> items = batch.getItems();
+        AtomicInteger next = new AtomicInteger();
+        AtomicBoolean delivering = new AtomicBoolean(true);
+        Object deliveryLock = new Object();
+
+        // Each runner takes the next item when its previous one completes, which bounds the batch's concurrency
+        int runners = Math.min(concurrency, items.size());
+        CompletableFuture<?>[] completions = new CompletableFuture<?>[runners];
+        for (int r = 0; r < runners; r++) {
+            completions[r] = CompletableFuture.runAsync(() -> {
+                int index;
+                while (delivering.get() && (index = next.getAndIncrement()) < items.size()) {
+                    BatchDetailsResult result = resolve(index, items.get(index));
+                    synchronized (deliveryLock) {
+                        if (delivering.get() && !listener.test(result)) {
+                            delivering.set(false);
+                        }
+                    }
+                }
+            }, executor);
+        }
+        return CompletableFuture.allOf(completions);
+    }
+
+    private BatchDetailsResult resolve(int index, BatchDetailsRequest.Item item) {
+        BatchDetailsResult.BatchDetailsResultBuilder result = BatchDetailsResult.builder()
+                .id(item.getId())
+                .index(index);
+        try {
+            return result.status(HttpStatus.OK.value()).result(call(item)).build();
+        } catch (AdyenUnavailableException e) {
+            return result.status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                    .error(e.getMessage())
+                    .retryAfterSeconds(e.getRetryAfterSeconds())
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return result.status(HttpStatus.BAD_REQUEST.value()).error(e.getMessage()).build();
+        } catch (IOException | ApiException e) {
+            log.error("Error resolving batch item {} ({})", index, item.getType(), e);
+            return result.status(HttpStatus.BAD_REQUEST.value()).error(e.getMessage()).build();
+        } catch (RuntimeException e) {
+            log.error("Unexpected error resolving batch item {} ({})", index, item.getType(), e);
+            return result.status(HttpStatus.INTERNAL_SERVER_ERROR.value()).error(e.getMessage()).build();
+        }
+    }
+
+    private Object call(BatchDetailsRequest.Item item) throws IOException, ApiException {
+        if (item.getType() == null) {
+            throw new IllegalArgumentException("Missing item type");
+        }
+        return switch (item.getType()) {
+            case "redirect" -> sessionsFlowService.submitPaymentDetails(RedirectDetailsRequest.builder()
+                    .redirectResult(item.getRedirectResult())
+                    .paymentData(item.getPaymentData())
+                    .merchantReference(item.getMerchantReference())
+                    .build(), item.getIdempotencyKey());
+            case "threeDS" -> sessionsFlowService.submit3DSDetails(ThreeDSDetailsRequest.builder()
+                    .threeDSResult(item.getThreeDSResult())
+                    .paymentData(item.getPaymentData())
+                    .merchantReference(item.getMerchantReference())
+                    .build(), item.getIdempotencyKey());
+            case "sessionResult" -> {
+                if (item.getSessionId() == null || item.getSessionResult() == null) {
+                    throw new IllegalArgumentException("Missing sessionId or sessionResult");
+                }
+                yield sessionsFlowService.getSessionResult(item.getSessionId(), item.getSessionResult());
+            }
+            case "advanced" -> {
+                if (item.getDetails() == null) {
+                    throw new IllegalArgumentException("Missing details");
+                }
+                yield advancedFlowService.submitPaymentDetails(item.getDetails(), item.getIdempotencyKey());
+            }
+            default -> throw new IllegalArgumentException("Unknown item type: " + item.getType());
+        };
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+}
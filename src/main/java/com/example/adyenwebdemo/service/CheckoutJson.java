@@ -0,0 +1,135 @@
+package com.example.adyenwebdemo.service;
+
+import com.adyen.model.checkout.CheckoutOrderResponse;
+import com.adyen.model.checkout.CreateCheckoutSessionRequest;
+import com.adyen.model.checkout.CreateCheckoutSessionResponse;
+import com.adyen.model.checkout.JSON;
+import com.adyen.model.checkout.PaymentDetailsRequest;
+import com.adyen.model.checkout.PaymentDetailsResponse;
+import com.adyen.model.checkout.PaymentMethod;
+import com.adyen.model.checkout.PaymentMethodsRequest;
+import com.adyen.model.checkout.PaymentMethodsResponse;
+import com.adyen.model.checkout.PaymentRequest;
+import com.adyen.model.checkout.PaymentResponse;
+import com.adyen.model.checkout.PaymentResponseAction;
+import com.adyen.model.checkout.SessionResultResponse;
+import com.adyen.model.checkout.StoredPaymentMethod;
+import com.example.adyenwebdemo.model.AdvancedPaymentRequest;
+import com.example.adyenwebdemo.model.AdyenPaymentDetailsResponse;
+import com.example.adyenwebdemo.model.BatchDetailsResult;
+import com.example.adyenwebdemo.model.SessionsFlowResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * The application's JSON serialization, shared by the services and controllers.
+ * <p>
+ * Two mappers are in use: the application's ObjectMapper (Spring's, with the Blackbird module of
+ * {@link com.example.adyenwebdemo.config.JsonConfig}) for bodies exchanged with the browser, which the MVC message
+ * converters write straight to the response stream, and the Adyen library's checkout mapper for bodies exchanged
+ * with Adyen. Blackbird is registered with the latter too, so the blocking {@code PaymentsApi} calls and the
+ * reactive client both (de)serialize the checkout models through generated accessors instead of reflection.
+ * <p>
+ * The Adyen readers and writers are kept per class, and those of the checkout models that cross the wire are built
+ * on startup, so their serializers are resolved (and accessors generated) before the first checkout. The browser
+ * bodies are written by the MVC converters, which look serializers up in the application mapper's shared cache: the
+ * startup only resolves them into that cache.
+ */
+@Component
+@Slf4j
+public class CheckoutJson {
+
+    private static final List<Class<?>> WEB_TYPES = List.of(AdvancedPaymentRequest.class, SessionsFlowResponse.class,
+            AdyenPaymentDetailsResponse.class, BatchDetailsResult.class, PaymentMethod.class, StoredPaymentMethod.class,
+            PaymentResponseAction.class, CheckoutOrderResponse.class);
+
+    private static final List<Class<?>> ADYEN_TYPES = List.of(CreateCheckoutSessionRequest.class,
+            CreateCheckoutSessionResponse.class, SessionResultResponse.class, PaymentMethodsRequest.class,
+            PaymentMethodsResponse.class, PaymentRequest.class, PaymentResponse.class, PaymentDetailsRequest.class,
+            PaymentDetailsResponse.class);
+
+    private final ObjectMapper webMapper;
+    private final ObjectMapper adyenMapper;
+    private final ClassValue<ObjectWriter> adyenWriters;
+    private final ClassValue<ObjectReader> adyenReaders;
+
+    public CheckoutJson(ObjectMapper objectMapper) {
+        this.webMapper = objectMapper;
+        // The mapper behind the checkout models' toJson/fromJson and PaymentsApi, which waits for this bean
+        this.adyenMapper = JSON.getMapper();
+        if (!adyenMapper.getRegisteredModuleIds().contains(BlackbirdModule.class.getName())) {
+            adyenMapper.registerModule(new BlackbirdModule());
+        }
+        this.adyenWriters = new ClassValue<>() {
+            @Override
+            protected ObjectWriter computeValue(Class<?> type) {
+                return adyenMapper.writerFor(type);
+            }
+        };
+        this.adyenReaders = new ClassValue<>() {
+            @Override
+            protected ObjectReader computeValue(Class<?> type) {
+                return adyenMapper.readerFor(type);
+            }
+        };
+
+        long start = System.nanoTime();
+        // A writer for a type resolves its serializer into the mapper's cache, the writer itself is not needed
+        WEB_TYPES.forEach(webMapper::writerFor);
+        ADYEN_TYPES.forEach(type -> {
+            adyenWriters.get(type);
+            adyenReaders.get(type);
+        });
+        log.info("Resolved JSON serializers of {} checkout types in {} ms", WEB_TYPES.size() + ADYEN_TYPES.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * The value as one NDJSON line, newline included
+     */
+    public byte[] toLine(Object value) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(512);
+        webMapper.writeValue(line, value);
+        line.write('\n');
+        return line.toByteArray();
+    }
+
+    /**
+     * Serializes a request body for the Adyen checkout API
+     */
+    public String toAdyenJson(Object request) {
+        try {
+            return adyenWriters.get(request.getClass()).writeValueAsString(request);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not serialize Adyen request", e);
+        }
+    }
+
+    /**
+     * Parses a response body of the Adyen checkout API
+     */
+    public <T> T fromAdyenJson(String body, Class<T> type) {
+        try {
+            return adyenReaders.get(type).readValue(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not parse Adyen response", e);
+        }
+    }
+
+    /**
+     * A checkout model as a tree, serialized like it is sent to (or received from) Adyen
+     */
+    public JsonNode toAdyenTree(Object payload) {
+        return adyenMapper.valueToTree(payload);
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.adyenwebdemo.service;
+
+import com.adyen.Client;
+import com.adyen.enums.Environment;
+import com.adyen.httpclient.ClientInterface;
+import com.adyen.model.checkout.Amount;
+import com.adyen.model.checkout.CreateCheckoutSessionResponse;
+import com.adyen.model.checkout.PaymentDetailsResponse;
+import com.adyen.model.checkout.PaymentMethodsRequest;
+import com.adyen.model.checkout.PaymentMethodsResponse;
+import com.adyen.model.checkout.PaymentResponse;
+import com.adyen.service.checkout.PaymentsApi;
+import com.example.adyenwebdemo.model.AdvancedPaymentRequest;
+import com.example.adyenwebdemo.model.RedirectDetailsRequest;
+import com.example.adyenwebdemo.model.SessionsFlowRequest;
+import com.example.adyenwebdemo.model.ThreeDSDetailsRequest;
+import com.example.adyenwebdemo.stub.AdyenCheckoutStub;
+import com.example.adyenwebdemo.stub.LatencyDistribution;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the request building, Adyen SDK serialization, HTTP transport and response mapping of both flows a few
+ * hundred times against a private checkout stub before the application reports readiness (runners complete before
+ * the readiness state changes to ACCEPTING_TRAFFIC), so the first real checkouts don't pay for class loading and
+ * interpretation.
+ * <p>
+ * Only the static mapping code and the Adyen client are exercised: idempotency, metrics and the payment state store
+ * never see warm-up traffic. With adyen.warmup.exit=true the application exits afterwards, which is how the
+ * class-data-sharing archive of the cds build profile is trained.
+ * <p>
+ * adyen.warmup.enabled is read at startup rather than used as a bean condition: Spring AOT fixes conditions at build
+ * time, so a conditional bean would be missing from the cds build whose training run switches it on.
+ */
+@Component
+@Slf4j
+public class CheckoutWarmup implements ApplicationRunner {
+
+    private static final String MERCHANT_ACCOUNT = "WarmupMerchantAccount";
+    private static final String ADVANCED_PAYMENT_JSON = """
+            {
+              "amount": {"currency": "EUR", "value": 1000},
+              "paymentMethod": {
+                "type": "scheme",
+                "holderName": "Warm Up",
+                "encryptedCardNumber": "adyenjs_0_1_25$warmup",
+                "encryptedExpiryMonth": "adyenjs_0_1_25$warmup",
+                "encryptedExpiryYear": "adyenjs_0_1_25$warmup",
+                "encryptedSecurityCode": "adyenjs_0_1_25$warmup"
+              },
+              "browserInfo": {"acceptHeader": "*/*", "colorDepth": 24, "language": "en-US", "javaEnabled": false,
+                              "screenHeight": 1080, "screenWidth": 1920, "userAgent": "warmup", "timeZoneOffset": 0},
+              "shopperReference": "warmup-shopper",
+              "countryCode": "NL",
+              "enableRecurring": true,
+              "returnUrl": "http://localhost:8080/advanced/result"
+            }
+            """;
+
+    private final ObjectMapper objectMapper;
+    private final ObjectProvider<ClientInterface> httpClient;
+    private final ConfigurableApplicationContext context;
+    private final boolean enabled;
+    private final int iterations;
+    private final boolean exit;
+
+    public CheckoutWarmup(
+            ObjectMapper objectMapper,
+            ObjectProvider<ClientInterface> httpClient,
+            ConfigurableApplicationContext context,
+            @Value("${adyen.warmup.enabled:false}") boolean enabled,
+            @Value("${adyen.warmup.iterations:300}") int iterations,
+            @Value("${adyen.warmup.exit:false}") boolean exit) {
+        this.objectMapper = objectMapper;
+        this.httpClient = httpClient;
+        this.context = context;
+        this.enabled = enabled;
+        this.iterations = iterations;
+        this.exit = exit;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        try (AdyenCheckoutStub stub = new AdyenCheckoutStub(new AdyenCheckoutStub.Settings(0, 2,
+                LatencyDistribution.parse("fixed:0"), Map.of(), 0, 0, 0, 0,
+                List.of("IdentifyShopper", "RedirectShopper", "Authorised", "Refused"), List.of("Authorised"), 42))) {
+            stub.start();
+            Client client = new Client("warmup", Environment.TEST);
+            httpClient.ifAvailable(client::setHttpClient);
+            PaymentsApi paymentsApi = new PaymentsApi(client, "http://localhost:" + stub.getPort() + "/v71");
+
+            for (int i = 0; i < iterations; i++) {
+                sessionsFlow(paymentsApi, i);
+                advancedFlow(paymentsApi, i);
+            }
+        } catch (Exception e) {
+            // A failed warm-up only means a slower start, never a failed one
+            log.warn("Checkout warm-up failed", e);
+        }
+        log.info("Checkout warm-up: {} iterations in {} ms", iterations, (System.nanoTime() - start) / 1_000_000);
+
+        if (exit) {
+            System.exit(SpringApplication.exit(context));
+        }
+    }
+
+    private void sessionsFlow(PaymentsApi paymentsApi, int iteration) throws Exception {
+        SessionsFlowRequest request = new SessionsFlowRequest();
+        request.setAmount(10);
+        request.setCurrency("EUR");
+        request.setCountryCode("NL");
+        request.setReturnUrl("http://localhost:8080/success");
+        request.setShopperReference("warmup-shopper");
+        request.setEnableRecurring(iteration % 2 == 0);
+        CreateCheckoutSessionResponse session = paymentsApi.sessions(SessionsFlowService.buildSessionRequest(request,
+                MERCHANT_ACCOUNT, "WARMUP-" + iteration));
+
+        objectMapper.writeValueAsBytes(SessionsFlowService.toSessionResult(
+                paymentsApi.getResultOfPaymentSession(session.getId(), "warmup-" + iteration, null)));
+        objectMapper.writeValueAsBytes(SessionsFlowService.toDetailsResponse(paymentsApi.paymentsDetails(
+                SessionsFlowService.build3DSDetailsRequest(ThreeDSDetailsRequest.builder()
+                        .threeDSResult("warmup-" + iteration)
+                        .build()))));
+        objectMapper.writeValueAsBytes(SessionsFlowService.toDetailsResponse(paymentsApi.paymentsDetails(
+                SessionsFlowService.buildDetailsRequest(RedirectDetailsRequest.builder()
+                        .redirectResult("warmup-" + iteration)
+                        .build()))));
+    }
+
+    private void advancedFlow(PaymentsApi paymentsApi, int iteration) throws Exception {
+        PaymentMethodsResponse paymentMethods = paymentsApi.paymentMethods(new PaymentMethodsRequest()
+                .merchantAccount(MERCHANT_ACCOUNT)
+                .amount(new Amount().currency("EUR").value(1000L))
+                .countryCode("NL")
+                .shopperReference("warmup-shopper"));
+        objectMapper.writeValueAsBytes(AdvancedFlowService.toPaymentMethodsResult(paymentMethods.getPaymentMethods(),
+                paymentMethods.getStoredPaymentMethods()));
+
+        AdvancedPaymentRequest paymentData = objectMapper.readValue(ADVANCED_PAYMENT_JSON, AdvancedPaymentRequest.class);
+        PaymentResponse payment = paymentsApi.payments(AdvancedFlowService.buildPaymentRequest(paymentData,
+                MERCHANT_ACCOUNT, "WARMUP-" + iteration));
+        objectMapper.writeValueAsBytes(AdvancedFlowService.toPaymentResult(payment));
+
+        PaymentDetailsResponse details = paymentsApi.paymentsDetails(SessionsFlowService.buildDetailsRequest(
+                RedirectDetailsRequest.builder().redirectResult("warmup-" + iteration).build()));
+        objectMapper.writeValueAsBytes(AdvancedFlowService.toDetailsResult(details));
+    }
+}
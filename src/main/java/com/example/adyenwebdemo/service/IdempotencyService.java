@@ -0,0 +1,129 @@
+package com.example.adyenwebdemo.service;
+
+import com.adyen.model.RequestOptions;
+import com.adyen.service.exception.ApiException;
+import com.example.adyenwebdemo.model.AdyenOperation;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Idempotent execution of state-changing Adyen calls.
+ * <p>
+ * Each call is keyed on a fingerprint of the operation and either the client-supplied Idempotency-Key or fields
+ * unique to the attempt, such as the merchant reference. Only resends carrying the same client key are deduplicated:
+ * identical carts are separate payments. A concurrent duplicate waits for the in-flight call instead of issuing a
+ * second one, and a completed result is replayed until it expires. The same key is sent to Adyen as its
+ * Idempotency-Key. Failed calls are not remembered, so the client can retry them.
+ */
+@Component
+@Slf4j
+public class IdempotencyService {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    private final Map<AdyenOperation, AsyncCache<String, Object>> results = new EnumMap<>(AdyenOperation.class);
+
+    public IdempotencyService(
+            Environment environment,
+            @Value("${adyen.idempotency.ttl-seconds:600}") long defaultTtlSeconds,
+            @Value("${adyen.idempotency.max-size:100000}") long maxSize) {
+        for (AdyenOperation operation : AdyenOperation.values()) {
+            long ttlSeconds = environment.getProperty("adyen.idempotency.ttl-seconds." + operation.key(),
+                    Long.class, defaultTtlSeconds);
+            results.put(operation, Caffeine.newBuilder()
+                    .maximumSize(maxSize)
+                    .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                    .buildAsync());
+        }
+    }
+
+    /**
+     * Derives the idempotency key of a call: the client-supplied key if present, otherwise the given fields, which
+     * must be unique to this attempt (never the cart contents). Either way the key is scoped to the operation.
+     */
+    public String key(AdyenOperation operation, String clientKey, Object... fields) {
+        MessageDigest digest = sha256();
+        update(digest, operation.key());
+        if (clientKey != null && !clientKey.isBlank()) {
+            update(digest, "client");
+            update(digest, clientKey);
+        } else {
+            for (Object field : fields) {
+                update(digest, field != null ? field.toString() : null);
+            }
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest());
+    }
+
+    /**
+     * Request options carrying the key to Adyen
+     */
+    public RequestOptions requestOptions(String key) {
+        RequestOptions requestOptions = new RequestOptions();
+        requestOptions.idempotencyKey(key);
+        return requestOptions;
+    }
+
+    /**
+     * Runs the call once per key; duplicates get the in-flight or remembered result
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(AdyenOperation operation, String key, AdyenCall<T> call) throws IOException, ApiException {
+        AsyncCache<String, Object> cache = results.get(operation);
+        if (cache.getIfPresent(key) != null) {
+            log.info("Duplicate {} request, reusing result for idempotency key {}", operation.key(), key);
+        }
+        return (T) SingleFlight.execute(cache.asMap(), key, call::call);
+    }
+
+    /**
+     * Asynchronous variant of {@link #execute(AdyenOperation, String, AdyenCall)}
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> executeAsync(AdyenOperation operation, String key,
+                                                 Supplier<CompletableFuture<T>> call) {
+        AsyncCache<String, Object> cache = results.get(operation);
+        if (cache.getIfPresent(key) != null) {
+            log.info("Duplicate {} request, reusing result for idempotency key {}", operation.key(), key);
+        }
+        return SingleFlight.executeAsync(cache.asMap(), key, () -> (CompletableFuture<Object>) call.get())
+                .thenApply(result -> (T) result);
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        if (value == null) {
+            digest.update((byte) 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        digest.update((byte) 1);
+        digest.update((byte) (bytes.length >>> 24));
+        digest.update((byte) (bytes.length >>> 16));
+        digest.update((byte) (bytes.length >>> 8));
+        digest.update((byte) bytes.length);
+        digest.update(bytes);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.adyenwebdemo.service;
+
+import com.example.adyenwebdemo.model.AdyenOperation;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sampled, asynchronous logging of full Adyen request/response payloads.
+ * <p>
+ * The request thread decides whether a payload is sampled and, only if it is, takes a snapshot of it as it goes
+ * over the wire (see {@link CheckoutJson#toAdyenTree}): the model objects stay in use by the request after it moves
+ * on. A background thread redacts sensitive fields of the snapshot and writes it to the
+ * {@code com.example.adyenwebdemo.payload} logger. Payloads are dropped rather than blocking when the buffer is full.
+ * Sampling rates are per {@link AdyenOperation} and can be changed at runtime.
+ */
+@Component
+@Slf4j
+public class PayloadLogger {
+
+    private static final Logger payloadLog = LoggerFactory.getLogger("com.example.adyenwebdemo.payload");
+    private static final String REDACTED = "[REDACTED]";
+
+    private final CheckoutJson checkoutJson;
+    private final Map<AdyenOperation, Double> sampleRates = new ConcurrentHashMap<>();
+    private final Set<String> redactedFields;
+    private final BlockingQueue<Entry> buffer;
+
+    private final AtomicLong sampled = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private Thread writer;
+    private volatile boolean running = true;
+
+    public PayloadLogger(
+            CheckoutJson checkoutJson,
+            Environment environment,
+            @Value("${adyen.payload-logging.sample-rate:0.0}") double defaultSampleRate,
+            @Value("${adyen.payload-logging.buffer-size:1024}") int bufferSize,
+            @Value("${adyen.payload-logging.redacted-fields:paymentData,threeDSResult,redirectResult,browserInfo}")
+            Set<String> redactedFields) {
+        for (AdyenOperation operation : AdyenOperation.values()) {
+            double rate = environment.getProperty("adyen.payload-logging.sample-rate." + operation.key(),
+                    Double.class, defaultSampleRate);
+            setSampleRate(operation, rate);
+        }
+        this.checkoutJson = checkoutJson;
+        this.redactedFields = Set.copyOf(redactedFields);
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+    }
+
+    @PostConstruct
+    void start() {
+        writer = new Thread(this::writeLoop, "payload-logger");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Logs the request payload of an operation if it is sampled
+     */
+    public void logRequest(AdyenOperation operation, Object payload) {
+        submit(operation, "Request", payload);
+    }
+
+    /**
+     * Logs the response payload of an operation if it is sampled
+     */
+    public void logResponse(AdyenOperation operation, Object payload) {
+        submit(operation, "Response", payload);
+    }
+
+    private void submit(AdyenOperation operation, String direction, Object payload) {
+        if (payload == null || !payloadLog.isInfoEnabled()) {
+            return;
+        }
+        double rate = sampleRates.get(operation);
+        if (rate <= 0.0 || (rate < 1.0 && ThreadLocalRandom.current().nextDouble() >= rate)) {
+            return;
+        }
+        sampled.incrementAndGet();
+        if (buffer.remainingCapacity() == 0) {
+            dropped.incrementAndGet();
+            return;
+        }
+        JsonNode snapshot;
+        try {
+            snapshot = checkoutJson.toAdyenTree(payload);
+        } catch (RuntimeException e) {
+            log.warn("Could not serialize {} {} payload to JSON", operation.key(), direction, e);
+            return;
+        }
+        if (!buffer.offer(new Entry(operation, direction, snapshot))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void writeLoop() {
+        while (running || !buffer.isEmpty()) {
+            try {
+                Entry entry = buffer.poll(200, TimeUnit.MILLISECONDS);
+                if (entry != null) {
+                    write(entry);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void write(Entry entry) {
+        redact(entry.payload());
+        payloadLog.info("{} {} JSON: {}", entry.operation().key(), entry.direction(), entry.payload());
+        written.incrementAndGet();
+    }
+
+    private void redact(JsonNode node) {
+        if (node instanceof ObjectNode objectNode) {
+            Iterator<Map.Entry<String, JsonNode>> fields = objectNode.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                if (redactedFields.contains(field.getKey())) {
+                    field.setValue(objectNode.textNode(REDACTED));
+                } else {
+                    redact(field.getValue());
+                }
+            }
+        } else if (node instanceof ArrayNode arrayNode) {
+            arrayNode.forEach(this::redact);
+        }
+    }
+
+    public void setSampleRate(AdyenOperation operation, double rate) {
+        if (rate < 0.0 || rate > 1.0) {
+            throw new IllegalArgumentException("Sample rate must be between 0.0 and 1.0: " + rate);
+        }
+        sampleRates.put(operation, rate);
+        log.info("Payload logging sample rate for {} set to {}", operation.key(), rate);
+    }
+
+    public Map<AdyenOperation, Double> getSampleRates() {
+        return new EnumMap<>(sampleRates);
+    }
+
+    public Stats stats() {
+        return new Stats(sampled.get(), written.get(), dropped.get(), buffer.size());
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private record Entry(AdyenOperation operation, String direction, JsonNode payload) {
+    }
+
+    public record Stats(long sampled, long written, long dropped, int buffered) {
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.adyenwebdemo.service;
+
+import com.adyen.model.checkout.CreateCheckoutSessionRequest;
+import com.adyen.model.checkout.PaymentMethod;
+import com.adyen.model.checkout.StoredPaymentMethod;
+import com.adyen.service.exception.ApiException;
+import com.example.adyenwebdemo.model.PaymentOutcome;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * In-process cache in front of the /paymentMethods call.
+ * Generic payment methods are keyed on (merchantAccount, countryCode, currency, amount bucket, shopperLocale),
+ * stored payment methods are cached separately per shopperReference so they can be invalidated on their own.
+ * The stored payment methods of a shopper are updated from webhooks (see StoredPaymentMethodNotificationHandler);
+ * their TTL is chosen by PaymentMethodsCacheConfig. A payment method disabled outside this application sends no
+ * notification it handles, so it stays in the cached list until the TTL expires.
+ */
+@Slf4j
+public class PaymentMethodsCache {
+
+    /**
+     * Adyen's default session lifetime; a session not completed by then stores nothing
+     */
+    private static final Duration SESSION_LIFETIME = Duration.ofHours(1);
+
+    private final AsyncCache<PaymentMethodsKey, List<PaymentMethod>> paymentMethods;
+    private final AsyncCache<StoredPaymentMethodsKey, List<StoredPaymentMethod>> storedPaymentMethods;
+    private final Cache<String, StoredPaymentMethodsKey> storingSessions;
+    private final long amountBucket;
+
+    /**
+     * @param storedTtlSeconds how long the stored payment methods of a shopper are cached
+     */
+    public PaymentMethodsCache(long ttlSeconds, long maxSize, long amountBucket, long storedTtlSeconds,
+                               long storedMaxSize) {
+        this.paymentMethods = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .buildAsync();
+        this.storedPaymentMethods = Caffeine.newBuilder()
+                .maximumSize(storedMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(storedTtlSeconds))
+                .buildAsync();
+        this.storingSessions = Caffeine.newBuilder()
+                .maximumSize(storedMaxSize)
+                .expireAfterWrite(SESSION_LIFETIME)
+                .build();
+        this.amountBucket = Math.max(1, amountBucket);
+    }
+
+    /**
+     * Builds the cache key for a request, bucketing the amount (in minor units)
+     */
+    public PaymentMethodsKey key(String merchantAccount, String countryCode, String currency,
+                                 long amountMinorUnits, String shopperLocale) {
+        return new PaymentMethodsKey(merchantAccount, countryCode, currency, amountMinorUnits / amountBucket, shopperLocale);
+    }
+
+    /**
+     * Returns the cached generic payment methods, loading them once for concurrent callers on a miss
+     */
+    public List<PaymentMethod> getPaymentMethods(PaymentMethodsKey key, AdyenCall<List<PaymentMethod>> loader)
+            throws IOException, ApiException {
+        return getOrLoad(paymentMethods, key, loader);
+    }
+
+    public void putPaymentMethods(PaymentMethodsKey key, List<PaymentMethod> methods) {
+        paymentMethods.put(key, CompletableFuture.completedFuture(methods != null ? methods : List.of()));
+    }
+
+    /**
+     * Returns the cached stored payment methods of a shopper, loading them once for concurrent callers on a miss
+     */
+    public List<StoredPaymentMethod> getStoredPaymentMethods(String merchantAccount, String shopperReference,
+                                                             AdyenCall<List<StoredPaymentMethod>> loader)
+            throws IOException, ApiException {
+        return getOrLoad(storedPaymentMethods, new StoredPaymentMethodsKey(merchantAccount, shopperReference), loader);
+    }
+
+    /**
+     * Drops the stored payment methods of a shopper, e.g. after a payment method was stored or disabled
+     */
+    public void invalidateStoredPaymentMethods(String merchantAccount, String shopperReference) {
+        log.info("Invalidating cached stored payment methods for shopper: {}", shopperReference);
+        storedPaymentMethods.synchronous().invalidate(new StoredPaymentMethodsKey(merchantAccount, shopperReference));
+    }
+
+    /**
+     * Remembers a session in which the shopper may store a payment method. Their cached stored payment methods
+     * stay valid until the session's payment goes through: nothing is stored before, and a list reloaded during
+     * the session would not have the new one either.
+     */
+    public void expectStoredPaymentMethod(String sessionId, CreateCheckoutSessionRequest sessionRequest) {
+        if (sessionRequest.getStorePaymentMethodMode() == CreateCheckoutSessionRequest.StorePaymentMethodModeEnum.ENABLED
+                && sessionRequest.getShopperReference() != null) {
+            storingSessions.put(sessionId, new StoredPaymentMethodsKey(sessionRequest.getMerchantAccount(),
+                    sessionRequest.getShopperReference()));
+        }
+    }
+
+    /**
+     * Drops the stored payment methods of the shopper once the payment of a session that may store one succeeded
+     */
+    public void sessionCompleted(String sessionId, PaymentOutcome outcome) {
+        if (outcome != PaymentOutcome.SUCCESS) {
+            return;
+        }
+        StoredPaymentMethodsKey key = storingSessions.asMap().remove(sessionId);
+        if (key != null) {
+            invalidateStoredPaymentMethods(key.merchantAccount(), key.shopperReference());
+        }
+    }
+
+    /**
+     * Adds or replaces a stored payment method of a shopper whose stored payment methods are cached.
+     * Shoppers not in the cache are left alone: their full list is loaded on their next checkout.
+     */
+    public void putStoredPaymentMethod(String merchantAccount, String shopperReference, StoredPaymentMethod method) {
+        storedPaymentMethods.synchronous().asMap().computeIfPresent(
+                new StoredPaymentMethodsKey(merchantAccount, shopperReference), (key, methods) -> {
+                    List<StoredPaymentMethod> updated = new ArrayList<>(methods.size() + 1);
+                    for (StoredPaymentMethod existing : methods) {
+                        if (!Objects.equals(existing.getId(), method.getId())) {
+                            updated.add(existing);
+                        }
+                    }
+                    updated.add(method);
+                    log.info("Stored payment method {} added for shopper: {}", method.getId(), shopperReference);
+                    return List.copyOf(updated);
+                });
+    }
+
+    private static <K, V> List<V> getOrLoad(AsyncCache<K, List<V>> cache, K key, AdyenCall<List<V>> loader)
+            throws IOException, ApiException {
+        return SingleFlight.execute(cache.asMap(), key, () -> {
+            List<V> loaded = loader.call();
+            return loaded != null ? loaded : List.of();
+        });
+    }
+
+    public record PaymentMethodsKey(String merchantAccount, String countryCode, String currency,
+                                    long amountBucket, String shopperLocale) {
+    }
+
+    record StoredPaymentMethodsKey(String merchantAccount, String shopperReference) {
+    }
+}
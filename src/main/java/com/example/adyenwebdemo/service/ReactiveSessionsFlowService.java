@@ -0,0 +1,182 @@
+package com.example.adyenwebdemo.service;
+
+import com.adyen.model.checkout.CreateCheckoutSessionRequest;
+import com.adyen.model.checkout.CreateCheckoutSessionResponse;
+import com.adyen.model.checkout.PaymentDetailsRequest;
+import com.adyen.model.checkout.PaymentDetailsResponse;
+import com.adyen.model.checkout.SessionResultResponse;
+import com.example.adyenwebdemo.http.AdyenCheckoutWebClient;
+import com.example.adyenwebdemo.model.AdyenOperation;
+import com.example.adyenwebdemo.model.AdyenPaymentDetailsResponse;
+import com.example.adyenwebdemo.model.RedirectDetailsRequest;
+import com.example.adyenwebdemo.model.SessionsFlowRequest;
+import com.example.adyenwebdemo.model.SessionsFlowResponse;
+import com.example.adyenwebdemo.model.ThreeDSDetailsRequest;
+import com.example.adyenwebdemo.routing.MerchantRoute;
+import com.example.adyenwebdemo.routing.MerchantRouter;
+import com.example.adyenwebdemo.state.PaymentEvent;
+import com.example.adyenwebdemo.state.PaymentEventType;
+import com.example.adyenwebdemo.state.PaymentState;
+import com.example.adyenwebdemo.state.PaymentStateStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Non-blocking variant of {@link SessionsFlowService}.
+ * <p>
+ * Requests are built and mapped with the same helpers and go through the same idempotency, resilience,
+ * metrics and payment state layers, but the Adyen calls run on {@link AdyenCheckoutWebClient}, so no thread
+ * waits for Adyen while a checkout is in progress. Responses arrive on Netty event-loop threads; they are handed
+ * to the bounded elastic scheduler before the payment state store, which may fsync, records them.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReactiveSessionsFlowService {
+
+    private final AdyenCheckoutWebClient checkoutClient;
+    private final MerchantRouter merchantRouter;
+    private final PaymentMethodsCache paymentMethodsCache;
+    private final PayloadLogger payloadLogger;
+    private final IdempotencyService idempotencyService;
+    private final AdyenApiMetrics apiMetrics;
+    private final AdyenApiExecutor apiExecutor;
+    private final PaymentStateStore paymentStateStore;
+    private final ReferenceGenerator referenceGenerator;
+    private final CheckoutJson checkoutJson;
+    private final SessionPrewarmPool sessionPrewarmPool;
+
+    /**
+     * Creates a checkout session, served from {@link SessionPrewarmPool} when it has one for the cart
+     */
+    public Mono<SessionsFlowResponse> createPaymentSession(SessionsFlowRequest paymentRequest, String idempotencyKey) {
+        MerchantRoute route = merchantRouter.route(paymentRequest.getCountryCode(), paymentRequest.getCurrency(),
+                paymentRequest.getBrand());
+        CreateCheckoutSessionRequest sessionRequest = apiMetrics.timeMapping(AdyenOperation.SESSIONS, "request",
+                () -> SessionsFlowService.buildSessionRequest(paymentRequest, route.getMerchantAccount(),
+                        referenceGenerator.next()));
+
+        String key = idempotencyService.key(AdyenOperation.SESSIONS, idempotencyKey, sessionRequest.getReference());
+        return Mono.fromFuture(() -> idempotencyService.executeAsync(AdyenOperation.SESSIONS, key, () -> {
+                    CreateCheckoutSessionResponse pooled = sessionPrewarmPool.take(paymentRequest, route);
+                    if (pooled != null) {
+                        log.info("Serving pre-warmed session {} with reference {}", pooled.getId(),
+                                pooled.getReference());
+                        return CompletableFuture.completedFuture(pooled);
+                    }
+                    log.info("Creating session (reactive): {} {}", sessionRequest.getAmount().getValue(),
+                            sessionRequest.getAmount().getCurrency());
+                    payloadLogger.logRequest(AdyenOperation.SESSIONS, sessionRequest);
+                    String body = checkoutJson.toAdyenJson(sessionRequest);
+                    return call(route, AdyenOperation.SESSIONS,
+                            checkoutClient.post(AdyenOperation.SESSIONS, route.getCheckoutConnection(), "/sessions",
+                                            body, key)
+                                    .map(json -> checkoutJson.fromAdyenJson(json, CreateCheckoutSessionResponse.class)),
+                            response -> null);
+                }))
+                .publishOn(Schedulers.boundedElastic())
+                .map(response -> {
+                    log.info("Session created (reactive): {}", response.getId());
+                    payloadLogger.logResponse(AdyenOperation.SESSIONS, response);
+                    merchantRouter.rememberSession(response.getId(), route);
+                    merchantRouter.rememberPayment(response.getReference(), route);
+                    paymentMethodsCache.expectStoredPaymentMethod(response.getId(), sessionRequest);
+                    paymentStateStore.record(PaymentEvent.of(PaymentEventType.SESSION_CREATED,
+                            response.getReference(), null, null, null));
+                    return SessionsFlowResponse.builder()
+                            .sessionId(response.getId())
+                            .sessionData(response.getSessionData())
+                            .clientKey(route.getClientKey())
+                            .reference(response.getReference())
+                            .build();
+                });
+    }
+
+    public Mono<AdyenPaymentDetailsResponse> getSessionResult(String sessionId, String sessionResult) {
+        log.info("Getting session result (reactive) for session: {}", sessionId);
+        MerchantRoute route = merchantRouter.forSession(sessionId);
+        return Mono.fromFuture(() -> call(route, AdyenOperation.SESSION_RESULT,
+                        checkoutClient.get(AdyenOperation.SESSION_RESULT, route.getCheckoutConnection(),
+                                        "/sessions/{sessionId}?sessionResult={sessionResult}", sessionId, sessionResult)
+                                .map(body -> checkoutJson.fromAdyenJson(body, SessionResultResponse.class)),
+                        SessionResultResponse::getStatus))
+                .publishOn(Schedulers.boundedElastic())
+                .map(response -> {
+                    payloadLogger.logResponse(AdyenOperation.SESSION_RESULT, response);
+                    AdyenPaymentDetailsResponse result = SessionsFlowService.toSessionResult(response);
+                    paymentMethodsCache.sessionCompleted(sessionId, result.getOutcome());
+                    paymentStateStore.recordResponse(result.getMerchantReference(), result.getPspReference(),
+                            result.getResultCode(), result.getOutcome(), null);
+                    return result;
+                });
+    }
+
+    public Mono<AdyenPaymentDetailsResponse> submitPaymentDetails(RedirectDetailsRequest detailsRequest,
+                                                                  String idempotencyKey) {
+        // Reloading a result page re-submits the same redirectResult; answer from the payment state instead
+        Optional<PaymentState> known = paymentStateStore.findByRedirectResult(detailsRequest.getRedirectResult());
+        if (known.isPresent() && known.get().isFinal()) {
+            return Mono.just(SessionsFlowService.fromState(known.get()));
+        }
+
+        String key = idempotencyService.key(AdyenOperation.PAYMENTS_DETAILS, idempotencyKey,
+                detailsRequest.getRedirectResult(), detailsRequest.getPaymentData());
+        String redirectKey = PaymentStateStore.redirectKey(detailsRequest.getRedirectResult());
+        return submitDetails(SessionsFlowService.buildDetailsRequest(detailsRequest), key, redirectKey,
+                detailsRequest.getMerchantReference(),
+                merchantRouter.forPayment(detailsRequest.getMerchantReference()));
+    }
+
+    public Mono<AdyenPaymentDetailsResponse> submit3DSDetails(ThreeDSDetailsRequest detailsRequest,
+                                                              String idempotencyKey) {
+        String key = idempotencyService.key(AdyenOperation.PAYMENTS_DETAILS, idempotencyKey,
+                detailsRequest.getThreeDSResult(), detailsRequest.getPaymentData());
+        return submitDetails(SessionsFlowService.build3DSDetailsRequest(detailsRequest), key, null,
+                detailsRequest.getMerchantReference(),
+                merchantRouter.forPayment(detailsRequest.getMerchantReference()));
+    }
+
+    /**
+     * @param route the route the payment was made on, found by its merchant reference
+     */
+    private Mono<AdyenPaymentDetailsResponse> submitDetails(PaymentDetailsRequest adyenDetailsRequest, String key,
+                                                            String redirectKey, String merchantReference,
+                                                            MerchantRoute route) {
+        payloadLogger.logRequest(AdyenOperation.PAYMENTS_DETAILS, adyenDetailsRequest);
+        return Mono.fromFuture(() -> idempotencyService.executeAsync(AdyenOperation.PAYMENTS_DETAILS, key, () -> {
+                    if (redirectKey != null) {
+                        paymentStateStore.record(PaymentEvent.of(PaymentEventType.DETAILS_SUBMITTED,
+                                merchantReference, null, null, redirectKey));
+                    }
+                    return call(route, AdyenOperation.PAYMENTS_DETAILS,
+                            checkoutClient.post(AdyenOperation.PAYMENTS_DETAILS, route.getCheckoutConnection(),
+                                            "/payments/details", checkoutJson.toAdyenJson(adyenDetailsRequest), key)
+                                    .map(body -> checkoutJson.fromAdyenJson(body, PaymentDetailsResponse.class)),
+                            PaymentDetailsResponse::getResultCode);
+                }))
+                .publishOn(Schedulers.boundedElastic())
+                .map(response -> {
+                    payloadLogger.logResponse(AdyenOperation.PAYMENTS_DETAILS, response);
+                    AdyenPaymentDetailsResponse result = apiMetrics.timeMapping(AdyenOperation.PAYMENTS_DETAILS,
+                            "response", () -> SessionsFlowService.toDetailsResponse(response));
+                    paymentStateStore.recordResponse(result.getMerchantReference(), result.getPspReference(),
+                            result.getResultCode(), result.getOutcome(), redirectKey);
+                    return result;
+                });
+    }
+
+    /**
+     * Subscribes to the call through the resilience and metrics layers; the request is only sent when permitted
+     */
+    private <T> CompletableFuture<T> call(MerchantRoute route, AdyenOperation operation, Mono<T> call,
+                                          Function<T, ?> resultCode) {
+        return apiExecutor.executeAsync(route, operation, call::toFuture, resultCode);
+    }
+}
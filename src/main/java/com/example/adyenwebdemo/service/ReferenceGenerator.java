@@ -0,0 +1,11 @@
+package com.example.adyenwebdemo.service;
+
+/**
+ * Generates the merchant references of new sessions and payments, selected with adyen.reference.generator
+ */
+public interface ReferenceGenerator {
+
+    String PREFIX = "ORDER-";
+
+    String next();
+}
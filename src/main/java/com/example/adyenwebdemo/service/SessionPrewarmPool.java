@@ -0,0 +1,231 @@
+package com.example.adyenwebdemo.service;
+
+import com.adyen.model.checkout.CreateCheckoutSessionRequest;
+import com.adyen.model.checkout.CreateCheckoutSessionResponse;
+import com.adyen.service.exception.ApiException;
+import com.example.adyenwebdemo.model.AdyenOperation;
+import com.example.adyenwebdemo.model.SessionsFlowRequest;
+import com.example.adyenwebdemo.resilience.AdyenUnavailableException;
+import com.example.adyenwebdemo.routing.MerchantRoute;
+import com.example.adyenwebdemo.routing.MerchantRouter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Creates checkout sessions ahead of time for common carts, so /api/sessions can hand one out without calling
+ * Adyen on the shopper's critical path.
+ * <p>
+ * Carts are configured as amount:currency:countryCode (amount in major units, as in {@link SessionsFlowRequest}).
+ * Each has up to adyen.sessions.prewarm.per-key sessions, topped up every refill interval. Sessions are handed out
+ * only while younger than adyen.sessions.prewarm.max-age-seconds, well within Adyen's session lifetime;
+ * older ones are dropped and left to expire unused.
+ * <p>
+ * A session's shopperReference is fixed when Adyen creates it and pooled sessions have none, so only guest
+ * checkouts (non-recurring, without a shopperReference) with the pool's return URL are served; a session handed to
+ * a request with a shopperReference would lose the shopper. Both the blocking and the reactive /api/sessions
+ * take from the pool.
+ * Sessions are created on the {@link MerchantRoute} of their cart's country and currency and only handed out to
+ * requests routed to the same merchant account.
+ */
+@Component
+@Slf4j
+public class SessionPrewarmPool {
+
+    private final MerchantRouter merchantRouter;
+    private final AdyenApiExecutor apiExecutor;
+    private final PayloadLogger payloadLogger;
+    private final ReferenceGenerator referenceGenerator;
+    private final boolean enabled;
+    private final List<PoolKey> keys;
+    private final int perKey;
+    private final Duration maxAge;
+    private final long refillIntervalSeconds;
+    private final String returnUrl;
+
+    private final Map<PoolKey, Deque<PooledSession>> pool = new ConcurrentHashMap<>();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+
+    private ScheduledExecutorService refiller;
+
+    public SessionPrewarmPool(
+            MerchantRouter merchantRouter,
+            AdyenApiExecutor apiExecutor,
+            PayloadLogger payloadLogger,
+            ReferenceGenerator referenceGenerator,
+            @Value("${adyen.sessions.prewarm.enabled:false}") boolean enabled,
+            @Value("${adyen.sessions.prewarm.keys:}") List<String> keys,
+            @Value("${adyen.sessions.prewarm.per-key:5}") int perKey,
+            @Value("${adyen.sessions.prewarm.max-age-seconds:900}") long maxAgeSeconds,
+            @Value("${adyen.sessions.prewarm.refill-interval-seconds:5}") long refillIntervalSeconds,
+            @Value("${adyen.sessions.prewarm.return-url:${app.base.url:http://localhost:8080}/success}") String returnUrl) {
+        this.merchantRouter = merchantRouter;
+        this.apiExecutor = apiExecutor;
+        this.payloadLogger = payloadLogger;
+        this.referenceGenerator = referenceGenerator;
+        this.enabled = enabled;
+        this.keys = keys.stream().map(String::trim).filter(key -> !key.isEmpty()).map(PoolKey::parse).toList();
+        this.perKey = perKey;
+        this.maxAge = Duration.ofSeconds(maxAgeSeconds);
+        this.refillIntervalSeconds = refillIntervalSeconds;
+        this.returnUrl = returnUrl;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled || keys.isEmpty()) {
+            return;
+        }
+        for (PoolKey key : keys) {
+            pool.put(key, new ConcurrentLinkedDeque<>());
+        }
+        refiller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-prewarm");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refiller.scheduleWithFixedDelay(this::refill, 0, refillIntervalSeconds, TimeUnit.SECONDS);
+        log.info("Session pre-warming started for {} carts, {} sessions each", keys.size(), perKey);
+    }
+
+    /**
+     * Hands out a pooled session matching the request and its route, or null if the request is not pooled or none
+     * is left
+     */
+    public CreateCheckoutSessionResponse take(SessionsFlowRequest request, MerchantRoute route) {
+        if (refiller == null || request.isEnableRecurring() || StringUtils.hasText(request.getShopperReference())
+                || !Objects.equals(returnUrl, request.getReturnUrl()) || request.getAmount() == null) {
+            return null;
+        }
+        Deque<PooledSession> sessions = pool.get(new PoolKey(request.getAmount(), request.getCurrency(),
+                request.getCountryCode()));
+        // The pool's sessions are those of the cart's route; a brand may route the request elsewhere
+        if (sessions == null || !route.getMerchantAccount().equals(merchantRouter.route(request.getCountryCode(),
+                request.getCurrency(), null).getMerchantAccount())) {
+            return null;
+        }
+        Instant now = Instant.now();
+        PooledSession session;
+        while ((session = sessions.pollFirst()) != null) {
+            if (!session.merchantAccount().equals(route.getMerchantAccount())) {
+                // Created before the routes were reloaded moved the cart to another account; leave it to expire
+                expired.incrementAndGet();
+                continue;
+            }
+            if (session.usableUntil().isAfter(now)) {
+                hits.incrementAndGet();
+                return session.response();
+            }
+            expired.incrementAndGet();
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Drops stale sessions and tops every cart up to its target size
+     */
+    private void refill() {
+        Instant now = Instant.now();
+        for (Map.Entry<PoolKey, Deque<PooledSession>> entry : pool.entrySet()) {
+            Deque<PooledSession> sessions = entry.getValue();
+            // Sessions are created in order, so the stale ones are at the head
+            PooledSession oldest;
+            while ((oldest = sessions.peekFirst()) != null && !oldest.usableUntil().isAfter(now)) {
+                if (sessions.remove(oldest)) {
+                    expired.incrementAndGet();
+                }
+            }
+            try {
+                while (sessions.size() < perKey) {
+                    sessions.addLast(create(entry.getKey()));
+                }
+            } catch (AdyenUnavailableException e) {
+                // Leave Adyen's capacity to shoppers and try again next round
+                log.warn("Session pre-warming paused: {}", e.getMessage());
+                return;
+            } catch (IOException | ApiException | RuntimeException e) {
+                log.error("Error pre-warming sessions for {}", entry.getKey(), e);
+            }
+        }
+    }
+
+    private PooledSession create(PoolKey key) throws IOException, ApiException {
+        SessionsFlowRequest request = new SessionsFlowRequest();
+        request.setAmount(key.amount());
+        request.setCurrency(key.currency());
+        request.setCountryCode(key.countryCode());
+        request.setReturnUrl(returnUrl);
+        MerchantRoute route = merchantRouter.route(key.countryCode(), key.currency(), null);
+        CreateCheckoutSessionRequest sessionRequest = SessionsFlowService.buildSessionRequest(request,
+                route.getMerchantAccount(), referenceGenerator.next());
+        payloadLogger.logRequest(AdyenOperation.SESSIONS, sessionRequest);
+        CreateCheckoutSessionResponse response = apiExecutor.execute(route, AdyenOperation.SESSIONS,
+                () -> route.getPaymentsApi().sessions(sessionRequest));
+        payloadLogger.logResponse(AdyenOperation.SESSIONS, response);
+        created.incrementAndGet();
+
+        Instant usableUntil = Instant.now().plus(maxAge);
+        if (response.getExpiresAt() != null) {
+            // Leave the shopper at least as long as maxAge to complete the payment
+            Instant expiresAt = response.getExpiresAt().toInstant().minus(maxAge);
+            if (expiresAt.isBefore(usableUntil)) {
+                usableUntil = expiresAt;
+            }
+        }
+        return new PooledSession(response, route.getMerchantAccount(), usableUntil);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (refiller != null) {
+            refiller.shutdownNow();
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(created.get(), hits.get(), misses.get(), expired.get(),
+                pool.values().stream().mapToInt(Deque::size).sum());
+    }
+
+    public record Stats(long created, long hits, long misses, long expired, int pooled) {
+    }
+
+    record PoolKey(int amount, String currency, String countryCode) {
+
+        /**
+         * Parses amount:currency:countryCode, e.g. 100:EUR:NL
+         */
+        static PoolKey parse(String key) {
+            String[] parts = key.split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Expected amount:currency:countryCode, got: " + key);
+            }
+            return new PoolKey(Integer.parseInt(parts[0]), parts[1], parts[2]);
+        }
+    }
+
+    private record PooledSession(CreateCheckoutSessionResponse response, String merchantAccount,
+                                 Instant usableUntil) {
+    }
+}
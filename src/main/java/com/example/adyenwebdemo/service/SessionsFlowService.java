@@ -9,39 +9,111 @@ import com.adyen.model.checkout.PaymentDetailsRequest;
 import com.adyen.model.checkout.PaymentDetailsResponse;
 import com.adyen.model.checkout.SessionResultResponse;
 import com.adyen.model.checkout.ThreeDSRequestData;
-import com.adyen.model.RequestOptions;
-import com.adyen.service.checkout.PaymentsApi;
 import com.adyen.service.exception.ApiException;
-import com.example.adyenwebdemo.config.AdyenConfig;
 import com.example.adyenwebdemo.model.RedirectDetailsRequest;
+import com.example.adyenwebdemo.model.AdyenOperation;
 import com.example.adyenwebdemo.model.AdyenPaymentDetailsResponse;
+import com.example.adyenwebdemo.model.PaymentOutcome;
 import com.example.adyenwebdemo.model.SessionsFlowRequest;
 import com.example.adyenwebdemo.model.SessionsFlowResponse;
 import com.example.adyenwebdemo.model.ThreeDSDetailsRequest;
+import com.example.adyenwebdemo.routing.MerchantRoute;
+import com.example.adyenwebdemo.routing.MerchantRouter;
+import com.example.adyenwebdemo.state.PaymentEvent;
+import com.example.adyenwebdemo.state.PaymentEventType;
+import com.example.adyenwebdemo.state.PaymentState;
+import com.example.adyenwebdemo.state.PaymentStateStore;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class SessionsFlowService {
 
-    private final PaymentsApi paymentsApi;
-    private final AdyenConfig adyenConfig;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final MerchantRouter merchantRouter;
+    private final PaymentMethodsCache paymentMethodsCache;
+    private final PayloadLogger payloadLogger;
+    private final IdempotencyService idempotencyService;
+    private final AdyenApiMetrics apiMetrics;
+    private final AdyenApiExecutor apiExecutor;
+    private final PaymentStateStore paymentStateStore;
+    private final ReferenceGenerator referenceGenerator;
+    private final SessionPrewarmPool sessionPrewarmPool;
 
-    @Value("${adyen.client.key}")
-    private String clientKey;
+    /**
+     * Creates a checkout session; resends with the same Idempotency-Key share one session.
+     * Common carts are served from {@link SessionPrewarmPool} when it has a session for them.
+     * The session is created on the merchant account and credential of the checkout's {@link MerchantRoute}.
+     */
+    public SessionsFlowResponse createPaymentSession(SessionsFlowRequest paymentRequest, String idempotencyKey)
+            throws IOException, ApiException {
+        MerchantRoute route = merchantRouter.route(paymentRequest.getCountryCode(), paymentRequest.getCurrency(),
+                paymentRequest.getBrand());
+        CreateCheckoutSessionRequest sessionRequest = apiMetrics.timeMapping(AdyenOperation.SESSIONS, "request",
+                () -> buildSessionRequest(paymentRequest, route.getMerchantAccount(),
+                        referenceGenerator.next()));
+
+        // Call Adyen API to create session
+        String key = idempotencyService.key(AdyenOperation.SESSIONS, idempotencyKey, sessionRequest.getReference());
+        CreateCheckoutSessionResponse response = idempotencyService.execute(AdyenOperation.SESSIONS, key, () -> {
+            CreateCheckoutSessionResponse pooled = sessionPrewarmPool.take(paymentRequest, route);
+            if (pooled != null) {
+                // The pooled session was created with its own request and reference, logged when it was made
+                log.info("Serving pre-warmed session {} with reference {}", pooled.getId(), pooled.getReference());
+                return pooled;
+            }
+            logSessionRequest(sessionRequest, paymentRequest.isEnableRecurring());
+            CreateCheckoutSessionResponse created = apiExecutor.execute(route, AdyenOperation.SESSIONS,
+                    () -> route.getPaymentsApi().sessions(sessionRequest, idempotencyService.requestOptions(key)));
+
+            // Log response details
+            log.info("=== ADYEN SESSIONS API RESPONSE ===");
+            log.info("Session ID: {}", created.getId());
+            log.info("Session Data Length: {}",
+                    created.getSessionData() != null ? created.getSessionData().length() : 0);
+            payloadLogger.logResponse(AdyenOperation.SESSIONS, created);
+            return created;
+        });
+
+        merchantRouter.rememberSession(response.getId(), route);
+        merchantRouter.rememberPayment(response.getReference(), route);
+        paymentMethodsCache.expectStoredPaymentMethod(response.getId(), sessionRequest);
+        paymentStateStore.record(PaymentEvent.of(PaymentEventType.SESSION_CREATED, response.getReference(),
+                null, null, null));
+
+        // Return response object
+        return SessionsFlowResponse.builder()
+                .sessionId(response.getId())
+                .sessionData(response.getSessionData())
+                .clientKey(route.getClientKey())
+                .reference(response.getReference())
+                .build();
+    }
+
+    private void logSessionRequest(CreateCheckoutSessionRequest sessionRequest, boolean enableRecurring) {
+        Amount amount = sessionRequest.getAmount();
+        log.info("=== ADYEN SESSIONS API REQUEST ===");
+        log.info("Merchant Account: {}", sessionRequest.getMerchantAccount());
+        log.info("Amount: {} {}", amount.getValue(), amount.getCurrency());
+        log.info("Return URL: {}", sessionRequest.getReturnUrl());
+        log.info("Reference: {}", sessionRequest.getReference());
+        log.info("Country Code: {}", sessionRequest.getCountryCode());
+        log.info("Shopper Reference: {}", sessionRequest.getShopperReference());
+        log.info("Recurring Enabled: {}", enableRecurring);
+        payloadLogger.logRequest(AdyenOperation.SESSIONS, sessionRequest);
+    }
 
-    public SessionsFlowResponse createPaymentSession(SessionsFlowRequest paymentRequest) throws IOException, ApiException {
+    /**
+     * Builds the Adyen /sessions request for a checkout
+     */
+    static CreateCheckoutSessionRequest buildSessionRequest(SessionsFlowRequest paymentRequest,
+                                                            String merchantAccount, String reference) {
         // Create amount object
         Amount amount = new Amount()
                 .currency(paymentRequest.getCurrency())
@@ -49,10 +121,10 @@ public class SessionsFlowService {
 
         // Create checkout session request
         CreateCheckoutSessionRequest sessionRequest = new CreateCheckoutSessionRequest()
-                .merchantAccount(adyenConfig.getMerchantAccount())
+                .merchantAccount(merchantAccount)
                 .amount(amount)
-                .returnUrl(paymentRequest.getReturnUrl())
-                .reference("ORDER-" + UUID.randomUUID().toString())
+                .returnUrl(MerchantRouter.withReference(paymentRequest.getReturnUrl(), reference))
+                .reference(reference)
                 .shopperReference(paymentRequest.getShopperReference())
                 .countryCode(paymentRequest.getCountryCode());
 
@@ -70,40 +142,7 @@ public class SessionsFlowService {
             sessionRequest.setStorePaymentMethodMode(CreateCheckoutSessionRequest.StorePaymentMethodModeEnum.ENABLED);
         }
 
-        // Log request details
-        log.info("=== ADYEN SESSIONS API REQUEST ===");
-        log.info("Merchant Account: {}", sessionRequest.getMerchantAccount());
-        log.info("Amount: {} {}", amount.getValue(), amount.getCurrency());
-        log.info("Return URL: {}", sessionRequest.getReturnUrl());
-        log.info("Reference: {}", sessionRequest.getReference());
-        log.info("Country Code: {}", sessionRequest.getCountryCode());
-        log.info("Shopper Reference: {}", sessionRequest.getShopperReference());
-        log.info("Recurring Enabled: {}", paymentRequest.isEnableRecurring());
-        try {
-            log.info("Full Request JSON: {}", objectMapper.writeValueAsString(sessionRequest));
-        } catch (JsonProcessingException e) {
-            log.warn("Could not serialize session request to JSON", e);
-        }
-
-        // Call Adyen API to create session
-        CreateCheckoutSessionResponse response = paymentsApi.sessions(sessionRequest);
-        
-        // Log response details
-        log.info("=== ADYEN SESSIONS API RESPONSE ===");
-        log.info("Session ID: {}", response.getId());
-        log.info("Session Data Length: {}", response.getSessionData() != null ? response.getSessionData().length() : 0);
-        try {
-            log.info("Full Response JSON: {}", objectMapper.writeValueAsString(response));
-        } catch (JsonProcessingException e) {
-            log.warn("Could not serialize session response to JSON", e);
-        }
-
-        // Return response object
-        return SessionsFlowResponse.builder()
-                .sessionId(response.getId())
-                .sessionData(response.getSessionData())
-                .clientKey(clientKey)
-                .build();
+        return sessionRequest;
     }
 
     /**
@@ -112,10 +151,12 @@ public class SessionsFlowService {
     public AdyenPaymentDetailsResponse getSessionResult(String sessionId, String sessionResult) throws IOException, ApiException {
         log.info("=== ADYEN GET SESSION RESULT API REQUEST ===");
         log.info("Session ID: {}", sessionId);
-        log.info("Session Result: {}", sessionResult);
 
-        // Call Adyen API to get session result
-        SessionResultResponse response = paymentsApi.getResultOfPaymentSession(sessionId, sessionResult, null);
+        // Call Adyen API to get session result, with the credential the session was created with
+        MerchantRoute route = merchantRouter.forSession(sessionId);
+        SessionResultResponse response = apiExecutor.execute(route, AdyenOperation.SESSION_RESULT,
+                () -> route.getPaymentsApi().getResultOfPaymentSession(sessionId, sessionResult, null),
+                SessionResultResponse::getStatus);
         
         // Log detailed response
         log.info("=== ADYEN GET SESSION RESULT API RESPONSE ===");
@@ -126,14 +167,24 @@ public class SessionsFlowService {
         if (response.getAdditionalData() != null) {
             log.info("Additional Data: {}", response.getAdditionalData());
         }
-        try {
-            log.info("Full Response JSON: {}", objectMapper.writeValueAsString(response));
-        } catch (JsonProcessingException e) {
-            log.warn("Could not serialize session result response to JSON", e);
-        }
+        payloadLogger.logResponse(AdyenOperation.SESSION_RESULT, response);
+
+        AdyenPaymentDetailsResponse result = toSessionResult(response);
+        log.info("Extracted payment details - Result: {}, PSP Reference: {}", result.getResultCode(),
+                result.getPspReference());
+        paymentMethodsCache.sessionCompleted(sessionId, result.getOutcome());
+        paymentStateStore.recordResponse(result.getMerchantReference(), result.getPspReference(),
+                result.getResultCode(), result.getOutcome(), null);
+        return result;
+    }
 
+    /**
+     * Maps a session result to our model, taking the result code of the session's payment if there is one
+     */
+    static AdyenPaymentDetailsResponse toSessionResult(SessionResultResponse response) {
         // Extract payment details from the first payment in the list
         String resultCode = null;
+        PaymentOutcome outcome = null;
         String pspReference = null;
         String merchantReference = response.getReference();
         Map<String, String> additionalData = response.getAdditionalData();
@@ -144,77 +195,64 @@ public class SessionsFlowService {
             // Payment object doesn't have getStatus(), use resultCode from payment
             if (payment.getResultCode() != null) {
                 resultCode = payment.getResultCode().toString();
+                outcome = PaymentOutcome.of(payment.getResultCode());
             }
             pspReference = payment.getPspReference();
             // Payment object doesn't have getAdditionalData(), use session-level additionalData
             // additionalData is already set from response.getAdditionalData() above
         }
 
-        // Map session status to result code if no payment result code available
+        // Without a payment the session status is the result, e.g. "completed"
         if (resultCode == null && response.getStatus() != null) {
-            switch (response.getStatus()) {
-                case COMPLETED:
-                    resultCode = "Authorised";
-                    break;
-                case PAYMENTPENDING:
-                    resultCode = "Pending";
-                    break;
-                case REFUSED:
-                    resultCode = "Refused";
-                    break;
-                case CANCELED:
-                    resultCode = "Cancelled";
-                    break;
-                case EXPIRED:
-                    resultCode = "Expired";
-                    break;
-                default:
-                    resultCode = response.getStatus().toString();
-            }
+            resultCode = response.getStatus().toString();
+            outcome = PaymentOutcome.of(response.getStatus());
         }
 
-        log.info("Extracted payment details - Result: {}, PSP Reference: {}", resultCode, pspReference);
-
         // Map to our model
         return AdyenPaymentDetailsResponse.builder()
                 .resultCode(resultCode)
+                .outcome(outcome)
                 .pspReference(pspReference)
                 .merchantReference(merchantReference)
                 .additionalData(additionalData)
                 .build();
     }
 
-    public AdyenPaymentDetailsResponse submitPaymentDetails(RedirectDetailsRequest detailsRequest) throws IOException, ApiException {
-        log.info("=== ADYEN PAYMENT DETAILS API REQUEST ===");
-        log.info("Redirect Result: {}", detailsRequest.getRedirectResult());
-        log.info("Payment Data: {}", detailsRequest.getPaymentData());
-
-        // Create the details object using PaymentCompletionDetails
-        PaymentCompletionDetails paymentCompletionDetails = new PaymentCompletionDetails()
-            .redirectResult(detailsRequest.getRedirectResult());
+    public AdyenPaymentDetailsResponse submitPaymentDetails(RedirectDetailsRequest detailsRequest, String idempotencyKey)
+            throws IOException, ApiException {
+        // Reloading a result page re-submits the same redirectResult; answer from the payment state instead
+        Optional<PaymentState> known = paymentStateStore.findByRedirectResult(detailsRequest.getRedirectResult());
+        if (known.isPresent() && known.get().isFinal()) {
+            log.info("Payment {} already has a result, serving it from the payment state store",
+                    known.get().merchantReference());
+            return fromState(known.get());
+        }
 
-        // Create an Adyen PaymentDetailsRequest with the details
-        PaymentDetailsRequest adyenDetailsRequest = new PaymentDetailsRequest()
-            .details(paymentCompletionDetails);
+        log.info("=== ADYEN PAYMENT DETAILS API REQUEST ===");
+        log.info("Has Payment Data: {}", detailsRequest.getPaymentData() != null);
 
-        // Add payment data if available
-        if (detailsRequest.getPaymentData() != null && !detailsRequest.getPaymentData().isEmpty()) {
-            adyenDetailsRequest.paymentData(detailsRequest.getPaymentData());
-        }
+        PaymentDetailsRequest adyenDetailsRequest = buildDetailsRequest(detailsRequest);
 
-        // Use idempotency key in the request options
-        RequestOptions requestOptions = new RequestOptions();
-        requestOptions.idempotencyKey(UUID.randomUUID().toString());
+        // A redirectResult can only be submitted once; duplicates reuse the first call's result
+        String key = idempotencyService.key(AdyenOperation.PAYMENTS_DETAILS, idempotencyKey,
+                detailsRequest.getRedirectResult(), detailsRequest.getPaymentData());
 
         // Log request details
-        try {
-            log.info("Full Request JSON: {}", objectMapper.writeValueAsString(adyenDetailsRequest));
-        } catch (JsonProcessingException e) {
-            log.warn("Could not serialize payment details request to JSON", e);
-        }
+        payloadLogger.logRequest(AdyenOperation.PAYMENTS_DETAILS, adyenDetailsRequest);
 
         // Call Adyen API to get payment details
-        PaymentDetailsResponse response = paymentsApi.paymentsDetails(adyenDetailsRequest, requestOptions);
+        String redirectKey = PaymentStateStore.redirectKey(detailsRequest.getRedirectResult());
+        // Details carry no country or currency; the payment's route is found by the merchant reference the browser
+        // passes along, the default route's credential completes payments not remembered
+        MerchantRoute route = merchantRouter.forPayment(detailsRequest.getMerchantReference());
+        PaymentDetailsResponse response = idempotencyService.execute(AdyenOperation.PAYMENTS_DETAILS, key, () -> {
+            paymentStateStore.record(PaymentEvent.of(PaymentEventType.DETAILS_SUBMITTED,
+                    detailsRequest.getMerchantReference(), null, null, redirectKey));
+            return apiExecutor.execute(route, AdyenOperation.PAYMENTS_DETAILS,
+                    () -> route.getPaymentsApi().paymentsDetails(adyenDetailsRequest,
+                            idempotencyService.requestOptions(key)),
+                    PaymentDetailsResponse::getResultCode);
+        });
         
         // Log detailed response
         log.info("=== ADYEN PAYMENT DETAILS API RESPONSE ===");
@@ -224,56 +262,41 @@ public class SessionsFlowService {
         if (response.getAdditionalData() != null) {
             log.info("Additional Data: {}", response.getAdditionalData());
         }
-        try {
-            log.info("Full Response JSON: {}", objectMapper.writeValueAsString(response));
-        } catch (JsonProcessingException e) {
-            log.warn("Could not serialize payment details response to JSON", e);
-        }
+        payloadLogger.logResponse(AdyenOperation.PAYMENTS_DETAILS, response);
 
-        // Map Adyen's response to our model - convert ResultCodeEnum to String
-        return AdyenPaymentDetailsResponse.builder()
-                .resultCode(response.getResultCode() != null ? response.getResultCode().toString() : null)
-                .pspReference(response.getPspReference())
-                .merchantReference(response.getMerchantReference())
-                .additionalData(response.getAdditionalData())
-                .build();
+        // Map Adyen's response to our model
+        AdyenPaymentDetailsResponse result = apiMetrics.timeMapping(AdyenOperation.PAYMENTS_DETAILS, "response",
+                () -> toDetailsResponse(response));
+        paymentStateStore.recordResponse(result.getMerchantReference(), result.getPspReference(),
+                result.getResultCode(), result.getOutcome(), redirectKey);
+        return result;
     }
 
     /**
      * Process 3DS authentication results
      * This is separate from redirect results and specifically handles 3DS authentication
      */
-    public AdyenPaymentDetailsResponse submit3DSDetails(ThreeDSDetailsRequest detailsRequest) throws IOException, ApiException {
+    public AdyenPaymentDetailsResponse submit3DSDetails(ThreeDSDetailsRequest detailsRequest, String idempotencyKey)
+            throws IOException, ApiException {
         log.info("=== ADYEN 3DS DETAILS API REQUEST ===");
-        log.info("3DS Result: {}", detailsRequest.getThreeDSResult());
-        log.info("Payment Data: {}", detailsRequest.getPaymentData());
-
-        // Create the details object using PaymentCompletionDetails for 3DS
-        PaymentCompletionDetails paymentCompletionDetails = new PaymentCompletionDetails()
-            .threeDSResult(detailsRequest.getThreeDSResult());
+        log.info("Has Payment Data: {}", detailsRequest.getPaymentData() != null);
 
-        // Create an Adyen PaymentDetailsRequest with the 3DS details
-        PaymentDetailsRequest adyenDetailsRequest = new PaymentDetailsRequest()
-            .details(paymentCompletionDetails);
-
-        // Add payment data if available
-        if (detailsRequest.getPaymentData() != null && !detailsRequest.getPaymentData().isEmpty()) {
-            adyenDetailsRequest.paymentData(detailsRequest.getPaymentData());
-        }
+        PaymentDetailsRequest adyenDetailsRequest = build3DSDetailsRequest(detailsRequest);
 
-        // Use idempotency key in the request options
-        RequestOptions requestOptions = new RequestOptions();
-        requestOptions.idempotencyKey(UUID.randomUUID().toString());
+        // A threeDSResult can only be submitted once; duplicates reuse the first call's result
+        String key = idempotencyService.key(AdyenOperation.PAYMENTS_DETAILS, idempotencyKey,
+                detailsRequest.getThreeDSResult(), detailsRequest.getPaymentData());
 
         // Log request details
-        try {
-            log.info("Full Request JSON: {}", objectMapper.writeValueAsString(adyenDetailsRequest));
-        } catch (JsonProcessingException e) {
-            log.warn("Could not serialize 3DS details request to JSON", e);
-        }
-
-        // Call Adyen API to process 3DS result
-        PaymentDetailsResponse response = paymentsApi.paymentsDetails(adyenDetailsRequest, requestOptions);
+        payloadLogger.logRequest(AdyenOperation.PAYMENTS_DETAILS, adyenDetailsRequest);
+
+        // Call Adyen API to process 3DS result, on the route the payment was made on
+        MerchantRoute route = merchantRouter.forPayment(detailsRequest.getMerchantReference());
+        PaymentDetailsResponse response = idempotencyService.execute(AdyenOperation.PAYMENTS_DETAILS, key,
+                () -> apiExecutor.execute(route, AdyenOperation.PAYMENTS_DETAILS,
+                        () -> route.getPaymentsApi().paymentsDetails(adyenDetailsRequest,
+                            idempotencyService.requestOptions(key)),
+                        PaymentDetailsResponse::getResultCode));
         
         // Log detailed response
         log.info("=== ADYEN 3DS DETAILS API RESPONSE ===");
@@ -283,15 +306,67 @@ public class SessionsFlowService {
         if (response.getAdditionalData() != null) {
             log.info("Additional Data: {}", response.getAdditionalData());
         }
-        try {
-            log.info("Full Response JSON: {}", objectMapper.writeValueAsString(response));
-        } catch (JsonProcessingException e) {
-            log.warn("Could not serialize 3DS details response to JSON", e);
-        }
+        payloadLogger.logResponse(AdyenOperation.PAYMENTS_DETAILS, response);
 
         // Map Adyen's response to our model
+        AdyenPaymentDetailsResponse result = apiMetrics.timeMapping(AdyenOperation.PAYMENTS_DETAILS, "response",
+                () -> toDetailsResponse(response));
+        paymentStateStore.recordResponse(result.getMerchantReference(), result.getPspReference(),
+                result.getResultCode(), result.getOutcome(), null);
+        return result;
+    }
+
+    /**
+     * Result of a payment that was already processed, from the payment state store
+     */
+    static AdyenPaymentDetailsResponse fromState(PaymentState state) {
+        return AdyenPaymentDetailsResponse.builder()
+                .resultCode(state.resultCode())
+                .outcome(PaymentOutcome.of(state.resultCode()))
+                .pspReference(state.pspReference())
+                .merchantReference(state.merchantReference())
+                .build();
+    }
+
+    /**
+     * Builds the Adyen /payments/details request for a redirect result
+     */
+    static PaymentDetailsRequest buildDetailsRequest(RedirectDetailsRequest detailsRequest) {
+        // Create the details object using PaymentCompletionDetails
+        PaymentCompletionDetails paymentCompletionDetails = new PaymentCompletionDetails()
+            .redirectResult(detailsRequest.getRedirectResult());
+        return detailsRequest(paymentCompletionDetails, detailsRequest.getPaymentData());
+    }
+
+    /**
+     * Builds the Adyen /payments/details request for a 3DS authentication result
+     */
+    static PaymentDetailsRequest build3DSDetailsRequest(ThreeDSDetailsRequest detailsRequest) {
+        // Create the details object using PaymentCompletionDetails for 3DS
+        PaymentCompletionDetails paymentCompletionDetails = new PaymentCompletionDetails()
+            .threeDSResult(detailsRequest.getThreeDSResult());
+        return detailsRequest(paymentCompletionDetails, detailsRequest.getPaymentData());
+    }
+
+    private static PaymentDetailsRequest detailsRequest(PaymentCompletionDetails details, String paymentData) {
+        // Create an Adyen PaymentDetailsRequest with the details
+        PaymentDetailsRequest adyenDetailsRequest = new PaymentDetailsRequest()
+            .details(details);
+
+        // Add payment data if available
+        if (paymentData != null && !paymentData.isEmpty()) {
+            adyenDetailsRequest.paymentData(paymentData);
+        }
+        return adyenDetailsRequest;
+    }
+
+    /**
+     * Maps Adyen's /payments/details response to our model - converts ResultCodeEnum to String
+     */
+    static AdyenPaymentDetailsResponse toDetailsResponse(PaymentDetailsResponse response) {
         return AdyenPaymentDetailsResponse.builder()
                 .resultCode(response.getResultCode() != null ? response.getResultCode().toString() : null)
+                .outcome(PaymentOutcome.of(response.getResultCode()))
                 .pspReference(response.getPspReference())
                 .merchantReference(response.getMerchantReference())
                 .additionalData(response.getAdditionalData())
@@ -0,0 +1,91 @@
+package com.example.adyenwebdemo.service;
+
+import com.adyen.service.exception.ApiException;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight execution over a map of futures: the first caller for a key runs the call on its own thread,
+ * concurrent callers for the same key wait on its future. Failed calls are removed so they can be retried.
+ */
+final class SingleFlight {
+
+    private SingleFlight() {
+    }
+
+    static <K, V> V execute(ConcurrentMap<K, CompletableFuture<V>> futures, K key, AdyenCall<V> call)
+            throws IOException, ApiException {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = futures.putIfAbsent(key, future);
+        if (existing != null) {
+            return await(existing);
+        }
+
+        try {
+            future.complete(call.call());
+        } catch (Throwable e) {
+            // Errors too, or the entry would stay in the map and every later caller would wait on it forever
+            futures.remove(key, future);
+            future.completeExceptionally(e);
+        }
+        return await(future);
+    }
+
+    /**
+     * Asynchronous variant: returns a copy of the in-flight or completed future for the key, starting the call
+     * only if there is none. Copies keep a caller cancelling its future from affecting the others.
+     */
+    static <K, V> CompletableFuture<V> executeAsync(ConcurrentMap<K, CompletableFuture<V>> futures, K key,
+                                                    Supplier<CompletableFuture<V>> call) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = futures.putIfAbsent(key, future);
+        if (existing != null) {
+            return existing.copy();
+        }
+
+        CompletableFuture<V> started;
+        try {
+            started = call.get();
+        } catch (Throwable e) {
+            started = CompletableFuture.failedFuture(e);
+        }
+        started.whenComplete((value, error) -> {
+            if (error != null) {
+                futures.remove(key, future);
+                future.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error);
+            } else {
+                future.complete(value);
+            }
+        });
+        return future.copy();
+    }
+
+    /**
+     * Joins a future, rethrowing the original exception of the call
+     */
+    static <V> V await(CompletableFuture<V> future) throws IOException, ApiException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof ApiException apiException) {
+                throw apiException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
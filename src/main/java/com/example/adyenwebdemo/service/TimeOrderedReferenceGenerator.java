@@ -0,0 +1,114 @@
+package com.example.adyenwebdemo.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * References that sort by creation time and are unique across nodes without coordination:
+ * ORDER-&lt;time:10&gt;&lt;node:2&gt;&lt;stripe:2&gt;&lt;sequence:4&gt;, each part in Crockford base32, most significant
+ * character first, e.g. ORDER-01J9ZK3T5B0A00K700.
+ * <ul>
+ *     <li>time - milliseconds since the epoch, never going backwards within a stripe</li>
+ *     <li>node - adyen.reference.node-id (0-1023), required outside the TEST environment. Unset in TEST it is
+ *     derived from the host name, which can collide</li>
+ *     <li>stripe - one of a few counters per CPU, chosen by thread id, so concurrent threads rarely share one</li>
+ *     <li>sequence - per stripe within a millisecond; after 2^20 references the stripe moves on to the next
+ *     millisecond</li>
+ * </ul>
+ * Each stripe is a single compare-and-set on (time, sequence), so generation neither locks nor allocates state per
+ * thread, which matters with a virtual thread per request.
+ */
+@Component
+@ConditionalOnProperty(name = "adyen.reference.generator", havingValue = "time-ordered", matchIfMissing = true)
+@Slf4j
+public class TimeOrderedReferenceGenerator implements ReferenceGenerator {
+
+    static final int NODE_BITS = 10;
+    static final int STRIPE_BITS = 10;
+    static final int SEQUENCE_BITS = 20;
+
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int TIME_CHARS = 10;
+    private static final int LENGTH = PREFIX.length() + TIME_CHARS + (NODE_BITS + STRIPE_BITS + SEQUENCE_BITS) / 5;
+    /**
+     * Longs between two stripes, so each stripe has a cache line of its own
+     */
+    private static final int PADDING = 8;
+
+    private final int nodeId;
+    private final int stripeMask;
+    /**
+     * Per stripe the last (millis &lt;&lt; SEQUENCE_BITS | sequence) handed out
+     */
+    private final AtomicLongArray stripes;
+
+    public TimeOrderedReferenceGenerator(
+            @Value("${adyen.reference.node-id:-1}") int nodeId,
+            @Value("${adyen.environment:TEST}") String environment) {
+        this(nodeId, environment, Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    TimeOrderedReferenceGenerator(int nodeId, String environment, int stripeCount) {
+        if (nodeId >= 1 << NODE_BITS) {
+            throw new IllegalArgumentException("adyen.reference.node-id must be below " + (1 << NODE_BITS));
+        }
+        if (nodeId < 0 && !"TEST".equalsIgnoreCase(environment)) {
+            throw new IllegalStateException("adyen.reference.node-id must be set for the " + environment
+                    + " environment, to a value (0-" + ((1 << NODE_BITS) - 1) + ") no other node uses");
+        }
+        if (nodeId < 0) {
+            nodeId = derivedNodeId();
+            log.warn("adyen.reference.node-id not set, derived {} from the host name: references of nodes that "
+                    + "derive the same id can collide", nodeId);
+        }
+        this.nodeId = nodeId;
+        int count = Math.min(1 << STRIPE_BITS, Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1);
+        this.stripeMask = count - 1;
+        this.stripes = new AtomicLongArray(count * PADDING);
+        log.info("Time-ordered references with node id {} and {} stripes", this.nodeId, count);
+    }
+
+    @Override
+    @SuppressWarnings("deprecation") // Thread.threadId() needs Java 19
+    public String next() {
+        int stripe = (int) Thread.currentThread().getId() & stripeMask;
+        long now = System.currentTimeMillis() << SEQUENCE_BITS;
+        long last;
+        long next;
+        do {
+            last = stripes.get(stripe * PADDING);
+            // Sequence exhausted (or the clock went back): the increment carries into the next millisecond
+            next = Math.max(now, last + 1);
+        } while (!stripes.compareAndSet(stripe * PADDING, last, next));
+        return format(next >>> SEQUENCE_BITS, stripe, (int) next & ((1 << SEQUENCE_BITS) - 1));
+    }
+
+    private String format(long millis, int stripe, int sequence) {
+        char[] chars = new char[LENGTH];
+        PREFIX.getChars(0, PREFIX.length(), chars, 0);
+        int position = PREFIX.length();
+        for (int shift = (TIME_CHARS - 1) * 5; shift >= 0; shift -= 5) {
+            chars[position++] = ALPHABET[(int) (millis >>> shift) & 31];
+        }
+        long suffix = ((long) nodeId << (STRIPE_BITS + SEQUENCE_BITS)) | ((long) stripe << SEQUENCE_BITS) | sequence;
+        for (int shift = NODE_BITS + STRIPE_BITS + SEQUENCE_BITS - 5; shift >= 0; shift -= 5) {
+            chars[position++] = ALPHABET[(int) (suffix >>> shift) & 31];
+        }
+        return new String(chars);
+    }
+
+    private static int derivedNodeId() {
+        try {
+            return Math.floorMod(InetAddress.getLocalHost().getHostName().hashCode(), 1 << NODE_BITS);
+        } catch (UnknownHostException e) {
+            return ThreadLocalRandom.current().nextInt(1 << NODE_BITS);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.adyenwebdemo.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * ORDER-&lt;random UUID&gt;: unordered, and every call draws from the shared SecureRandom
+ */
+@Component
+@ConditionalOnProperty(name = "adyen.reference.generator", havingValue = "uuid")
+public class UuidReferenceGenerator implements ReferenceGenerator {
+
+    @Override
+    public String next() {
+        return PREFIX + UUID.randomUUID();
+    }
+}
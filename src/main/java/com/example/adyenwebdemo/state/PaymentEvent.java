@@ -0,0 +1,15 @@
+package com.example.adyenwebdemo.state;
+
+/**
+ * One entry of the payment event log. Every field except type and timestamp may be null;
+ * redirectKey is a hash of the redirectResult the event belongs to, never the redirectResult itself.
+ */
+public record PaymentEvent(PaymentEventType type, long timestamp, String merchantReference, String pspReference,
+                           String resultCode, String redirectKey) {
+
+    public static PaymentEvent of(PaymentEventType type, String merchantReference, String pspReference,
+                                  String resultCode, String redirectKey) {
+        return new PaymentEvent(type, System.currentTimeMillis(), merchantReference, pspReference, resultCode,
+                redirectKey);
+    }
+}
@@ -0,0 +1,290 @@
+package com.example.adyenwebdemo.state;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of {@link PaymentEvent}s in memory-mapped, fixed-size segment files.
+ * <p>
+ * Each record is {@code [int length][int crc32][byte type][long timestamp][string x4]}, strings as an unsigned
+ * short byte length ({@code 0xFFFF} for null) followed by UTF-8. A zero length marks the end of a segment.
+ * On open all segments are replayed in order; a torn or corrupt record at the tail of the last segment
+ * (e.g. after a crash mid-write) ends the replay and is overwritten by the next append.
+ * <p>
+ * Not thread-safe: callers serialize appends and segment deletion. With fsync, {@link #force(long)} is called
+ * after an append outside that serialization; concurrent callers share one fsync (group commit).
+ */
+@Slf4j
+public class PaymentEventLog implements AutoCloseable {
+
+    private static final int HEADER_SIZE = 8;
+    private static final int NULL_STRING = 0xFFFF;
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean fsync;
+
+    private final Object forceLock = new Object();
+    // Closed segments by index, with the timestamp of their newest event
+    private final TreeMap<Integer, Long> closedSegments = new TreeMap<>();
+
+    private volatile MappedByteBuffer segment;
+    private int segmentIndex;
+    private long segmentNewest;
+    private volatile long appended;
+    private long forced;
+
+    public PaymentEventLog(Path directory, int segmentSize, boolean fsync) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.fsync = fsync;
+    }
+
+    /**
+     * Replays every event in the log to the consumer and positions the log for appending
+     *
+     * @return the number of events replayed
+     */
+    public long open(Consumer<PaymentEvent> consumer) throws IOException {
+        Files.createDirectories(directory);
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(directory)) {
+            segments = files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+        }
+
+        long events = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            MappedByteBuffer buffer = map(segments.get(i));
+            long[] newest = {0};
+            events += replay(buffer, event -> {
+                newest[0] = Math.max(newest[0], event.timestamp());
+                consumer.accept(event);
+            });
+            if (i == segments.size() - 1) {
+                segment = buffer;
+                segmentIndex = segmentIndex(segments.get(i));
+                segmentNewest = newest[0];
+                clearTail(segment);
+            } else {
+                closedSegments.put(segmentIndex(segments.get(i)), newest[0]);
+            }
+        }
+        if (segment == null) {
+            segmentIndex = 1;
+            segment = map(segmentPath(segmentIndex));
+        }
+        return events;
+    }
+
+    /**
+     * Writes an event to the current segment
+     *
+     * @return the sequence number of the event, to pass to {@link #force(long)}
+     */
+    public long append(PaymentEvent event) {
+        byte[] body = encode(event);
+        int recordSize = HEADER_SIZE + body.length;
+        if (recordSize + Integer.BYTES > segmentSize) {
+            throw new IllegalArgumentException("Payment event too large for a segment: " + recordSize + " bytes");
+        }
+        // Keep room for the zero end marker
+        if (segment.remaining() < recordSize + Integer.BYTES) {
+            roll();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        int position = segment.position();
+        // Body and checksum first, length last: a record is only visible to replay once complete
+        segment.position(position + HEADER_SIZE);
+        segment.put(body);
+        segment.putInt(position + Integer.BYTES, (int) crc.getValue());
+        segment.putInt(position, body.length);
+        segmentNewest = Math.max(segmentNewest, event.timestamp());
+        return ++appended;
+    }
+
+    /**
+     * With fsync enabled, returns once the event with the given sequence number is on disk. One fsync covers every
+     * event appended before it started, so callers waiting at the same time share it.
+     */
+    public void force(long sequence) {
+        if (!fsync) {
+            return;
+        }
+        synchronized (forceLock) {
+            if (forced >= sequence) {
+                return;
+            }
+            // Read the count before the segment: earlier segments were forced when they were rolled
+            long upTo = appended;
+            segment.force();
+            forced = upTo;
+        }
+    }
+
+    /**
+     * Deletes the oldest closed segments whose newest event is older than the cutoff
+     *
+     * @return the number of segments deleted
+     */
+    public int deleteSegmentsOlderThan(long cutoffMillis) {
+        int deleted = 0;
+        for (Map.Entry<Integer, Long> oldest = closedSegments.firstEntry();
+             oldest != null && oldest.getValue() < cutoffMillis; oldest = closedSegments.firstEntry()) {
+            Path path = segmentPath(oldest.getKey());
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("Could not delete payment event log segment {}", path, e);
+                break;
+            }
+            closedSegments.remove(oldest.getKey());
+            deleted++;
+        }
+        return deleted;
+    }
+
+    private void roll() {
+        segment.force();
+        closedSegments.put(segmentIndex, segmentNewest);
+        segmentNewest = 0;
+        segmentIndex++;
+        try {
+            segment = map(segmentPath(segmentIndex));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create payment event log segment " + segmentIndex, e);
+        }
+        log.info("Payment event log rolled to segment {}", segmentIndex);
+    }
+
+    private static long replay(MappedByteBuffer buffer, Consumer<PaymentEvent> consumer) {
+        long events = 0;
+        CRC32 crc = new CRC32();
+        while (buffer.remaining() >= HEADER_SIZE) {
+            int position = buffer.position();
+            int length = buffer.getInt(position);
+            if (length <= 0 || length > buffer.remaining() - HEADER_SIZE) {
+                break;
+            }
+            byte[] body = new byte[length];
+            buffer.get(position + HEADER_SIZE, body);
+            crc.reset();
+            crc.update(body);
+            if ((int) crc.getValue() != buffer.getInt(position + Integer.BYTES)) {
+                log.warn("Corrupt payment event at offset {}, ignoring the rest of the segment", position);
+                break;
+            }
+            consumer.accept(decode(body));
+            buffer.position(position + HEADER_SIZE + length);
+            events++;
+        }
+        return events;
+    }
+
+    /**
+     * Zeroes whatever follows the last valid record so a partially written one can never be replayed
+     */
+    private static void clearTail(MappedByteBuffer buffer) {
+        int position = buffer.position();
+        if (buffer.remaining() >= Integer.BYTES && buffer.getInt(position) != 0) {
+            log.warn("Discarding incomplete payment event at offset {}", position);
+            byte[] zeros = new byte[8192];
+            while (buffer.hasRemaining()) {
+                buffer.put(zeros, 0, Math.min(zeros.length, buffer.remaining()));
+            }
+            buffer.position(position);
+        }
+    }
+
+    private MappedByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    private Path segmentPath(int index) {
+        return directory.resolve(String.format("%010d%s", index, SEGMENT_SUFFIX));
+    }
+
+    private static int segmentIndex(Path path) {
+        String name = path.getFileName().toString();
+        return Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static byte[] encode(PaymentEvent event) {
+        byte[][] strings = {
+                bytes(event.merchantReference()), bytes(event.pspReference()),
+                bytes(event.resultCode()), bytes(event.redirectKey())
+        };
+        int size = 1 + Long.BYTES;
+        for (byte[] string : strings) {
+            size += Short.BYTES + (string != null ? string.length : 0);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put((byte) event.type().ordinal());
+        buffer.putLong(event.timestamp());
+        for (byte[] string : strings) {
+            if (string == null) {
+                buffer.putShort((short) NULL_STRING);
+            } else {
+                buffer.putShort((short) string.length);
+                buffer.put(string);
+            }
+        }
+        return buffer.array();
+    }
+
+    private static PaymentEvent decode(byte[] body) {
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        PaymentEventType type = PaymentEventType.values()[buffer.get()];
+        long timestamp = buffer.getLong();
+        return new PaymentEvent(type, timestamp, string(buffer), string(buffer), string(buffer), string(buffer));
+    }
+
+    private static byte[] bytes(String value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= NULL_STRING) {
+            throw new IllegalArgumentException("Payment event field too long: " + bytes.length + " bytes");
+        }
+        return bytes;
+    }
+
+    private static String string(ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        if (length == NULL_STRING) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    @Override
+    public void close() {
+        if (segment != null) {
+            segment.force();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.adyenwebdemo.state;
+
+/**
+ * Transitions recorded in the payment event log.
+ * The ordinal is the on-disk code, so new types must only be added at the end.
+ */
+public enum PaymentEventType {
+    SESSION_CREATED,
+    PAYMENT_SUBMITTED,
+    ACTION,
+    DETAILS_SUBMITTED,
+    RESULT
+}
@@ -0,0 +1,42 @@
+package com.example.adyenwebdemo.state;
+
+import com.example.adyenwebdemo.model.PaymentOutcome;
+
+/**
+ * Latest known state of a payment, folded from its events
+ */
+public record PaymentState(String merchantReference, String pspReference, PaymentEventType lastEvent,
+                           String resultCode, long updatedAt) {
+
+    static PaymentState from(String merchantReference, PaymentEvent event) {
+        return new PaymentState(merchantReference, event.pspReference(), event.type(), event.resultCode(),
+                event.timestamp());
+    }
+
+    PaymentState apply(PaymentEvent event) {
+        // A pending response that arrives after the webhook's result must not hide it
+        boolean keepResult = isFinal() && !isFinal(event.type(), event.resultCode());
+        return new PaymentState(
+                event.merchantReference() != null ? event.merchantReference() : merchantReference,
+                event.pspReference() != null ? event.pspReference() : pspReference,
+                keepResult ? lastEvent : event.type(),
+                event.resultCode() != null && !keepResult ? event.resultCode() : resultCode,
+                event.timestamp());
+    }
+
+    /**
+     * Whether the payment succeeded or failed; Pending and Received are results too, but not final ones, so
+     * their result pages ask Adyen again
+     */
+    public boolean isFinal() {
+        return isFinal(lastEvent, resultCode);
+    }
+
+    private static boolean isFinal(PaymentEventType type, String resultCode) {
+        if (type != PaymentEventType.RESULT) {
+            return false;
+        }
+        PaymentOutcome outcome = PaymentOutcome.of(resultCode);
+        return outcome == PaymentOutcome.SUCCESS || outcome == PaymentOutcome.FAILED;
+    }
+}
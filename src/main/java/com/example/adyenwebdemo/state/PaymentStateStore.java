@@ -0,0 +1,198 @@
+package com.example.adyenwebdemo.state;
+
+import com.example.adyenwebdemo.model.PaymentOutcome;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server-side payment state: every transition is appended to the {@link PaymentEventLog} and folded into
+ * in-memory indexes by merchantReference, pspReference and redirectResult. The indexes are rebuilt from the
+ * log on startup, so a result page can be served after a restart without asking Adyen again.
+ * <p>
+ * Payments not updated for the retention period are dropped from the indexes, and log segments whose newest event
+ * is older than that are deleted. Appends and index updates are serialized; the fsync after them is not.
+ */
+@Component
+@Slf4j
+public class PaymentStateStore {
+
+    private final boolean enabled;
+    private final PaymentEventLog eventLog;
+    private final long retentionMillis;
+    private final long purgeIntervalMinutes;
+    private final Object appendLock = new Object();
+
+    private final Map<String, PaymentState> byMerchantReference = new ConcurrentHashMap<>();
+    private final Map<String, String> merchantReferenceByPspReference = new ConcurrentHashMap<>();
+    private final Map<String, String> merchantReferenceByRedirectKey = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService purger;
+
+    public PaymentStateStore(
+            @Value("${adyen.state.enabled:true}") boolean enabled,
+            @Value("${adyen.state.dir:data/payment-state}") Path directory,
+            @Value("${adyen.state.segment-size-mb:64}") int segmentSizeMb,
+            @Value("${adyen.state.fsync:false}") boolean fsync,
+            @Value("${adyen.state.retention-days:30}") long retentionDays,
+            @Value("${adyen.state.purge-interval-minutes:60}") long purgeIntervalMinutes) {
+        this.enabled = enabled;
+        this.eventLog = new PaymentEventLog(directory, segmentSizeMb * 1024 * 1024, fsync);
+        this.retentionMillis = TimeUnit.DAYS.toMillis(retentionDays);
+        this.purgeIntervalMinutes = purgeIntervalMinutes;
+    }
+
+    @PostConstruct
+    void recover() throws IOException {
+        if (!enabled) {
+            log.info("Payment state store disabled");
+            return;
+        }
+        long start = System.nanoTime();
+        long events = eventLog.open(this::apply);
+        purge();
+        log.info("Payment state recovered: {} events, {} payments in {} ms", events, byMerchantReference.size(),
+                (System.nanoTime() - start) / 1_000_000);
+        if (retentionMillis > 0 && purgeIntervalMinutes > 0) {
+            purger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "payment-state-purge");
+                thread.setDaemon(true);
+                return thread;
+            });
+            purger.scheduleWithFixedDelay(this::purge, purgeIntervalMinutes, purgeIntervalMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * Appends an event and applies it to the indexes
+     */
+    public void record(PaymentEvent event) {
+        if (!enabled) {
+            return;
+        }
+        long sequence;
+        synchronized (appendLock) {
+            sequence = eventLog.append(event);
+            apply(event);
+        }
+        eventLog.force(sequence);
+    }
+
+    /**
+     * Records the response of a /payments or /payments/details call as an action or a result, by the outcome the
+     * caller classified its result code as
+     */
+    public void recordResponse(String merchantReference, String pspReference, String resultCode,
+                               PaymentOutcome outcome, String redirectKey) {
+        PaymentEventType type = outcome == PaymentOutcome.ACTION ? PaymentEventType.ACTION : PaymentEventType.RESULT;
+        record(PaymentEvent.of(type, merchantReference, pspReference, resultCode, redirectKey));
+    }
+
+    public Optional<PaymentState> findByMerchantReference(String merchantReference) {
+        return Optional.ofNullable(merchantReference).map(byMerchantReference::get);
+    }
+
+    public Optional<PaymentState> findByPspReference(String pspReference) {
+        return Optional.ofNullable(pspReference).map(merchantReferenceByPspReference::get).map(byMerchantReference::get);
+    }
+
+    /**
+     * The state of the payment a redirectResult was submitted for, if it was already processed
+     */
+    public Optional<PaymentState> findByRedirectResult(String redirectResult) {
+        return Optional.ofNullable(redirectKey(redirectResult)).map(merchantReferenceByRedirectKey::get)
+                .map(byMerchantReference::get);
+    }
+
+    /**
+     * Hash under which a redirectResult is indexed; the redirectResult itself is never persisted
+     */
+    public static String redirectKey(String redirectResult) {
+        if (redirectResult == null || redirectResult.isEmpty()) {
+            return null;
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(redirectResult.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private void apply(PaymentEvent event) {
+        String merchantReference = event.merchantReference();
+        if (merchantReference == null && event.pspReference() != null) {
+            merchantReference = merchantReferenceByPspReference.get(event.pspReference());
+        }
+        if (merchantReference == null && event.redirectKey() != null) {
+            merchantReference = merchantReferenceByRedirectKey.get(event.redirectKey());
+        }
+        if (merchantReference == null) {
+            // Nothing to attach the event to, e.g. details submitted for a payment made before the store existed
+            return;
+        }
+
+        byMerchantReference.compute(merchantReference,
+                (reference, state) -> state == null ? PaymentState.from(reference, event) : state.apply(event));
+        if (event.pspReference() != null) {
+            merchantReferenceByPspReference.put(event.pspReference(), merchantReference);
+        }
+        if (event.redirectKey() != null) {
+            merchantReferenceByRedirectKey.put(event.redirectKey(), merchantReference);
+        }
+    }
+
+    /**
+     * Drops payments not updated within the retention period and deletes log segments holding only older events
+     */
+    void purge() {
+        if (retentionMillis <= 0) {
+            return;
+        }
+        try {
+            long cutoff = System.currentTimeMillis() - retentionMillis;
+            int before = byMerchantReference.size();
+            // Only removes a state if it was not updated in the meantime
+            byMerchantReference.entrySet().removeIf(entry -> entry.getValue().updatedAt() < cutoff);
+            merchantReferenceByPspReference.values().removeIf(reference -> !byMerchantReference.containsKey(reference));
+            merchantReferenceByRedirectKey.values().removeIf(reference -> !byMerchantReference.containsKey(reference));
+            int segments;
+            synchronized (appendLock) {
+                segments = eventLog.deleteSegmentsOlderThan(cutoff);
+            }
+            if (before > byMerchantReference.size() || segments > 0) {
+                log.info("Payment state purged: {} payments, {} log segments", before - byMerchantReference.size(),
+                        segments);
+            }
+        } catch (RuntimeException e) {
+            log.error("Payment state purge failed", e);
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        if (purger != null) {
+            purger.shutdownNow();
+        }
+        if (enabled) {
+            synchronized (appendLock) {
+                eventLog.close();
+            }
+        }
+    }
+}
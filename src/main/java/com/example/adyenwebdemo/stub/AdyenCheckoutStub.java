@@ -0,0 +1,357 @@
+package com.example.adyenwebdemo.stub;
+
+import com.example.adyenwebdemo.model.AdyenOperation;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Embedded stand-in for the Adyen Checkout endpoints this application uses, for load and latency testing without
+ * the TEST environment:
+ * <ul>
+ *     <li>{@code POST /sessions}, {@code GET /sessions/{id}}</li>
+ *     <li>{@code POST /paymentMethods}</li>
+ *     <li>{@code POST /payments} - result codes follow a script, with redirect and 3DS2 actions</li>
+ *     <li>{@code POST /payments/details}</li>
+ *     <li>{@code GET /redirect} - the "issuer page" of redirect actions, sends the shopper back with a redirectResult</li>
+ * </ul>
+ * Any version prefix ({@code /v71}) is accepted. Every response is delayed by a {@link LatencyDistribution} sample
+ * without holding a thread, and errors (500), throttling (429) and timeouts can be injected at a given rate.
+ * The stub keeps no state: references travel inside the session ids, paymentData and redirectResults it issues.
+ */
+@Slf4j
+public class AdyenCheckoutStub implements AutoCloseable {
+
+    private static final String REDIRECT_PATH = "/redirect";
+    private static final List<String> ACTION_RESULT_CODES = List.of("RedirectShopper", "IdentifyShopper", "ChallengeShopper");
+
+    private final Settings settings;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Random random;
+    private final AtomicInteger paymentsCalls = new AtomicInteger();
+    private final AtomicInteger detailsCalls = new AtomicInteger();
+    private final AtomicLong pspSequence = new AtomicLong();
+
+    private HttpServer server;
+    private ScheduledExecutorService executor;
+
+    /**
+     * @param port              port to listen on, 0 for any free port
+     * @param latency           delay of operations without their own distribution
+     * @param latencyByOperation per-operation delay
+     * @param errorRate         fraction of calls answered with 500
+     * @param throttleRate      fraction of calls answered with 429 and Retry-After
+     * @param timeoutRate       fraction of calls answered only after {@code timeoutMillis}
+     * @param paymentsScript    result codes of successive /payments calls, repeated
+     * @param detailsScript     result codes of successive /payments/details calls, repeated
+     * @param seed              seed of the latency and error injection, for repeatable runs
+     */
+    public record Settings(int port, int threads, LatencyDistribution latency,
+                           Map<AdyenOperation, LatencyDistribution> latencyByOperation,
+                           double errorRate, double throttleRate, double timeoutRate, long timeoutMillis,
+                           List<String> paymentsScript, List<String> detailsScript, long seed) {
+    }
+
+    public AdyenCheckoutStub(Settings settings) {
+        if (settings.paymentsScript().isEmpty() || settings.detailsScript().isEmpty()) {
+            throw new IllegalArgumentException("Stub result code scripts must not be empty");
+        }
+        this.settings = settings;
+        this.random = new Random(settings.seed());
+    }
+
+    public void start() throws IOException {
+        executor = Executors.newScheduledThreadPool(settings.threads(), runnable -> {
+            Thread thread = new Thread(runnable, "adyen-stub");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server = HttpServer.create(new InetSocketAddress(settings.port()), 1024);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        log.info("Adyen checkout stub listening on port {} (payments script {}, error rate {}, throttle rate {}, timeout rate {})",
+                getPort(), settings.paymentsScript(), settings.errorRate(), settings.throttleRate(), settings.timeoutRate());
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    private void handle(HttpExchange exchange) {
+        try {
+            URI uri = exchange.getRequestURI();
+            String path = uri.getPath();
+            if (path.equals(REDIRECT_PATH)) {
+                redirect(exchange, query(uri.getRawQuery()));
+                return;
+            }
+
+            AdyenOperation operation = AdyenOperation.fromPath(path);
+            if (operation == null) {
+                send(exchange, new Reply(404, error(404, "000", "Unknown stub endpoint " + path, "validation")));
+                return;
+            }
+
+            Reply reply;
+            long delay;
+            double roll;
+            synchronized (random) {
+                roll = random.nextDouble();
+                delay = settings.latencyByOperation().getOrDefault(operation, settings.latency()).sampleMillis(random);
+            }
+            if (roll < settings.errorRate()) {
+                reply = new Reply(500, error(500, "905_1", "Injected error", "internal"));
+            } else if (roll < settings.errorRate() + settings.throttleRate()) {
+                reply = new Reply(429, error(429, "429", "Injected throttling", "validation"), "1");
+            } else {
+                if (roll < settings.errorRate() + settings.throttleRate() + settings.timeoutRate()) {
+                    delay = settings.timeoutMillis();
+                }
+                JsonNode request = exchange.getRequestMethod().equals("POST")
+                        ? objectMapper.readTree(exchange.getRequestBody()) : objectMapper.createObjectNode();
+                reply = new Reply(200, respond(operation, request, exchange));
+            }
+            executor.schedule(() -> send(exchange, reply), Math.max(0, delay), TimeUnit.MILLISECONDS);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Stub could not handle {} {}", exchange.getRequestMethod(), exchange.getRequestURI(), e);
+            send(exchange, new Reply(422, error(422, "702", "Stub could not parse request: " + e.getMessage(), "validation")));
+        }
+    }
+
+    private ObjectNode respond(AdyenOperation operation, JsonNode request, HttpExchange exchange) {
+        return switch (operation) {
+            case SESSIONS -> session(request);
+            case SESSION_RESULT -> sessionResult(exchange.getRequestURI().getPath());
+            case PAYMENT_METHODS -> paymentMethods(request);
+            case PAYMENTS -> payment(request, exchange);
+            case PAYMENTS_DETAILS -> paymentDetails(request);
+        };
+    }
+
+    private ObjectNode session(JsonNode request) {
+        String reference = request.path("reference").asText();
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("id", "CS" + encode(reference));
+        response.put("sessionData", "Ab02b4c0!" + encode(pspReference()));
+        response.put("reference", reference);
+        response.set("amount", request.path("amount"));
+        response.put("merchantAccount", request.path("merchantAccount").asText());
+        response.put("returnUrl", request.path("returnUrl").asText());
+        response.put("countryCode", request.path("countryCode").asText(null));
+        response.put("expiresAt", Instant.now().plus(1, ChronoUnit.HOURS).truncatedTo(ChronoUnit.SECONDS).toString());
+        response.put("mode", "embedded");
+        return response;
+    }
+
+    private ObjectNode sessionResult(String path) {
+        String sessionId = path.substring(path.lastIndexOf('/') + 1);
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("id", sessionId);
+        response.put("status", "completed");
+        if (sessionId.startsWith("CS")) {
+            response.put("reference", decode(sessionId.substring(2)));
+        }
+        return response;
+    }
+
+    private ObjectNode paymentMethods(JsonNode request) {
+        ObjectNode response = objectMapper.createObjectNode();
+        ArrayNode paymentMethods = response.putArray("paymentMethods");
+        ObjectNode scheme = paymentMethods.addObject().put("type", "scheme").put("name", "Cards");
+        scheme.putArray("brands").add("visa").add("mc").add("amex");
+        paymentMethods.addObject().put("type", "ideal").put("name", "iDEAL");
+        paymentMethods.addObject().put("type", "paypal").put("name", "PayPal");
+
+        ArrayNode storedPaymentMethods = response.putArray("storedPaymentMethods");
+        if (request.hasNonNull("shopperReference")) {
+            ObjectNode stored = storedPaymentMethods.addObject()
+                    .put("id", "STUB" + Integer.toHexString(request.get("shopperReference").asText().hashCode()))
+                    .put("type", "scheme")
+                    .put("name", "VISA")
+                    .put("brand", "visa")
+                    .put("lastFour", "1111")
+                    .put("expiryMonth", "03")
+                    .put("expiryYear", "2030")
+                    .put("holderName", "Checkout Shopper");
+            stored.putArray("supportedShopperInteractions").add("Ecommerce").add("ContAuth");
+        }
+        return response;
+    }
+
+    private ObjectNode payment(JsonNode request, HttpExchange exchange) {
+        List<String> script = settings.paymentsScript();
+        String resultCode = script.get(Math.floorMod(paymentsCalls.getAndIncrement(), script.size()));
+        String merchantReference = request.path("reference").asText();
+        String pspReference = pspReference();
+        String paymentMethodType = request.path("paymentMethod").path("type").asText("scheme");
+
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("resultCode", resultCode);
+        response.put("merchantReference", merchantReference);
+        if (!ACTION_RESULT_CODES.contains(resultCode)) {
+            response.put("pspReference", pspReference);
+            response.set("amount", request.path("amount"));
+            if (resultCode.equals("Refused")) {
+                response.put("refusalReason", "Refused");
+                response.put("refusalReasonCode", "2");
+            }
+            return response;
+        }
+
+        // Details of the action come back in the redirectResult/paymentData, so /payments/details can answer statelessly
+        String state = encode(pspReference + "|" + merchantReference);
+        ObjectNode action = response.putObject("action");
+        action.put("paymentMethodType", paymentMethodType);
+        action.put("paymentData", state);
+        if (resultCode.equals("RedirectShopper")) {
+            String returnUrl = request.path("returnUrl").asText();
+            action.put("type", "redirect");
+            action.put("method", "GET");
+            action.put("url", "http://" + exchange.getRequestHeaders().getFirst("Host") + REDIRECT_PATH
+                    + "?returnUrl=" + URLEncoder.encode(returnUrl, StandardCharsets.UTF_8) + "&state=" + state);
+        } else {
+            action.put("type", "threeDS2");
+            action.put("subtype", resultCode.equals("IdentifyShopper") ? "fingerprint" : "challenge");
+            action.put("token", encode("{\"threeDSServerTransID\":\"" + pspReference + "\"}"));
+            action.put("authorisationToken", state);
+        }
+        return response;
+    }
+
+    private ObjectNode paymentDetails(JsonNode request) {
+        List<String> script = settings.detailsScript();
+        String resultCode = script.get(Math.floorMod(detailsCalls.getAndIncrement(), script.size()));
+
+        // The state issued with the action, from the redirect or from paymentData
+        String state = request.path("details").path("redirectResult").asText(request.path("paymentData").asText(""));
+        String[] references = state.isEmpty() ? new String[0] : decode(state).split("\\|", 2);
+
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("resultCode", resultCode);
+        response.put("pspReference", references.length > 0 && !references[0].isEmpty() ? references[0] : pspReference());
+        if (references.length > 1) {
+            response.put("merchantReference", references[1]);
+        }
+        if (resultCode.equals("Refused")) {
+            response.put("refusalReason", "Refused");
+            response.put("refusalReasonCode", "2");
+        }
+        return response;
+    }
+
+    private void redirect(HttpExchange exchange, Map<String, String> query) {
+        String returnUrl = query.getOrDefault("returnUrl", "/");
+        String location = returnUrl + (returnUrl.contains("?") ? "&" : "?") + "redirectResult="
+                + URLEncoder.encode(query.getOrDefault("state", ""), StandardCharsets.UTF_8);
+        try {
+            exchange.getResponseHeaders().set("Location", location);
+            exchange.sendResponseHeaders(302, -1);
+        } catch (IOException e) {
+            log.debug("Stub redirect not delivered: {}", e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void send(HttpExchange exchange, Reply reply) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(reply.body());
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.getResponseHeaders().set("pspReference", pspReference());
+            if (reply.retryAfter() != null) {
+                exchange.getResponseHeaders().set("Retry-After", reply.retryAfter());
+            }
+            exchange.sendResponseHeaders(reply.status(), body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (IOException e) {
+            // The client gave up, e.g. on an injected timeout
+            log.debug("Stub response not delivered: {}", e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private ObjectNode error(int status, String errorCode, String message, String errorType) {
+        return objectMapper.createObjectNode()
+                .put("status", status)
+                .put("errorCode", errorCode)
+                .put("message", message)
+                .put("errorType", errorType)
+                .put("pspReference", pspReference());
+    }
+
+    /**
+     * 16 characters, like Adyen's pspReferences
+     */
+    private String pspReference() {
+        return String.format("STUB%012d", pspSequence.incrementAndGet());
+    }
+
+    private static String encode(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String value) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null) {
+            return parameters;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    private record Reply(int status, ObjectNode body, String retryAfter) {
+        Reply(int status, ObjectNode body) {
+            this(status, body, null);
+        }
+    }
+}
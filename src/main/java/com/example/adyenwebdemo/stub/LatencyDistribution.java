@@ -0,0 +1,58 @@
+package com.example.adyenwebdemo.stub;
+
+import java.util.Random;
+
+/**
+ * Response delay of the checkout stub, parsed from a spec:
+ * <ul>
+ *     <li>{@code fixed:50} - always 50 ms</li>
+ *     <li>{@code uniform:20-80} - uniformly between 20 and 80 ms</li>
+ *     <li>{@code lognormal:50,250} - log-normal with a median of 50 ms and a p99 of 250 ms, the usual shape of
+ *     upstream API latency</li>
+ * </ul>
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+
+    /**
+     * z-score of the 99th percentile of the standard normal distribution
+     */
+    double P99_Z = 2.326;
+
+    long sampleMillis(Random random);
+
+    static LatencyDistribution parse(String spec) {
+        String[] parts = spec.trim().split(":", 2);
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Invalid latency spec, expected <kind>:<params>: " + spec);
+        }
+        String params = parts[1].trim();
+        switch (parts[0].trim().toLowerCase()) {
+            case "fixed" -> {
+                long millis = Long.parseLong(params);
+                return random -> millis;
+            }
+            case "uniform" -> {
+                String[] bounds = params.split("-");
+                long min = Long.parseLong(bounds[0].trim());
+                long max = Long.parseLong(bounds[1].trim());
+                if (max < min) {
+                    throw new IllegalArgumentException("Invalid uniform latency, max < min: " + spec);
+                }
+                return random -> min + (long) (random.nextDouble() * (max - min + 1));
+            }
+            case "lognormal" -> {
+                String[] values = params.split(",");
+                double median = Double.parseDouble(values[0].trim());
+                double p99 = Double.parseDouble(values[1].trim());
+                if (median <= 0 || p99 < median) {
+                    throw new IllegalArgumentException("Invalid lognormal latency, need 0 < median <= p99: " + spec);
+                }
+                double mu = Math.log(median);
+                double sigma = (Math.log(p99) - mu) / P99_Z;
+                return random -> Math.round(Math.exp(mu + sigma * random.nextGaussian()));
+            }
+            default -> throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+        }
+    }
+}
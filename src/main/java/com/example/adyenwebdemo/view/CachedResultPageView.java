@@ -0,0 +1,71 @@
+package com.example.adyenwebdemo.view;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.View;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.util.Map;
+
+/**
+ * A result page written as its cached static layout around the per-request result fragment.
+ * <p>
+ * The layout is the page template rendered once, on first use, with the fragment replaced by a marker
+ * (the template outputs the {@value #SLOT_ATTRIBUTE} model attribute instead of including the fragment).
+ * Afterwards only the fragment is rendered per request.
+ */
+class CachedResultPageView implements View {
+
+    static final String SLOT_ATTRIBUTE = "resultSlot";
+    private static final String MARKER = "<!--result-slot-->";
+    private static final String CONTENT_TYPE = "text/html;charset=UTF-8";
+
+    private final View page;
+    private final View fragment;
+    private volatile String[] layout;
+
+    CachedResultPageView(View page, View fragment) {
+        this.page = page;
+        this.fragment = fragment;
+    }
+
+    @Override
+    public String getContentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public void render(Map<String, ?> model, HttpServletRequest request, HttpServletResponse response)
+            throws Exception {
+        String[] parts = layout(request, response);
+        response.setContentType(CONTENT_TYPE);
+        PrintWriter writer = response.getWriter();
+        writer.write(parts[0]);
+        fragment.render(model, request, response);
+        writer.write(parts[1]);
+    }
+
+    private String[] layout(HttpServletRequest request, HttpServletResponse response) throws Exception {
+        String[] parts = layout;
+        if (parts == null) {
+            synchronized (this) {
+                parts = layout;
+                if (parts == null) {
+                    // Rendered with the first request, so links get its context path and versioned asset URLs
+                    ContentCachingResponseWrapper buffer = new ContentCachingResponseWrapper(response);
+                    page.render(Map.of(SLOT_ATTRIBUTE, MARKER), request, buffer);
+                    String html = new String(buffer.getContentAsByteArray(), Charset.forName(buffer.getCharacterEncoding()));
+                    int slot = html.indexOf(MARKER);
+                    if (slot < 0) {
+                        throw new IllegalStateException("Result page template has no " + SLOT_ATTRIBUTE + " output");
+                    }
+                    parts = new String[]{html.substring(0, slot), html.substring(slot + MARKER.length())};
+                    layout = parts;
+                }
+            }
+        }
+        return parts;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.adyenwebdemo.view;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.View;
+import org.springframework.web.servlet.ViewResolver;
+import org.thymeleaf.spring6.view.ThymeleafViewResolver;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves the success, pending and failed result pages to {@link CachedResultPageView}s: the static layout of each
+ * page is rendered once and only its fragment in result-fragments.html per request. Other views, and all views when
+ * app.result-pages.cache.enabled=false, are left to Thymeleaf.
+ */
+@Component
+@ConditionalOnProperty(name = "app.result-pages.cache.enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+public class CachedResultPageViewResolver implements ViewResolver, Ordered {
+
+    private static final Set<String> RESULT_PAGES = Set.of("success", "pending", "failed");
+    private static final String FRAGMENTS_TEMPLATE = "result-fragments";
+
+    private final ThymeleafViewResolver thymeleafViewResolver;
+
+    /**
+     * One view per page; the pages are not localized, so the locale is not part of the key
+     */
+    private final Map<String, View> views = new ConcurrentHashMap<>();
+
+    @Override
+    public View resolveViewName(String viewName, Locale locale) throws Exception {
+        if (!RESULT_PAGES.contains(viewName)) {
+            return null;
+        }
+        View view = views.get(viewName);
+        if (view == null) {
+            view = new CachedResultPageView(thymeleafViewResolver.resolveViewName(viewName, locale),
+                    thymeleafViewResolver.resolveViewName(FRAGMENTS_TEMPLATE + " :: " + viewName, locale));
+            View existing = views.putIfAbsent(viewName, view);
+            if (existing != null) {
+                view = existing;
+            }
+        }
+        return view;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
@@ -0,0 +1,312 @@
+package com.example.adyenwebdemo.webhook;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Fixed-size filter of recently seen 64-bit keys, in a single memory-mapped file so it survives restarts.
+ * <p>
+ * Two layers:
+ * <ul>
+ *     <li>an exact table of the keys seen within the last {@code exactWindowMillis}: open addressing over
+ *     {@value #PROBE_LENGTH}-slot windows, where a new key takes an empty or expired slot, or else the oldest one.
+ *     A hit here is a certain duplicate</li>
+ *     <li>two generations of Bloom filters, each sized for {@code bloomCapacity} keys at false-positive rate
+ *     {@code fpp}. When the current generation is full or older than {@code generationMillis}, the older one is
+ *     cleared and becomes current, so keys are remembered for one to two generations. A hit here only is a
+ *     probable duplicate: a new key is wrongly taken for one with at most about twice {@code fpp}</li>
+ * </ul>
+ * Memory and file size depend only on the settings, never on the number of keys. Not thread-safe: callers
+ * serialize access.
+ */
+@Slf4j
+public class DuplicateFilter implements AutoCloseable {
+
+    static final int PROBE_LENGTH = 8;
+
+    private static final long MAGIC = 0x44555046494C5431L; // "DUPFILT1"
+    private static final int HEADER_SIZE = 128;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int BLOOM_BITS_OFFSET = 8;
+    private static final int HASHES_OFFSET = 16;
+    private static final int EXACT_CAPACITY_OFFSET = 24;
+    private static final int CURRENT_OFFSET = 32;
+    private static final int GENERATION_START_OFFSET = 40; // two longs
+    private static final int GENERATION_COUNT_OFFSET = 56; // two longs
+    /**
+     * Exact table timestamps are stored as int seconds from this instant (2020-01-01T00:00:00Z)
+     */
+    private static final long TIME_BASE_MILLIS = 1_577_836_800_000L;
+
+    private final ByteBuffer buffer;
+    private final FileChannel channel;
+    private final long bloomBits;
+    private final long bloomMask;
+    private final int hashes;
+    private final long bloomCapacity;
+    private final long generationMillis;
+    private final int exactCapacity;
+    private final int exactMask;
+    private final long exactWindowMillis;
+    private final int bloomOffset;
+    private final int exactKeysOffset;
+    private final int exactTimesOffset;
+
+    private DuplicateFilter(ByteBuffer buffer, FileChannel channel, long bloomCapacity, long bloomBits, int hashes,
+                            long generationMillis, int exactCapacity, long exactWindowMillis) {
+        this.buffer = buffer;
+        this.channel = channel;
+        this.bloomCapacity = bloomCapacity;
+        this.bloomBits = bloomBits;
+        this.bloomMask = bloomBits - 1;
+        this.hashes = hashes;
+        this.generationMillis = generationMillis;
+        this.exactCapacity = exactCapacity;
+        this.exactMask = exactCapacity - 1;
+        this.exactWindowMillis = exactWindowMillis;
+        this.bloomOffset = HEADER_SIZE;
+        this.exactKeysOffset = bloomOffset + (int) (2 * bloomBits / 8);
+        this.exactTimesOffset = exactKeysOffset + exactCapacity * Long.BYTES;
+    }
+
+    /**
+     * Maps the filter file, reusing its contents if it was written with the same sizes, otherwise starting empty
+     *
+     * @param file null keeps the filter in memory only
+     */
+    public static DuplicateFilter open(Path file, long bloomCapacity, double fpp, long generationMillis,
+                                       int exactCapacity, long exactWindowMillis) throws IOException {
+        // Bloom filter of optimal size for the capacity and false-positive rate, rounded up to a power of two
+        long optimalBits = (long) Math.ceil(-bloomCapacity * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        long bloomBits = Math.max(64, Long.highestOneBit(optimalBits - 1) << 1);
+        int hashes = (int) Math.max(1, Math.min(16, Math.round((double) bloomBits / bloomCapacity * Math.log(2))));
+        int exactSlots = Math.max(PROBE_LENGTH, Integer.highestOneBit(exactCapacity - 1) << 1);
+
+        long size = HEADER_SIZE + 2 * bloomBits / 8 + (long) exactSlots * (Long.BYTES + Integer.BYTES);
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Duplicate filter of " + size + " bytes exceeds a single mapping");
+        }
+
+        ByteBuffer buffer;
+        FileChannel channel = null;
+        boolean reused = false;
+        if (file == null) {
+            buffer = ByteBuffer.allocateDirect((int) size);
+        } else {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            reused = channel.size() == size;
+            if (!reused && channel.size() > 0) {
+                log.warn("Duplicate filter {} was written with other settings, starting empty", file);
+                channel.truncate(0);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+
+        reused = reused && buffer.getLong(MAGIC_OFFSET) == MAGIC && buffer.getLong(BLOOM_BITS_OFFSET) == bloomBits
+                && buffer.getLong(HASHES_OFFSET) == hashes && buffer.getLong(EXACT_CAPACITY_OFFSET) == exactSlots;
+        DuplicateFilter filter = new DuplicateFilter(buffer, channel, bloomCapacity, bloomBits, hashes,
+                generationMillis, exactSlots, exactWindowMillis);
+        if (!reused) {
+            filter.initialize(System.currentTimeMillis());
+        }
+        return filter;
+    }
+
+    private void initialize(long now) {
+        for (int offset = 0; offset + Long.BYTES <= buffer.capacity(); offset += Long.BYTES) {
+            buffer.putLong(offset, 0);
+        }
+        buffer.putLong(BLOOM_BITS_OFFSET, bloomBits);
+        buffer.putLong(HASHES_OFFSET, hashes);
+        buffer.putLong(EXACT_CAPACITY_OFFSET, exactCapacity);
+        buffer.putLong(GENERATION_START_OFFSET, now);
+        buffer.putLong(GENERATION_START_OFFSET + Long.BYTES, now);
+        // Written last: a file without the magic is reinitialized on the next open
+        buffer.putLong(MAGIC_OFFSET, MAGIC);
+    }
+
+    /**
+     * Records the key and tells whether it was seen before
+     */
+    public Result add(long key, long now) {
+        rotateIfDue(now);
+        key = nonZero(key);
+        Result result = check(key, now);
+        if (result != Result.DUPLICATE) {
+            exactPut(key, now);
+            bloomAdd(current(), key);
+        }
+        return result;
+    }
+
+    /**
+     * Tells whether the key was seen before, without recording it
+     */
+    public Result check(long key, long now) {
+        key = nonZero(key);
+        if (exactContains(key, now)) {
+            return Result.DUPLICATE;
+        }
+        return bloomContains(0, key) || bloomContains(1, key) ? Result.PROBABLE_DUPLICATE : Result.NEW;
+    }
+
+    public enum Result {
+        NEW,
+        DUPLICATE,
+        PROBABLE_DUPLICATE
+    }
+
+    /**
+     * 0 marks an empty exact slot
+     */
+    private static long nonZero(long key) {
+        return key == 0 ? 1 : key;
+    }
+
+    private int current() {
+        return (int) buffer.getLong(CURRENT_OFFSET);
+    }
+
+    private void rotateIfDue(long now) {
+        int current = current();
+        int countOffset = GENERATION_COUNT_OFFSET + current * Long.BYTES;
+        long started = buffer.getLong(GENERATION_START_OFFSET + current * Long.BYTES);
+        if (buffer.getLong(countOffset) < bloomCapacity && now - started < generationMillis) {
+            return;
+        }
+        int next = 1 - current;
+        int start = bloomOffset + (int) (next * bloomBits / 8);
+        for (int offset = start; offset < start + bloomBits / 8; offset += Long.BYTES) {
+            buffer.putLong(offset, 0);
+        }
+        buffer.putLong(GENERATION_START_OFFSET + next * Long.BYTES, now);
+        buffer.putLong(GENERATION_COUNT_OFFSET + next * Long.BYTES, 0);
+        buffer.putLong(CURRENT_OFFSET, next);
+        log.info("Duplicate filter generation rotated after {} keys", buffer.getLong(countOffset));
+    }
+
+    private boolean bloomContains(int generation, long key) {
+        int base = bloomOffset + (int) (generation * bloomBits / 8);
+        long h1 = key;
+        long h2 = mix(key) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = (h1 + i * h2) & bloomMask;
+            if ((buffer.getLong(base + (int) (bit >>> 6) * Long.BYTES) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void bloomAdd(int generation, long key) {
+        int base = bloomOffset + (int) (generation * bloomBits / 8);
+        long h1 = key;
+        long h2 = mix(key) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = (h1 + i * h2) & bloomMask;
+            int offset = base + (int) (bit >>> 6) * Long.BYTES;
+            buffer.putLong(offset, buffer.getLong(offset) | (1L << bit));
+        }
+        int countOffset = GENERATION_COUNT_OFFSET + generation * Long.BYTES;
+        buffer.putLong(countOffset, buffer.getLong(countOffset) + 1);
+    }
+
+    private boolean exactContains(long key, long now) {
+        int oldest = seconds(now - exactWindowMillis);
+        int slot = (int) key & exactMask;
+        for (int i = 0; i < PROBE_LENGTH; i++, slot = (slot + 1) & exactMask) {
+            if (buffer.getLong(exactKeysOffset + slot * Long.BYTES) == key
+                    && buffer.getInt(exactTimesOffset + slot * Integer.BYTES) >= oldest) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void exactPut(long key, long now) {
+        int slot = (int) key & exactMask;
+        int target = slot;
+        int targetTime = Integer.MAX_VALUE;
+        for (int i = 0; i < PROBE_LENGTH; i++, slot = (slot + 1) & exactMask) {
+            long existing = buffer.getLong(exactKeysOffset + slot * Long.BYTES);
+            int time = existing == 0 ? Integer.MIN_VALUE : buffer.getInt(exactTimesOffset + slot * Integer.BYTES);
+            if (existing == key) {
+                target = slot;
+                break;
+            }
+            if (time < targetTime) {
+                target = slot;
+                targetTime = time;
+            }
+        }
+        buffer.putLong(exactKeysOffset + target * Long.BYTES, key);
+        buffer.putInt(exactTimesOffset + target * Integer.BYTES, seconds(now));
+    }
+
+    private static int seconds(long millis) {
+        return (int) ((millis - TIME_BASE_MILLIS) / 1000);
+    }
+
+    /**
+     * Keys seen by the current Bloom generation
+     */
+    public long currentGenerationCount() {
+        return buffer.getLong(GENERATION_COUNT_OFFSET + current() * Long.BYTES);
+    }
+
+    public long sizeBytes() {
+        return buffer.capacity();
+    }
+
+    /**
+     * Writes the filter to disk; the operating system does so anyway, this only bounds what an OS crash can lose
+     */
+    public void flush() {
+        if (buffer instanceof MappedByteBuffer mapped) {
+            mapped.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * 64-bit hash of a key's parts, FNV-1a over the characters finished with the MurmurHash3 mixer
+     */
+    public static long hash(String... parts) {
+        long hash = 0xcbf29ce484222325L;
+        for (String part : parts) {
+            if (part != null) {
+                for (int i = 0; i < part.length(); i++) {
+                    hash = (hash ^ part.charAt(i)) * 0x100000001b3L;
+                }
+            }
+            hash = (hash ^ 0x1F) * 0x100000001b3L; // unit separator, so ("ab", "c") != ("a", "bc")
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb93fe53a87b9L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.adyenwebdemo.webhook;
+
+import com.example.adyenwebdemo.config.AdyenConfig;
+import com.example.adyenwebdemo.model.NotificationItem;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Validates the hmacSignature of webhook notification items using the configured HMAC key.
+ * Initialised {@link Mac} instances are pooled and reused, so validating an item only costs the digest itself.
+ * A shared pool rather than a ThreadLocal keeps the reuse when requests run on short-lived virtual threads.
+ * <p>
+ * An empty key leaves the validator unconfigured and webhooks are refused until one is set, so Adyen keeps
+ * retrying them; a key that is not hex fails startup.
+ */
+@Component
+@Slf4j
+public class HmacSignatureValidator {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec key;
+    private final Queue<Mac> macs = new ConcurrentLinkedQueue<>();
+
+    public HmacSignatureValidator(AdyenConfig adyenConfig) {
+        this.key = parseKey(adyenConfig.getHmacKey());
+    }
+
+    /**
+     * Whether an HMAC key is configured; without one no notification can be validated
+     */
+    public boolean isConfigured() {
+        return key != null;
+    }
+
+    /**
+     * Returns true if the item carries a signature matching its payload
+     */
+    public boolean isValid(NotificationItem item) {
+        if (key == null || item.getAdditionalData() == null) {
+            return false;
+        }
+        String signature = item.getAdditionalData().get("hmacSignature");
+        if (signature == null || signature.isEmpty()) {
+            return false;
+        }
+
+        byte[] expected = sign(signingString(item).getBytes(StandardCharsets.UTF_8));
+        byte[] actual;
+        try {
+            actual = Base64.getDecoder().decode(signature);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return MessageDigest.isEqual(expected, actual);
+    }
+
+    private byte[] sign(byte[] data) {
+        Mac mac = macs.poll();
+        if (mac == null) {
+            mac = newMac(key);
+        }
+        try {
+            return mac.doFinal(data);
+        } finally {
+            macs.offer(mac);
+        }
+    }
+
+    /**
+     * pspReference:originalReference:merchantAccountCode:merchantReference:value:currency:eventCode:success
+     */
+    static String signingString(NotificationItem item) {
+        StringBuilder sb = new StringBuilder(160);
+        append(sb, item.getPspReference()).append(':');
+        append(sb, item.getOriginalReference()).append(':');
+        append(sb, item.getMerchantAccountCode()).append(':');
+        append(sb, item.getMerchantReference()).append(':');
+        if (item.getAmount() != null) {
+            if (item.getAmount().getValue() != null) {
+                sb.append(item.getAmount().getValue());
+            }
+            sb.append(':');
+            append(sb, item.getAmount().getCurrency()).append(':');
+        } else {
+            sb.append("::");
+        }
+        append(sb, item.getEventCode()).append(':');
+        append(sb, item.getSuccess());
+        return sb.toString();
+    }
+
+    private static StringBuilder append(StringBuilder sb, String value) {
+        return value != null ? sb.append(value) : sb;
+    }
+
+    /**
+     * No key leaves webhooks unconfigured; an invalid one would drop every notification, so it fails startup
+     */
+    private static SecretKeySpec parseKey(String hmacKey) {
+        if (hmacKey == null || hmacKey.isBlank()) {
+            log.warn("No adyen.hmac.key configured, webhook notifications are refused until one is set");
+            return null;
+        }
+        try {
+            SecretKeySpec key = new SecretKeySpec(HexFormat.of().parseHex(hmacKey.trim()), ALGORITHM);
+            newMac(key);
+            return key;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid adyen.hmac.key, expected the hex key from the Customer Area: "
+                    + e.getMessage(), e);
+        }
+    }
+
+    private static Mac newMac(SecretKeySpec key) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not initialise HMAC validator", e);
+        }
+    }
+}
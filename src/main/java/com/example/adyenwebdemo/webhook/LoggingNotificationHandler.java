@@ -0,0 +1,23 @@
+package com.example.adyenwebdemo.webhook;
+
+import com.example.adyenwebdemo.model.NotificationItem;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Logs a one-line summary of each processed notification
+ */
+@Component
+@Slf4j
+public class LoggingNotificationHandler implements NotificationHandler {
+
+    @Override
+    public void handle(List<NotificationItem> batch) {
+        for (NotificationItem item : batch) {
+            log.info("Webhook notification - Event: {}, Success: {}, PSP Reference: {}, Merchant Reference: {}",
+                    item.getEventCode(), item.getSuccess(), item.getPspReference(), item.getMerchantReference());
+        }
+    }
+}
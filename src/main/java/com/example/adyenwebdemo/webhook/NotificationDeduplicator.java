@@ -0,0 +1,124 @@
+package com.example.adyenwebdemo.webhook;
+
+import com.example.adyenwebdemo.model.NotificationItem;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drops notifications Adyen has delivered before, identified by (pspReference, eventCode, success), before any
+ * {@link NotificationHandler} sees them. Retries within adyen.webhook.dedupe.exact-window-minutes are recognized
+ * exactly and dropped. Later ones (Adyen retries for days) are only recognized by a Bloom filter, see
+ * {@link DuplicateFilter}; those probable duplicates are counted but still processed.
+ * The filter is a memory-mapped file, so a restart keeps what was seen.
+ * <p>
+ * Deduplication is per node, not across the cluster: each node has its own file, and a retry that lands on another
+ * node is only caught there if that node saw the first delivery. Sharing the filter would put a network round trip
+ * to a shared store in front of every notification; instead webhooks are expected to reach the same node (sticky
+ * routing on the webhook endpoint) and {@link NotificationHandler}s stay idempotent for the retries that don't.
+ */
+@Component
+@Slf4j
+public class NotificationDeduplicator {
+
+    private final boolean enabled;
+    private final Path file;
+    private final long bloomCapacity;
+    private final double fpp;
+    private final Duration generation;
+    private final int exactCapacity;
+    private final Duration exactWindow;
+
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong probableDuplicates = new AtomicLong();
+
+    private DuplicateFilter filter;
+
+    public NotificationDeduplicator(
+            @Value("${adyen.webhook.dedupe.enabled:true}") boolean enabled,
+            @Value("${adyen.webhook.dedupe.file:data/webhook-dedupe.bin}") Path file,
+            @Value("${adyen.webhook.dedupe.bloom.capacity:1000000}") long bloomCapacity,
+            @Value("${adyen.webhook.dedupe.bloom.fpp:0.000001}") double fpp,
+            @Value("${adyen.webhook.dedupe.bloom.generation-hours:168}") long generationHours,
+            @Value("${adyen.webhook.dedupe.exact.capacity:262144}") int exactCapacity,
+            @Value("${adyen.webhook.dedupe.exact.window-minutes:60}") long exactWindowMinutes) {
+        this.enabled = enabled;
+        this.file = file;
+        this.bloomCapacity = bloomCapacity;
+        this.fpp = fpp;
+        this.generation = Duration.ofHours(generationHours);
+        this.exactCapacity = exactCapacity;
+        this.exactWindow = Duration.ofMinutes(exactWindowMinutes);
+    }
+
+    @PostConstruct
+    void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        filter = DuplicateFilter.open(file, bloomCapacity, fpp, generation.toMillis(), exactCapacity,
+                exactWindow.toMillis());
+        log.info("Webhook duplicate filter {} opened ({} KB, {} keys in current generation)", file,
+                filter.sizeBytes() / 1024, filter.currentGenerationCount());
+    }
+
+    /**
+     * Removes the notifications already seen from the batch
+     */
+    public void removeDuplicates(List<NotificationItem> batch) {
+        removeDuplicates(batch, System.currentTimeMillis());
+    }
+
+    /**
+     * Drops exact duplicates only. A Bloom filter match may be a false positive, and dropping it would lose a
+     * notification for good, so probable duplicates are counted and passed on to the idempotent handlers.
+     */
+    synchronized void removeDuplicates(List<NotificationItem> batch, long now) {
+        if (filter == null) {
+            return;
+        }
+        batch.removeIf(item -> {
+            DuplicateFilter.Result result = filter.add(DuplicateFilter.hash(item.getPspReference(),
+                    item.getEventCode(), item.getSuccess()), now);
+            switch (result) {
+                case DUPLICATE -> {
+                    duplicates.incrementAndGet();
+                    log.info("Dropping duplicate webhook notification - Event: {}, PSP Reference: {}",
+                            item.getEventCode(), item.getPspReference());
+                    return true;
+                }
+                case PROBABLE_DUPLICATE -> {
+                    probableDuplicates.incrementAndGet();
+                    log.info("Processing probable duplicate webhook notification - Event: {}, PSP Reference: {}",
+                            item.getEventCode(), item.getPspReference());
+                }
+                case NEW -> {
+                }
+            }
+            return false;
+        });
+    }
+
+    @PreDestroy
+    synchronized void close() throws IOException {
+        if (filter != null) {
+            filter.close();
+            filter = null;
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(duplicates.get(), probableDuplicates.get());
+    }
+
+    public record Stats(long duplicates, long probableDuplicates) {
+    }
+}
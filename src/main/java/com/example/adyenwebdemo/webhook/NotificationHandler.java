@@ -0,0 +1,14 @@
+package com.example.adyenwebdemo.webhook;
+
+import com.example.adyenwebdemo.model.NotificationItem;
+
+import java.util.List;
+
+/**
+ * Downstream processing step for validated webhook notifications.
+ * Handlers are invoked from the ingestion worker threads, one batch at a time.
+ */
+public interface NotificationHandler {
+
+    void handle(List<NotificationItem> batch);
+}
@@ -0,0 +1,40 @@
+package com.example.adyenwebdemo.webhook;
+
+import com.example.adyenwebdemo.model.NotificationItem;
+import com.example.adyenwebdemo.state.PaymentEvent;
+import com.example.adyenwebdemo.state.PaymentEventType;
+import com.example.adyenwebdemo.state.PaymentStateStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Records the AUTHORISATION result of payments in the {@link PaymentStateStore}, so the result page of a payment
+ * that was still Pending or Received when the shopper came back shows its final result once Adyen has sent it.
+ * Only payments the store knows are recorded.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentStateNotificationHandler implements NotificationHandler {
+
+    private static final String AUTHORISATION = "AUTHORISATION";
+
+    private final PaymentStateStore paymentStateStore;
+
+    @Override
+    public void handle(List<NotificationItem> batch) {
+        for (NotificationItem item : batch) {
+            if (!AUTHORISATION.equals(item.getEventCode())
+                    || paymentStateStore.findByMerchantReference(item.getMerchantReference()).isEmpty()) {
+                continue;
+            }
+            String resultCode = item.isSuccessful() ? "Authorised" : "Refused";
+            log.debug("Payment {} {} by webhook", item.getMerchantReference(), resultCode);
+            paymentStateStore.record(PaymentEvent.of(PaymentEventType.RESULT, item.getMerchantReference(),
+                    item.getPspReference(), resultCode, null));
+        }
+    }
+}
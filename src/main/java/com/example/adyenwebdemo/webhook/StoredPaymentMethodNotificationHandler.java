@@ -0,0 +1,81 @@
+package com.example.adyenwebdemo.webhook;
+
+import com.adyen.model.checkout.StoredPaymentMethod;
+import com.example.adyenwebdemo.model.NotificationItem;
+import com.example.adyenwebdemo.service.PaymentMethodsCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the cached stored payment methods of returning shoppers up to date, so their checkouts can be served
+ * without calling /paymentMethods. A payment method is stored when Adyen sends a successful RECURRING_CONTRACT
+ * notification (its pspReference is the stored payment method id) or an AUTHORISATION carrying
+ * recurring.recurringDetailReference.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StoredPaymentMethodNotificationHandler implements NotificationHandler {
+
+    private static final String RECURRING_CONTRACT = "RECURRING_CONTRACT";
+    private static final String AUTHORISATION = "AUTHORISATION";
+    private static final List<String> SHOPPER_INTERACTIONS = List.of("Ecommerce", "ContAuth");
+
+    private final PaymentMethodsCache paymentMethodsCache;
+
+    @Override
+    public void handle(List<NotificationItem> batch) {
+        for (NotificationItem item : batch) {
+            if (!item.isSuccessful()) {
+                continue;
+            }
+            Map<String, String> additionalData = item.getAdditionalData() != null ? item.getAdditionalData() : Map.of();
+            String storedPaymentMethodId;
+            if (RECURRING_CONTRACT.equals(item.getEventCode())) {
+                storedPaymentMethodId = item.getPspReference();
+            } else if (AUTHORISATION.equals(item.getEventCode())) {
+                storedPaymentMethodId = additionalData.get("recurring.recurringDetailReference");
+            } else {
+                continue;
+            }
+            String shopperReference = additionalData.getOrDefault("recurring.shopperReference",
+                    additionalData.get("shopperReference"));
+            if (storedPaymentMethodId == null || shopperReference == null) {
+                log.debug("{} notification {} has no stored payment method details", item.getEventCode(),
+                        item.getPspReference());
+                continue;
+            }
+            paymentMethodsCache.putStoredPaymentMethod(item.getMerchantAccountCode(), shopperReference,
+                    toStoredPaymentMethod(storedPaymentMethodId, item.getPaymentMethod(), additionalData));
+        }
+    }
+
+    /**
+     * The notification carries the display details of cards (cardSummary, expiryDate, cardHolderName);
+     * other payment methods are stored with their type only
+     */
+    static StoredPaymentMethod toStoredPaymentMethod(String id, String paymentMethod, Map<String, String> additionalData) {
+        StoredPaymentMethod method = new StoredPaymentMethod()
+                .id(id)
+                .supportedShopperInteractions(SHOPPER_INTERACTIONS);
+        String cardSummary = additionalData.get("cardSummary");
+        if (cardSummary == null) {
+            return method.type(paymentMethod).name(paymentMethod);
+        }
+        method.type("scheme").brand(paymentMethod).lastFour(cardSummary)
+                .holderName(additionalData.get("cardHolderName"));
+        // expiryDate is M/YYYY
+        String expiryDate = additionalData.get("expiryDate");
+        int separator = expiryDate != null ? expiryDate.indexOf('/') : -1;
+        if (separator > 0) {
+            String month = expiryDate.substring(0, separator);
+            method.expiryMonth(month.length() == 1 ? "0" + month : month)
+                    .expiryYear(expiryDate.substring(separator + 1));
+        }
+        return method;
+    }
+}
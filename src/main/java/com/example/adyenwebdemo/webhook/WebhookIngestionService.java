@@ -0,0 +1,244 @@
+package com.example.adyenwebdemo.webhook;
+
+import com.example.adyenwebdemo.model.NotificationItem;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ingests Adyen webhook batches: streams the notificationItems array, validates each item's HMAC signature
+ * and hands valid items to a bounded queue. A small worker pool drains the queue in batches and passes
+ * them to every {@link NotificationHandler}, so the HTTP request never waits on downstream processing.
+ * Notifications delivered before are dropped by the {@link NotificationDeduplicator} on the way.
+ * <p>
+ * A webhook batch is queued as a whole or not at all: Adyen redelivers a refused batch in full, so queuing
+ * part of it would process those items twice.
+ */
+@Service
+@Slf4j
+public class WebhookIngestionService {
+
+    private final ObjectMapper objectMapper;
+    private final HmacSignatureValidator hmacSignatureValidator;
+    private final NotificationDeduplicator deduplicator;
+    private final List<NotificationHandler> handlers;
+    private final BlockingQueue<NotificationItem> queue;
+    /**
+     * Free places in the queue, reserved for a whole batch before any of it is queued
+     */
+    private final Semaphore capacity;
+    private final int workers;
+    private final int batchSize;
+    private final long drainTimeoutSeconds;
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong invalidSignature = new AtomicLong();
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong unconfigured = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    private ExecutorService executor;
+    private volatile boolean accepting = true;
+    private volatile boolean running = true;
+
+    public WebhookIngestionService(
+            ObjectMapper objectMapper,
+            HmacSignatureValidator hmacSignatureValidator,
+            NotificationDeduplicator deduplicator,
+            List<NotificationHandler> handlers,
+            @Value("${adyen.webhook.queue-capacity:10000}") int queueCapacity,
+            @Value("${adyen.webhook.workers:2}") int workers,
+            @Value("${adyen.webhook.batch-size:100}") int batchSize,
+            @Value("${adyen.webhook.drain-timeout-seconds:10}") long drainTimeoutSeconds) {
+        this.objectMapper = objectMapper;
+        this.hmacSignatureValidator = hmacSignatureValidator;
+        this.deduplicator = deduplicator;
+        this.handlers = handlers;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.capacity = new Semaphore(queueCapacity);
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.drainTimeoutSeconds = drainTimeoutSeconds;
+    }
+
+    @PostConstruct
+    void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "webhook-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workers; i++) {
+            executor.execute(this::drainLoop);
+        }
+        log.info("Webhook ingestion started with {} workers, queue capacity {}", workers, capacity.availablePermits());
+    }
+
+    /**
+     * Parses a webhook payload and enqueues its valid items.
+     *
+     * @return false if nothing was queued and the batch should be retried by Adyen: the queue has no room for
+     * the whole batch, the application is shutting down or no HMAC key is configured
+     */
+    public boolean ingest(InputStream payload) throws IOException {
+        if (!accepting) {
+            return false;
+        }
+        if (!hmacSignatureValidator.isConfigured()) {
+            unconfigured.incrementAndGet();
+            log.warn("Refusing webhook notifications: no adyen.hmac.key configured to validate them");
+            return false;
+        }
+
+        List<NotificationItem> items = new ArrayList<>();
+        try (JsonParser parser = objectMapper.getFactory().createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected a notification object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("notificationItems".equals(field) && value == JsonToken.START_ARRAY) {
+                    readItems(parser, items);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return enqueue(items);
+    }
+
+    /**
+     * Reads [{"NotificationRequestItem": {...}}, ...] one item at a time, keeping those with a valid signature
+     */
+    private void readItems(JsonParser parser, List<NotificationItem> items) throws IOException {
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String wrapper = parser.getCurrentName();
+                parser.nextToken();
+                if (!"NotificationRequestItem".equals(wrapper)) {
+                    parser.skipChildren();
+                    continue;
+                }
+
+                NotificationItem item = objectMapper.readValue(parser, NotificationItem.class);
+                received.incrementAndGet();
+                if (!hmacSignatureValidator.isValid(item)) {
+                    invalidSignature.incrementAndGet();
+                    log.warn("Discarding webhook notification with invalid HMAC signature, PSP Reference: {}",
+                            item.getPspReference());
+                } else {
+                    items.add(item);
+                }
+            }
+        }
+    }
+
+    /**
+     * Queues all items of a batch if there is room for all of them, none otherwise
+     */
+    private boolean enqueue(List<NotificationItem> items) {
+        if (items.isEmpty()) {
+            return true;
+        }
+        if (!capacity.tryAcquire(items.size())) {
+            rejected.addAndGet(items.size());
+            log.warn("Webhook queue has no room for a batch of {} notifications", items.size());
+            return false;
+        }
+        // Cannot fail: places are only given back once items have left the queue
+        queue.addAll(items);
+        enqueued.addAndGet(items.size());
+        return true;
+    }
+
+    private void drainLoop() {
+        List<NotificationItem> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                NotificationItem first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                capacity.release(batch.size());
+                dispatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void dispatch(List<NotificationItem> batch) {
+        batches.incrementAndGet();
+        deduplicator.removeDuplicates(batch);
+        if (batch.isEmpty()) {
+            return;
+        }
+        for (NotificationHandler handler : handlers) {
+            try {
+                handler.handle(batch);
+            } catch (RuntimeException e) {
+                failed.addAndGet(batch.size());
+                log.error("Webhook handler {} failed for a batch of {} notifications",
+                        handler.getClass().getSimpleName(), batch.size(), e);
+            }
+        }
+        processed.addAndGet(batch.size());
+    }
+
+    /**
+     * Stops accepting new notifications and lets the workers drain what is already queued
+     */
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        accepting = false;
+        running = false;
+        executor.shutdown();
+        if (!executor.awaitTermination(drainTimeoutSeconds, TimeUnit.SECONDS)) {
+            log.warn("Webhook queue not drained within {}s, {} notifications dropped", drainTimeoutSeconds, queue.size());
+            executor.shutdownNow();
+        }
+        log.info("Webhook ingestion stopped: {}", stats());
+    }
+
+    public Stats stats() {
+        return new Stats(received.get(), invalidSignature.get(), enqueued.get(), rejected.get(), unconfigured.get(),
+                processed.get(), failed.get(), batches.get(), queue.size(), capacity.availablePermits());
+    }
+
+    /**
+     * @param rejected     items refused because the queue had no room for their batch
+     * @param unconfigured batches refused because no HMAC key is configured
+     */
+    public record Stats(long received, long invalidSignature, long enqueued, long rejected, long unconfigured,
+                        long processed, long failed, long batches, int queueDepth, int remainingCapacity) {
+    }
+}
@@ -94,6 +94,13 @@ document.addEventListener('DOMContentLoaded', () => {
             // Initialize Adyen checkout with payment methods data
             const { AdyenCheckout, Dropin } = window.AdyenWeb;
 
+            // Reference of the last /payments call: the server routes its details call by it
+            let merchantReference = null;
+            // Idempotency-Key of this checkout: a submit after a lost response or a server error resends it, so the
+            // server joins or replays the first payment instead of making a second one. A final result or a
+            // rejected request ends the attempt, and the next submit is a new payment
+            let paymentKey = crypto.randomUUID();
+
             const checkout = await AdyenCheckout({
                 environment: 'test', // Using test environment
                 clientKey: clientKey,
@@ -147,15 +154,23 @@ document.addEventListener('DOMContentLoaded', () => {
                             method: 'POST',
                             headers: {
                                 'Content-Type': 'application/json',
+                                'Idempotency-Key': paymentKey,
                             },
                             body: JSON.stringify(paymentRequest)
                         });
 
                         if (!result.ok) {
+                            if (result.status < 500 && result.status !== 429) {
+                                paymentKey = crypto.randomUUID();
+                            }
                             throw new Error('Payment request failed');
                         }
 
                         const paymentResult = await result.json();
+                        merchantReference = paymentResult.merchantReference;
+                        if (!paymentResult.action) {
+                            paymentKey = crypto.randomUUID();
+                        }
 
                         // If the /payments request from your server fails, or if an unexpected error occurs
                         if (!paymentResult.resultCode) {
@@ -201,7 +216,8 @@ document.addEventListener('DOMContentLoaded', () => {
                             },
                             body: JSON.stringify({
                                 threeDSResult: state.data.details.threeDSResult,
-                                paymentData: state.data.paymentData
+                                paymentData: state.data.paymentData,
+                                merchantReference: merchantReference
                             })
                         })
                         .then(response => {
@@ -227,12 +243,11 @@ document.addEventListener('DOMContentLoaded', () => {
                             console.log('Stored payment result in sessionStorage before redirect');
 
                             // For 3DS, we use client-side storage because the server doesn't have context
-                            // Redirect based on result code
-                            const resultCodeUpper = data.resultCode ? data.resultCode.toUpperCase() : '';
-                            if (resultCodeUpper === 'AUTHORISED') {
+                            // Redirect based on the outcome the server classified the result code as
+                            if (data.outcome === 'SUCCESS') {
                                 console.log('Payment authorized, redirecting to success page');
                                 window.location.href = '/success';
-                            } else if (resultCodeUpper === 'PENDING' || resultCodeUpper === 'RECEIVED') {
+                            } else if (data.outcome === 'PENDING' || data.outcome === 'ACTION') {
                                 window.location.href = '/pending';
                             } else {
                                 sessionStorage.setItem('paymentError', 'Payment failed: ' + data.resultCode);
@@ -287,11 +302,10 @@ document.addEventListener('DOMContentLoaded', () => {
         sessionStorage.setItem('paymentResult', JSON.stringify(result));
         paymentModal.style.display = 'none';
 
-        // Redirect based on result code - case insensitive comparison
-        const resultCodeUpper = result.resultCode ? result.resultCode.toUpperCase() : '';
-        if (resultCodeUpper === 'AUTHORISED') {
+        // Redirect based on the outcome the server classified the result code as
+        if (result.outcome === 'SUCCESS') {
             window.location.href = '/success';
-        } else if (resultCodeUpper === 'PENDING' || resultCodeUpper === 'RECEIVED') {
+        } else if (result.outcome === 'PENDING' || result.outcome === 'ACTION') {
             // Store pending info for pending page
             sessionStorage.setItem('pendingPayment', JSON.stringify(result));
             window.location.href = '/pending';
@@ -22,8 +22,7 @@ document.addEventListener('DOMContentLoaded', () => {
         handleRedirectResult(redirectResult);
     }
 
-    // We now always show the shopper reference field
-    // The checkbox only controls the recurring processing model
+    // We always show the shopper reference field; it is optional unless the checkbox enables recurring
 
     // Modal elements
     const paymentModal = document.getElementById('payment-modal');
@@ -41,6 +40,11 @@ document.addEventListener('DOMContentLoaded', () => {
         }
     });
 
+    // Idempotency-Key of the current checkout attempt. Clicking Pay again for the same cart after a lost response or a
+    // server error resends it, so the server joins or replays the first request instead of creating a second
+    // session; a created session or a rejected request ends the attempt
+    let attempt = null;
+
     // Handle payment button click
     payButton.addEventListener('click', async () => {
         try {
@@ -56,39 +60,48 @@ document.addEventListener('DOMContentLoaded', () => {
             const enableRecurring = document.getElementById('enableRecurring').checked;
             const shopperReference = document.getElementById('shopperReference').value;
 
-            // Validate shopper reference is provided and meets minimum length
-            if (!shopperReference) {
-                throw new Error('Shopper Reference is required');
+            // A shopper reference is needed to store the payment method; guests check out without one and can be
+            // served a pre-warmed session
+            if (!shopperReference && enableRecurring) {
+                throw new Error('Shopper Reference is required for recurring payments');
             }
 
             // Adyen requires shopperReference to be at least 3 characters
-            if (shopperReference.length < 3) {
+            if (shopperReference && shopperReference.length < 3) {
                 errorElement.textContent = 'Shopper Reference must be at least 3 characters';
                 errorElement.style.display = 'block';
                 document.getElementById('shopperReference').focus();
                 throw new Error('Shopper Reference must be at least 3 characters');
             }
 
-            // Create payment session request - always include shopper reference
+            // Create payment session request, with the shopper reference if one was given
             const sessionRequest = {
                 amount: amount,
                 currency: currency,
                 countryCode: countryCode,
                 returnUrl: window.location.origin + '/success',
                 enableRecurring: enableRecurring,
-                shopperReference: shopperReference
+                shopperReference: shopperReference || undefined
             };
 
-            // Call backend API to create session
+            // Call backend API to create session; a changed cart is a new attempt
+            const body = JSON.stringify(sessionRequest);
+            if (!attempt || attempt.body !== body) {
+                attempt = { key: crypto.randomUUID(), body: body };
+            }
             const response = await fetch('/api/sessions', {
                 method: 'POST',
                 headers: {
                     'Content-Type': 'application/json',
+                    'Idempotency-Key': attempt.key,
                 },
-                body: JSON.stringify(sessionRequest)
+                body: body
             });
 
             if (!response.ok) {
+                if (response.status < 500 && response.status !== 429) {
+                    attempt = null;
+                }
                 // Try to parse the error as JSON first
                 try {
                     const errorData = await response.json();
@@ -103,6 +116,7 @@ document.addEventListener('DOMContentLoaded', () => {
             }
 
             // Parse session data from response
+            attempt = null;
             const sessionData = await response.json();
             console.log('Session created successfully:', sessionData.sessionId);
 
@@ -151,7 +165,8 @@ document.addEventListener('DOMContentLoaded', () => {
                             },
                             body: JSON.stringify({
                                 threeDSResult: state.data.details.threeDSResult,
-                                paymentData: state.data.paymentData
+                                paymentData: state.data.paymentData,
+                                merchantReference: sessionData.reference
                             })
                         })
                         .then(response => {
@@ -178,12 +193,11 @@ document.addEventListener('DOMContentLoaded', () => {
                             console.log('Stored payment result in sessionStorage before redirect');
 
                             // For 3DS, we use client-side storage because the server doesn't have context
-                            // Redirect based on result code
-                            const resultCodeUpper = data.resultCode ? data.resultCode.toUpperCase() : '';
-                            if (resultCodeUpper === 'AUTHORISED') {
+                            // Redirect based on the outcome the server classified the result code as
+                            if (data.outcome === 'SUCCESS') {
                                 console.log('Payment authorized, redirecting to success page');
                                 window.location.href = '/success';
-                            } else if (resultCodeUpper === 'PENDING' || resultCodeUpper === 'RECEIVED') {
+                            } else if (data.outcome === 'PENDING' || data.outcome === 'ACTION') {
                                 window.location.href = '/pending';
                             } else {
                                 sessionStorage.setItem('paymentError', 'Payment failed: ' + data.resultCode);
@@ -224,11 +238,10 @@ document.addEventListener('DOMContentLoaded', () => {
                         data.flowType = 'sessions';
                         sessionStorage.setItem('paymentResult', JSON.stringify(data));
 
-                        // Redirect based on result code
-                        const resultCodeUpper = data.resultCode ? data.resultCode.toUpperCase() : '';
-                        if (resultCodeUpper === 'AUTHORISED') {
+                        // Redirect based on the outcome the server classified the result code as
+                        if (data.outcome === 'SUCCESS') {
                             window.location.href = '/success';
-                        } else if (resultCodeUpper === 'PENDING' || resultCodeUpper === 'RECEIVED') {
+                        } else if (data.outcome === 'PENDING' || data.outcome === 'ACTION') {
                             data.flowType = 'sessions';
                             sessionStorage.setItem('pendingPayment', JSON.stringify(data));
                             window.location.href = '/pending';
@@ -336,7 +349,8 @@ document.addEventListener('DOMContentLoaded', () => {
                     'Content-Type': 'application/json',
                 },
                 body: JSON.stringify({
-                    redirectResult: redirectResult
+                    redirectResult: redirectResult,
+                    merchantReference: urlParams.get('reference')
                 })
             })
             .then(response => {
@@ -380,12 +394,11 @@ document.addEventListener('DOMContentLoaded', () => {
                     console.error('Error parsing stored data:', e);
                 }
 
-                // Redirect based on result code
-                const resultCodeUpper = data.resultCode ? data.resultCode.toUpperCase() : '';
-                if (resultCodeUpper === 'AUTHORISED' || resultCodeUpper === 'AUTHENTICATED') {
+                // Redirect based on the outcome the server classified the result code as
+                if (data.outcome === 'SUCCESS') {
                     console.log('Payment authorized, redirecting to success page');
                     window.location.href = '/success';
-                } else if (resultCodeUpper === 'PENDING' || resultCodeUpper === 'RECEIVED') {
+                } else if (data.outcome === 'PENDING' || data.outcome === 'ACTION') {
                     window.location.href = '/pending';
                 } else {
                     sessionStorage.setItem('paymentError', 'Payment failed: ' + data.resultCode);
@@ -0,0 +1,149 @@
+package com.example.adyenwebdemo.http;
+
+import com.adyen.Client;
+import com.adyen.Config;
+import com.adyen.constants.ApiConstants;
+import com.adyen.enums.Environment;
+import com.adyen.httpclient.HTTPClientException;
+import com.adyen.model.RequestOptions;
+import com.adyen.model.checkout.Amount;
+import com.adyen.model.checkout.PaymentMethodsRequest;
+import com.adyen.service.checkout.PaymentsApi;
+import com.example.adyenwebdemo.stub.AdyenCheckoutStub;
+import com.example.adyenwebdemo.stub.LatencyDistribution;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PooledAdyenHttpClientTest {
+
+    private final Set<SocketAddress> connections = ConcurrentHashMap.newKeySet();
+    private final List<Headers> requestHeaders = new CopyOnWriteArrayList<>();
+
+    private HttpServer server;
+    private PooledAdyenHttpClient httpClient;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.createContext("/v71/paymentMethods", exchange -> reply(exchange, 200, "{}", Map.of()));
+        server.createContext("/v71/payments", exchange -> reply(exchange, 429,
+                "{\"status\":429,\"errorCode\":\"429\",\"message\":\"Too many requests\"}", Map.of("Retry-After", "3")));
+        server.start();
+        httpClient = new PooledAdyenHttpClient(new PooledAdyenHttpClient.Settings(10, 10, 2000, 2000, 5000, Map.of(),
+                30000, 300000));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        httpClient.close();
+        server.stop(0);
+    }
+
+    private void reply(HttpExchange exchange, int status, String body, Map<String, String> headers) throws IOException {
+        connections.add(exchange.getRemoteAddress());
+        requestHeaders.add(exchange.getRequestHeaders());
+        exchange.getRequestBody().readAllBytes();
+        headers.forEach(exchange.getResponseHeaders()::set);
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private String endpoint(String path) {
+        return "http://localhost:" + server.getAddress().getPort() + "/v71" + path;
+    }
+
+    private static Config config() {
+        Config config = new Config();
+        config.setApiKey("test-api-key");
+        config.setApplicationName("test");
+        return config;
+    }
+
+    @Test
+    void sequentialCallsReuseOneConnection() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            httpClient.request(endpoint("/paymentMethods"), "{}", config(), true, null,
+                    ApiConstants.HttpMethod.POST, null);
+        }
+
+        assertThat(connections).hasSize(1);
+        assertThat(httpClient.poolStats().getLeased()).isZero();
+        assertThat(httpClient.poolStats().getAvailable()).isEqualTo(1);
+    }
+
+    @Test
+    void sendsCredentialAndAllRequestOptionHeaders() throws Exception {
+        RequestOptions requestOptions = new RequestOptions();
+        requestOptions.idempotencyKey("key-1");
+        requestOptions.requestedVerificationCodeHeader("verification-code");
+        requestOptions.additionalServiceHeaders(new HashMap<>(Map.of("x-custom-header", "custom")));
+
+        httpClient.request(endpoint("/paymentMethods"), "{}", config(), true, requestOptions,
+                ApiConstants.HttpMethod.POST, null);
+
+        Headers headers = requestHeaders.get(0);
+        assertThat(headers.getFirst("x-api-key")).isEqualTo("test-api-key");
+        assertThat(headers.getFirst("Idempotency-Key")).isEqualTo("key-1");
+        assertThat(headers.getFirst("x-requested-verification-code")).isEqualTo("verification-code");
+        assertThat(headers.getFirst("x-custom-header")).isEqualTo("custom");
+        assertThat(headers.getFirst("Content-Type")).isEqualTo("application/json");
+    }
+
+    @Test
+    void errorResponsesKeepStatusAndHeaders() {
+        assertThatThrownBy(() -> httpClient.request(endpoint("/payments"), "{}", config(), true, null,
+                ApiConstants.HttpMethod.POST, null))
+                .isInstanceOfSatisfying(HTTPClientException.class, e -> {
+                    assertThat(e.getCode()).isEqualTo(429);
+                    assertThat(e.getResponseHeaders().get("Retry-After")).containsExactly("3");
+                });
+        // The connection of an error response is reused too
+        assertThat(httpClient.poolStats().getAvailable()).isEqualTo(1);
+    }
+
+    @Test
+    void checkoutCallsThroughTheStubShareThePool() throws Exception {
+        try (AdyenCheckoutStub stub = new AdyenCheckoutStub(new AdyenCheckoutStub.Settings(0, 2,
+                LatencyDistribution.parse("fixed:0"), Map.of(), 0, 0, 0, 0, List.of("Authorised"),
+                List.of("Authorised"), 42))) {
+            stub.start();
+            Client client = new Client("test-api-key", Environment.TEST);
+            client.setHttpClient(httpClient);
+            PaymentsApi paymentsApi = new PaymentsApi(client, "http://localhost:" + stub.getPort() + "/v71");
+
+            for (int i = 0; i < 10; i++) {
+                assertThat(paymentsApi.paymentMethods(new PaymentMethodsRequest()
+                        .merchantAccount("TestMerchant")
+                        .amount(new Amount().currency("EUR").value(1000L))
+                        .countryCode("NL")).getPaymentMethods()).isNotEmpty();
+            }
+
+            assertThat(httpClient.poolStats().getLeased()).isZero();
+            assertThat(httpClient.poolStats().getAvailable()).isEqualTo(1);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.adyenwebdemo.model;
+
+import com.adyen.model.checkout.PaymentResponse;
+import com.adyen.model.checkout.SessionResultResponse;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PaymentOutcomeTest {
+
+    @Test
+    void classifiesResultCodesCaseInsensitively() {
+        assertThat(PaymentOutcome.of("Authorised")).isEqualTo(PaymentOutcome.SUCCESS);
+        assertThat(PaymentOutcome.of("success")).isEqualTo(PaymentOutcome.SUCCESS);
+        assertThat(PaymentOutcome.of("ChallengeShopper")).isEqualTo(PaymentOutcome.ACTION);
+        assertThat(PaymentOutcome.of("REFUSED")).isEqualTo(PaymentOutcome.FAILED);
+        assertThat(PaymentOutcome.of("active")).isEqualTo(PaymentOutcome.PENDING);
+        assertThat(PaymentOutcome.of((String) null)).isNull();
+    }
+
+    @Test
+    void unknownCodeIsPendingNotFailed() {
+        assertThat(PaymentOutcome.of("SomeFutureCode")).isEqualTo(PaymentOutcome.PENDING);
+    }
+
+    @Test
+    void everyAdyenEnumValueIsClassified() {
+        for (PaymentResponse.ResultCodeEnum code : PaymentResponse.ResultCodeEnum.values()) {
+            assertThat(PaymentOutcome.of(code)).isEqualTo(PaymentOutcome.of(code.toString()));
+        }
+        for (SessionResultResponse.StatusEnum status : SessionResultResponse.StatusEnum.values()) {
+            assertThat(PaymentOutcome.of(status)).isEqualTo(PaymentOutcome.of(status.toString()));
+        }
+    }
+}
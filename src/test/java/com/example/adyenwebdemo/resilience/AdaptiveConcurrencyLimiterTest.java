@@ -0,0 +1,75 @@
+package com.example.adyenwebdemo.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void rejectsBeyondLimitAndReleasesOnCancel() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 0.5);
+
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+
+        limiter.cancel();
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+        assertThat(limiter.getLimit()).isEqualTo(2);
+        assertThat(limiter.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void cutsLimitOnDropAndGrowsWhileInUse() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8, 2, 10, 0.5);
+
+        limiter.tryAcquire();
+        limiter.onComplete(true);
+        assertThat(limiter.getLimit()).isEqualTo(4);
+
+        // Four calls in flight use the limit fully: each success adds about 1/limit
+        for (int round = 0; round < 8; round++) {
+            for (int i = 0; i < 4; i++) {
+                limiter.tryAcquire();
+            }
+            for (int i = 0; i < 4; i++) {
+                limiter.onComplete(false);
+            }
+        }
+        assertThat(limiter.getLimit()).isGreaterThan(4).isLessThanOrEqualTo(10);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void neverAdmitsMoreThanTheLimitConcurrently() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(5, 5, 5, 1.0);
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch done = new CountDownLatch(16);
+        for (int t = 0; t < 16; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    if (limiter.tryAcquire()) {
+                        maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                        active.decrementAndGet();
+                        limiter.onComplete(false);
+                    }
+                }
+                done.countDown();
+            });
+        }
+        assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+        executor.shutdown();
+
+        assertThat(maxActive.get()).isLessThanOrEqualTo(5);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.adyenwebdemo.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    private static CircuitBreaker breaker(Duration openDuration) {
+        return new CircuitBreaker("test", 4, 4, 0.5, openDuration, 2);
+    }
+
+    private static void fail(CircuitBreaker breaker, int calls) {
+        for (int i = 0; i < calls; i++) {
+            breaker.onResult(breaker.tryAcquire(), true);
+        }
+    }
+
+    @Test
+    void opensAtFailureRateAndRejects() {
+        CircuitBreaker breaker = breaker(Duration.ofMinutes(1));
+        breaker.onResult(breaker.tryAcquire(), false);
+        breaker.onResult(breaker.tryAcquire(), false);
+        fail(breaker, 1);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        fail(breaker, 1);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isNegative();
+        assertThat(breaker.retryAfterSeconds()).isBetween(1L, 61L);
+    }
+
+    @Test
+    void closesAfterAllTrialCallsSucceed() {
+        CircuitBreaker breaker = breaker(Duration.ZERO);
+        fail(breaker, 4);
+
+        long first = breaker.tryAcquire();
+        long second = breaker.tryAcquire();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.tryAcquire()).as("only two trial calls").isNegative();
+
+        breaker.onResult(first, false);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        breaker.onResult(second, false);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void failedTrialCallOpensAgain() {
+        CircuitBreaker breaker = breaker(Duration.ZERO);
+        fail(breaker, 4);
+
+        breaker.onResult(breaker.tryAcquire(), true);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void lateResultOfCallPermittedWhileClosedIsNotATrial() {
+        CircuitBreaker breaker = breaker(Duration.ZERO);
+        long slowCall = breaker.tryAcquire();
+        fail(breaker, 4);
+
+        long trial = breaker.tryAcquire();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+
+        // Neither the late success nor a late failure of the old call decides the trial
+        breaker.onResult(slowCall, false);
+        breaker.onResult(slowCall, true);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+
+        breaker.onResult(trial, false);
+        breaker.onResult(breaker.tryAcquire(), false);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void lateTrialResultAfterReopeningIsIgnored() {
+        CircuitBreaker breaker = breaker(Duration.ZERO);
+        fail(breaker, 4);
+        long failing = breaker.tryAcquire();
+        long late = breaker.tryAcquire();
+        breaker.onResult(failing, true);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        breaker.onResult(late, false);
+        breaker.onResult(breaker.tryAcquire(), false);
+
+        assertThat(breaker.getState()).as("one of two new trial calls succeeded")
+                .isEqualTo(CircuitBreaker.State.HALF_OPEN);
+    }
+}
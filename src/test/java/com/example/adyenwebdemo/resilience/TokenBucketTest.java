@@ -0,0 +1,90 @@
+package com.example.adyenwebdemo.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long INTERVAL = SECOND / 10;
+
+    @Test
+    void letsABurstThroughWithoutWaiting() {
+        TokenBucket bucket = new TokenBucket(10, 3);
+        long now = System.nanoTime();
+
+        assertThat(bucket.reserve(now, 0)).isZero();
+        assertThat(bucket.reserve(now, 0)).isZero();
+        assertThat(bucket.reserve(now, 0)).isZero();
+        assertThat(bucket.reserve(now, 0)).as("burst used up").isNegative();
+    }
+
+    @Test
+    void queuesCallsOneIntervalApart() {
+        TokenBucket bucket = new TokenBucket(10, 1);
+        long now = System.nanoTime();
+
+        assertThat(bucket.reserve(now, SECOND)).isZero();
+        assertThat(bucket.reserve(now, SECOND)).isEqualTo(INTERVAL);
+        assertThat(bucket.reserve(now, SECOND)).isEqualTo(2 * INTERVAL);
+        assertThat(bucket.nanosUntilAvailable(now)).isEqualTo(3 * INTERVAL);
+    }
+
+    @Test
+    void rejectsBeyondTheMaximumWaitWithoutReserving() {
+        TokenBucket bucket = new TokenBucket(10, 1);
+        long now = System.nanoTime();
+        bucket.reserve(now, 0);
+
+        assertThat(bucket.reserve(now, INTERVAL - 1)).isNegative();
+        assertThat(bucket.nanosUntilAvailable(now)).isEqualTo(INTERVAL);
+        assertThat(bucket.reserve(now, INTERVAL)).isEqualTo(INTERVAL);
+    }
+
+    @Test
+    void refillsOverTime() {
+        TokenBucket bucket = new TokenBucket(10, 2);
+        long now = System.nanoTime();
+        bucket.reserve(now, 0);
+        bucket.reserve(now, 0);
+        assertThat(bucket.reserve(now, 0)).isNegative();
+
+        assertThat(bucket.reserve(now + INTERVAL, 0)).isZero();
+        assertThat(bucket.reserve(now + INTERVAL, 0)).isNegative();
+        // Idle time refills up to the burst, never beyond it
+        assertThat(bucket.nanosUntilAvailable(now + 10 * SECOND)).isZero();
+        assertThat(bucket.reserve(now + 10 * SECOND, 0)).isZero();
+        assertThat(bucket.reserve(now + 10 * SECOND, 0)).isZero();
+        assertThat(bucket.reserve(now + 10 * SECOND, 0)).isNegative();
+    }
+
+    @Test
+    void pauseHoldsBackCallsUntilItEnds() {
+        TokenBucket bucket = new TokenBucket(10, 5);
+        long now = System.nanoTime();
+
+        bucket.pauseUntil(now + SECOND);
+
+        assertThat(bucket.nanosUntilAvailable(now)).isEqualTo(SECOND);
+        assertThat(bucket.reserve(now, SECOND - 1)).isNegative();
+        assertThat(bucket.reserve(now + SECOND, 0)).isZero();
+        assertThat(bucket.reserve(now + SECOND, 0)).as("one interval apart after the pause").isNegative();
+        assertThat(bucket.reserve(now + SECOND + INTERVAL, 0)).isZero();
+    }
+
+    @Test
+    void pauseNeverShortensTheQueue() {
+        TokenBucket bucket = new TokenBucket(10, 1);
+        long now = System.nanoTime();
+        for (int i = 0; i < 20; i++) {
+            bucket.reserve(now, 10 * SECOND);
+        }
+
+        bucket.pauseUntil(now + INTERVAL);
+
+        assertThat(bucket.nanosUntilAvailable(now)).isEqualTo(20 * INTERVAL);
+    }
+}
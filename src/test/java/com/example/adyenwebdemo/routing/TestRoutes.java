@@ -0,0 +1,18 @@
+package com.example.adyenwebdemo.routing;
+
+import java.util.Set;
+
+/**
+ * Routes without an API client, for tests of what happens around the call
+ */
+public final class TestRoutes {
+
+    private TestRoutes() {
+    }
+
+    public static MerchantRoute route(String merchantAccount, int maxConcurrentCalls) {
+        return new MerchantRoute(new MerchantRoute.Definition(merchantAccount, merchantAccount, "api-key",
+                "client-key", "TEST", null, Set.of(), Set.of(), Set.of(), 1, maxConcurrentCalls), null, null, null,
+                false);
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.adyenwebdemo.service;
+
+import com.adyen.service.exception.ApiException;
+import com.example.adyenwebdemo.model.AdyenOperation;
+import com.example.adyenwebdemo.resilience.AdyenUnavailableException;
+import com.example.adyenwebdemo.resilience.ResilienceProperties;
+import com.example.adyenwebdemo.routing.MerchantRoute;
+import com.example.adyenwebdemo.routing.TestRoutes;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Rate limits and retries of calls on a merchant route; retry delays are a few milliseconds
+ */
+class AdyenApiExecutorTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MockEnvironment environment = new MockEnvironment();
+    private final MerchantRoute route = TestRoutes.route("TestMerchant", 1);
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    // The application's defaults, except for retry delays of a millisecond
+    private static final ResilienceProperties.Circuit CIRCUIT = new ResilienceProperties.Circuit(50, 20, 0.5, 30, 5);
+    private static final ResilienceProperties.Limit LIMIT = new ResilienceProperties.Limit(50, 2, 200, 0.7);
+
+    private AdyenApiExecutor executor(ResilienceProperties.Rate rate, long retryMaxDelayMillis) {
+        ResilienceProperties.Retry retry = new ResilienceProperties.Retry(List.of("paymentMethods", "sessionResult"),
+                3, 1, retryMaxDelayMillis);
+        return new AdyenApiExecutor(new AdyenApiMetrics(registry), registry, environment,
+                new ResilienceProperties(true, 10_000, CIRCUIT, LIMIT, rate, retry));
+    }
+
+    private static ResilienceProperties.Rate rate(double perSecond, int burst, long maxWaitMillis) {
+        return new ResilienceProperties.Rate(true, perSecond, burst, maxWaitMillis);
+    }
+
+    private AdyenApiExecutor executor() {
+        return executor(rate(1000, 100, 250), 5);
+    }
+
+    private static ApiException apiException(int status, Map<String, List<String>> headers) {
+        return new ApiException("status " + status, status, headers);
+    }
+
+    /**
+     * Fails with the given errors in turn, then answers "ok"
+     */
+    private AdyenCall<String> failing(Exception... errors) {
+        return () -> {
+            int attempt = attempts.getAndIncrement();
+            if (attempt < errors.length) {
+                if (errors[attempt] instanceof IOException e) {
+                    throw e;
+                }
+                throw (ApiException) errors[attempt];
+            }
+            return "ok";
+        };
+    }
+
+    private CompletableFuture<String> executeAsync(AdyenApiExecutor executor, String response) {
+        return executor.executeAsync(route, AdyenOperation.PAYMENTS, () -> CompletableFuture.completedFuture(response),
+                r -> null);
+    }
+
+    private double retries() {
+        return registry.counter("adyen.resilience.retries", "operation", "paymentMethods").count();
+    }
+
+    @Test
+    void retriesRetryableOperationsAfterUpstreamFailures() throws Exception {
+        AdyenApiExecutor executor = executor();
+
+        String response = executor.execute(route, AdyenOperation.PAYMENT_METHODS,
+                failing(new SocketTimeoutException("read timed out"), apiException(503, Map.of())));
+
+        assertThat(response).isEqualTo("ok");
+        assertThat(attempts.get()).isEqualTo(3);
+        assertThat(retries()).isEqualTo(2);
+        assertThat(route.stats().inFlight()).as("every attempt released the route").isZero();
+    }
+
+    @Test
+    void givesUpAfterTheMaximumAttempts() {
+        AdyenApiExecutor executor = executor();
+
+        assertThatThrownBy(() -> executor.execute(route, AdyenOperation.PAYMENT_METHODS, failing(
+                apiException(502, Map.of()), apiException(502, Map.of()), apiException(502, Map.of()))))
+                .isInstanceOf(ApiException.class);
+
+        assertThat(attempts.get()).isEqualTo(3);
+        assertThat(route.stats().inFlight()).isZero();
+    }
+
+    @Test
+    void doesNotRetryValidationErrors() {
+        AdyenApiExecutor executor = executor();
+
+        assertThatThrownBy(() -> executor.execute(route, AdyenOperation.PAYMENT_METHODS,
+                failing(apiException(422, Map.of()))))
+                .isInstanceOf(ApiException.class);
+
+        assertThat(attempts.get()).isEqualTo(1);
+        assertThat(retries()).isZero();
+    }
+
+    @Test
+    void doesNotRetryOperationsThatAreNotSafeToRepeat() {
+        AdyenApiExecutor executor = executor();
+
+        assertThatThrownBy(() -> executor.execute(route, AdyenOperation.PAYMENTS,
+                failing(apiException(503, Map.of()))))
+                .isInstanceOf(ApiException.class);
+
+        assertThat(attempts.get()).isEqualTo(1);
+    }
+
+    @Test
+    void waitsAtLeastTheRetryAfter() throws Exception {
+        AdyenApiExecutor executor = executor(rate(1000, 100, 2000), 2000);
+        long start = System.nanoTime();
+
+        String response = executor.execute(route, AdyenOperation.PAYMENT_METHODS,
+                failing(apiException(429, Map.of("Retry-After", List.of("1")))));
+
+        assertThat(response).isEqualTo("ok");
+        assertThat(attempts.get()).isEqualTo(2);
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(1_000_000_000L);
+    }
+
+    @Test
+    void retryAfterHoldsBackTheMerchantAccount() {
+        // The Retry-After is longer than any retry delay, so the call fails at once
+        AdyenApiExecutor executor = executor();
+
+        assertThatThrownBy(() -> executor.execute(route, AdyenOperation.PAYMENT_METHODS,
+                failing(apiException(429, Map.of("Retry-After", List.of("30"))))))
+                .isInstanceOf(ApiException.class);
+        assertThat(attempts.get()).isEqualTo(1);
+
+        assertThatThrownBy(() -> executor.execute(route, AdyenOperation.PAYMENT_METHODS, failing()))
+                .isInstanceOfSatisfying(AdyenUnavailableException.class,
+                        e -> assertThat(e.getRetryAfterSeconds()).isBetween(29L, 30L));
+        assertThat(attempts.get()).isEqualTo(1);
+    }
+
+    @Test
+    void queuesCallsUpToTheMaximumWaitAndRejectsBeyondIt() {
+        // One call every 100 ms without burst: the second waits 100 ms, the third would wait 200 ms
+        AdyenApiExecutor executor = executor(rate(10, 1, 150), 5);
+        long start = System.nanoTime();
+
+        CompletableFuture<String> first = executeAsync(executor, "first");
+        CompletableFuture<String> second = executeAsync(executor, "second");
+        CompletableFuture<String> third = executeAsync(executor, "third");
+
+        assertThat(first.join()).isEqualTo("first");
+        assertThat(second.join()).isEqualTo("second");
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(90_000_000L);
+        assertThatThrownBy(third::join).cause()
+                .isInstanceOfSatisfying(AdyenUnavailableException.class,
+                        e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(1));
+        assertThat(registry.counter("adyen.resilience.rejected", "operation", "payments", "reason", "rate_limit")
+                .count()).isEqualTo(1);
+        assertThat(registry.get("adyen.resilience.queue.wait").tag("merchantAccount", "TestMerchant").timer()
+                .count()).isEqualTo(2);
+    }
+
+    @Test
+    void pacesEachMerchantAccountAndOperationSeparately() throws Exception {
+        AdyenApiExecutor executor = executor(rate(1, 1, 0), 5);
+        MerchantRoute other = TestRoutes.route("OtherMerchant", 1);
+
+        executor.execute(route, AdyenOperation.PAYMENTS, failing());
+        assertThatThrownBy(() -> executor.execute(route, AdyenOperation.PAYMENTS, failing()))
+                .isInstanceOf(AdyenUnavailableException.class);
+
+        executor.execute(other, AdyenOperation.PAYMENTS, failing());
+        executor.execute(route, AdyenOperation.PAYMENTS_DETAILS, failing());
+        assertThat(attempts.get()).isEqualTo(3);
+    }
+
+    @Test
+    void appliesPerOperationRates() throws Exception {
+        environment.setProperty("adyen.resilience.rate.burst.payments", "3");
+        AdyenApiExecutor executor = executor(rate(1, 1, 0), 5);
+
+        for (int i = 0; i < 3; i++) {
+            executor.execute(route, AdyenOperation.PAYMENTS, failing());
+        }
+        assertThatThrownBy(() -> executor.execute(route, AdyenOperation.PAYMENTS, failing()))
+                .isInstanceOf(AdyenUnavailableException.class);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.adyenwebdemo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private final ConcurrentMap<String, CompletableFuture<String>> futures = new ConcurrentHashMap<>();
+
+    @Test
+    void forgetsCallsThatFailedWithAnError() throws Exception {
+        assertThatThrownBy(() -> SingleFlight.execute(futures, "key", () -> {
+            throw new StackOverflowError();
+        })).isInstanceOf(StackOverflowError.class);
+
+        assertThat(futures).isEmpty();
+        assertThat(SingleFlight.execute(futures, "key", () -> "loaded")).isEqualTo("loaded");
+    }
+
+    @Test
+    void forgetsAsyncCallsThatFailedWithAnError() {
+        CompletableFuture<String> failed = SingleFlight.executeAsync(futures, "key", () -> {
+            throw new StackOverflowError();
+        });
+
+        assertThat(failed).isCompletedExceptionally();
+        assertThat(futures).isEmpty();
+        assertThat(SingleFlight.executeAsync(futures, "key", () -> CompletableFuture.completedFuture("loaded"))
+                .join()).isEqualTo("loaded");
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.adyenwebdemo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TimeOrderedReferenceGeneratorTest {
+
+    private static final String ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ";
+
+    private static long decode(String chars) {
+        long value = 0;
+        for (int i = 0; i < chars.length(); i++) {
+            value = value << 5 | ALPHABET.indexOf(chars.charAt(i));
+        }
+        return value;
+    }
+
+    @Test
+    void encodesTimeAndNode() {
+        long before = System.currentTimeMillis();
+        String reference = new TimeOrderedReferenceGenerator(513, "TEST", 4).next();
+        long after = System.currentTimeMillis();
+
+        assertThat(reference).startsWith(ReferenceGenerator.PREFIX);
+        assertThat(reference.length()).isEqualTo(ReferenceGenerator.PREFIX.length() + 18);
+        assertThat(decode(reference.substring(6, 16))).isBetween(before, after);
+        assertThat(decode(reference.substring(16, 18))).isEqualTo(513L);
+    }
+
+    @Test
+    void referencesOfOneThreadAreUniqueAndSorted() {
+        TimeOrderedReferenceGenerator generator = new TimeOrderedReferenceGenerator(1, "TEST", 4);
+        String previous = generator.next();
+        Set<String> seen = new HashSet<>(List.of(previous));
+        for (int i = 0; i < 100_000; i++) {
+            String reference = generator.next();
+            assertThat(reference.compareTo(previous)).isPositive();
+            assertThat(seen.add(reference)).isTrue();
+            previous = reference;
+        }
+    }
+
+    @Test
+    void referencesOfConcurrentThreadsAreUnique() throws Exception {
+        // Fewer stripes than threads, so threads share stripes
+        TimeOrderedReferenceGenerator generator = new TimeOrderedReferenceGenerator(1, "TEST", 2);
+        int threads = 8;
+        int perThread = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    List<String> references = new ArrayList<>(perThread);
+                    for (int i = 0; i < perThread; i++) {
+                        references.add(generator.next());
+                    }
+                    return references;
+                }));
+            }
+            start.countDown();
+            Set<String> all = new HashSet<>();
+            for (Future<List<String>> future : futures) {
+                all.addAll(future.get());
+            }
+            assertThat(all).hasSize(threads * perThread);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void nodesNeverShareReferences() {
+        TimeOrderedReferenceGenerator node1 = new TimeOrderedReferenceGenerator(1, "TEST", 1);
+        TimeOrderedReferenceGenerator node2 = new TimeOrderedReferenceGenerator(2, "TEST", 1);
+        Set<String> references = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            references.add(node1.next());
+            references.add(node2.next());
+        }
+        assertThat(references).hasSize(20_000);
+    }
+
+    @Test
+    void requiresNodeIdOutsideTest() {
+        assertThatThrownBy(() -> new TimeOrderedReferenceGenerator(-1, "LIVE", 4))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("adyen.reference.node-id");
+        assertThat(new TimeOrderedReferenceGenerator(0, "LIVE", 4).next()).startsWith(ReferenceGenerator.PREFIX);
+        assertThat(new TimeOrderedReferenceGenerator(-1, "TEST", 4).next()).startsWith(ReferenceGenerator.PREFIX);
+    }
+
+    @Test
+    void rejectsNodeIdsOutOfRange() {
+        assertThatThrownBy(() -> new TimeOrderedReferenceGenerator(1024, "TEST", 4))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.adyenwebdemo.state;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PaymentEventLogTest {
+
+    private static final int SEGMENT_SIZE = 1024;
+
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("payment-event-log");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static PaymentEvent event(long timestamp, int i) {
+        return new PaymentEvent(PaymentEventType.RESULT, timestamp, "ref-" + i, "psp-" + i, "Authorised", null);
+    }
+
+    private long segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    void replaysAppendedEventsAcrossSegments() throws IOException {
+        PaymentEventLog eventLog = new PaymentEventLog(directory, SEGMENT_SIZE, true);
+        eventLog.open(event -> { });
+        long sequence = 0;
+        for (int i = 0; i < 100; i++) {
+            sequence = eventLog.append(event(i, i));
+            eventLog.force(sequence);
+        }
+        eventLog.close();
+        assertThat(sequence).isEqualTo(100);
+        assertThat(segments()).isGreaterThan(1);
+
+        List<PaymentEvent> replayed = new ArrayList<>();
+        new PaymentEventLog(directory, SEGMENT_SIZE, false).open(replayed::add);
+
+        assertThat(replayed).hasSize(100);
+        assertThat(replayed.get(99)).isEqualTo(event(99, 99));
+    }
+
+    @Test
+    void deletesOnlyClosedSegmentsOlderThanCutoff() throws IOException {
+        PaymentEventLog eventLog = new PaymentEventLog(directory, SEGMENT_SIZE, false);
+        eventLog.open(event -> { });
+        for (int i = 0; i < 100; i++) {
+            eventLog.append(event(i < 50 ? 1_000 : 2_000, i));
+        }
+        long before = segments();
+
+        int deleted = eventLog.deleteSegmentsOlderThan(1_500);
+
+        assertThat(deleted).isPositive();
+        assertThat(segments()).isEqualTo(before - deleted);
+        // The current segment is never deleted, however old its events
+        assertThat(eventLog.deleteSegmentsOlderThan(Long.MAX_VALUE)).isEqualTo((int) (before - deleted - 1));
+        assertThat(segments()).isEqualTo(1);
+
+        eventLog.append(event(3_000, 100));
+        eventLog.close();
+        List<PaymentEvent> replayed = new ArrayList<>();
+        new PaymentEventLog(directory, SEGMENT_SIZE, false).open(replayed::add);
+        assertThat(replayed.get(replayed.size() - 1)).isEqualTo(event(3_000, 100));
+        assertThat(replayed.stream().mapToLong(PaymentEvent::timestamp).min().orElseThrow())
+                .isGreaterThanOrEqualTo(2_000L);
+    }
+}
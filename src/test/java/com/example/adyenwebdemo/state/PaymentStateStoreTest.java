@@ -0,0 +1,123 @@
+package com.example.adyenwebdemo.state;
+
+import com.example.adyenwebdemo.model.PaymentOutcome;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PaymentStateStoreTest {
+
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("payment-state");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private PaymentStateStore store(boolean fsync) throws IOException {
+        PaymentStateStore store = new PaymentStateStore(true, directory, 1, fsync, 30, 0);
+        store.recover();
+        return store;
+    }
+
+    @Test
+    void concurrentRecordsAreAllIndexedAndRecovered() throws Exception {
+        PaymentStateStore store = store(true);
+        int threads = 8;
+        int perThread = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            executor.execute(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    String reference = "ref-" + thread + "-" + i;
+                    store.record(PaymentEvent.of(PaymentEventType.PAYMENT_SUBMITTED, reference, null, null, null));
+                    store.recordResponse(reference, "psp-" + thread + "-" + i, "Authorised", PaymentOutcome.SUCCESS,
+                            null);
+                }
+                done.countDown();
+            });
+        }
+        assertThat(done.await(60, TimeUnit.SECONDS)).isTrue();
+        executor.shutdown();
+        store.close();
+
+        PaymentStateStore recovered = store(false);
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < perThread; i++) {
+                PaymentState state = recovered.findByPspReference("psp-" + t + "-" + i).orElseThrow();
+                assertThat(state.merchantReference()).isEqualTo("ref-" + t + "-" + i);
+                assertThat(state.isFinal()).isTrue();
+            }
+        }
+        recovered.close();
+    }
+
+    @Test
+    void purgeDropsPaymentsOutsideRetentionFromAllIndexes() throws IOException {
+        PaymentStateStore store = store(false);
+        long old = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(31);
+        String redirectKey = PaymentStateStore.redirectKey("redirect-old");
+        store.record(new PaymentEvent(PaymentEventType.RESULT, old, "ref-old", "psp-old", "Authorised", redirectKey));
+        store.recordResponse("ref-new", "psp-new", "Authorised", PaymentOutcome.SUCCESS, null);
+
+        store.purge();
+
+        assertThat(store.findByMerchantReference("ref-old")).isEmpty();
+        assertThat(store.findByPspReference("psp-old")).isEmpty();
+        assertThat(store.findByRedirectResult("redirect-old")).isEmpty();
+        assertThat(store.findByPspReference("psp-new")).isNotEmpty();
+        store.close();
+    }
+
+    @Test
+    void pendingResultsAreNotFinalUntilTheWebhookResult() throws IOException {
+        PaymentStateStore store = store(false);
+        String redirectKey = PaymentStateStore.redirectKey("redirect-1");
+        store.record(PaymentEvent.of(PaymentEventType.DETAILS_SUBMITTED, "ref-1", null, null, redirectKey));
+        store.recordResponse("ref-1", "psp-1", "Pending", PaymentOutcome.PENDING, redirectKey);
+
+        assertThat(store.findByRedirectResult("redirect-1").orElseThrow().isFinal()).isFalse();
+
+        store.record(PaymentEvent.of(PaymentEventType.RESULT, "ref-1", "psp-1", "Authorised", null));
+        store.recordResponse("ref-1", "psp-1", "Received", PaymentOutcome.PENDING, null);
+
+        PaymentState state = store.findByRedirectResult("redirect-1").orElseThrow();
+        assertThat(state.isFinal()).isTrue();
+        assertThat(state.resultCode()).as("a late pending response keeps the result").isEqualTo("Authorised");
+        store.close();
+    }
+
+    @Test
+    void submittedDetailsAreIndexedByTheirMerchantReference() throws IOException {
+        PaymentStateStore store = store(false);
+        store.record(PaymentEvent.of(PaymentEventType.PAYMENT_SUBMITTED, "ref-1", null, null, null));
+        store.record(PaymentEvent.of(PaymentEventType.DETAILS_SUBMITTED, "ref-1", null, null,
+                PaymentStateStore.redirectKey("redirect-1")));
+
+        PaymentState state = store.findByRedirectResult("redirect-1").orElseThrow();
+        assertThat(state.merchantReference()).isEqualTo("ref-1");
+        assertThat(state.lastEvent()).isEqualTo(PaymentEventType.DETAILS_SUBMITTED);
+        store.close();
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.adyenwebdemo.webhook;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DuplicateFilterTest {
+
+    private static final long HOUR = 3_600_000L;
+    private static final long DAY = 24 * HOUR;
+
+    /**
+     * Generations start at the wall clock when a filter is created, so test times are taken relative to it
+     */
+    private final long now = System.currentTimeMillis();
+
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("duplicate-filter");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static DuplicateFilter inMemory(long bloomCapacity, long generationMillis) throws IOException {
+        return DuplicateFilter.open(null, bloomCapacity, 0.000001, generationMillis, 1024, HOUR);
+    }
+
+    private static long key(int i) {
+        return DuplicateFilter.hash("psp-" + i, "AUTHORISATION", "true");
+    }
+
+    @Test
+    void recognizesRecentKeysExactly() throws IOException {
+        DuplicateFilter filter = inMemory(1000, 7 * DAY);
+
+        assertThat(filter.add(key(1), now)).isEqualTo(DuplicateFilter.Result.NEW);
+        assertThat(filter.add(key(1), now + 1000)).isEqualTo(DuplicateFilter.Result.DUPLICATE);
+        assertThat(filter.add(key(2), now + 1000)).isEqualTo(DuplicateFilter.Result.NEW);
+    }
+
+    @Test
+    void checkDoesNotRecord() throws IOException {
+        DuplicateFilter filter = inMemory(1000, 7 * DAY);
+
+        assertThat(filter.check(key(1), now)).isEqualTo(DuplicateFilter.Result.NEW);
+        assertThat(filter.add(key(1), now)).isEqualTo(DuplicateFilter.Result.NEW);
+    }
+
+    @Test
+    void keysOutsideTheExactWindowAreProbableDuplicates() throws IOException {
+        DuplicateFilter filter = inMemory(1000, 7 * DAY);
+        filter.add(key(1), now);
+
+        assertThat(filter.add(key(1), now + 2 * HOUR)).isEqualTo(DuplicateFilter.Result.PROBABLE_DUPLICATE);
+    }
+
+    @Test
+    void hashSeparatesParts() {
+        assertThat(DuplicateFilter.hash("ab", "c")).isNotEqualTo(DuplicateFilter.hash("a", "bc"));
+        assertThat(DuplicateFilter.hash("a", null)).isNotEqualTo(DuplicateFilter.hash("a"));
+    }
+
+    @Test
+    void remembersKeysForOneToTwoGenerations() throws IOException {
+        DuplicateFilter filter = inMemory(1000, DAY);
+        filter.add(key(1), now);
+
+        // Rotated once: the key is in the older generation
+        filter.add(key(2), now + DAY + HOUR);
+        assertThat(filter.currentGenerationCount()).isEqualTo(1);
+        assertThat(filter.check(key(1), now + DAY + HOUR)).isEqualTo(DuplicateFilter.Result.PROBABLE_DUPLICATE);
+
+        // Rotated twice: its generation was cleared
+        filter.add(key(3), now + 2 * DAY + 2 * HOUR);
+        assertThat(filter.check(key(1), now + 2 * DAY + 2 * HOUR)).isEqualTo(DuplicateFilter.Result.NEW);
+        assertThat(filter.check(key(2), now + 2 * DAY + 2 * HOUR))
+                .isEqualTo(DuplicateFilter.Result.PROBABLE_DUPLICATE);
+    }
+
+    @Test
+    void rotatesWhenTheGenerationIsFull() throws IOException {
+        DuplicateFilter filter = inMemory(100, 7 * DAY);
+        for (int i = 0; i < 100; i++) {
+            filter.add(key(i), now);
+        }
+        assertThat(filter.currentGenerationCount()).isEqualTo(100);
+
+        filter.add(key(100), now);
+
+        assertThat(filter.currentGenerationCount()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsFalsePositivesNearTheConfiguredRate() throws IOException {
+        DuplicateFilter filter = DuplicateFilter.open(null, 10_000, 0.001, 7 * DAY, 1024, HOUR);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add(key(i), now);
+        }
+
+        int falsePositives = 0;
+        for (int i = 10_000; i < 110_000; i++) {
+            if (filter.check(key(i), now) != DuplicateFilter.Result.NEW) {
+                falsePositives++;
+            }
+        }
+
+        // 100,000 new keys at fpp 0.001: about 100 expected, the filter is rounded up to a power of two
+        assertThat(falsePositives).isLessThan(200);
+    }
+
+    @Test
+    void keepsKeysAcrossReopen() throws IOException {
+        Path file = directory.resolve("dedupe.bin");
+        try (DuplicateFilter filter = DuplicateFilter.open(file, 1000, 0.000001, DAY, 1024, HOUR)) {
+            filter.add(key(1), now);
+        }
+
+        try (DuplicateFilter filter = DuplicateFilter.open(file, 1000, 0.000001, DAY, 1024, HOUR)) {
+            assertThat(filter.check(key(1), now + 1000)).isEqualTo(DuplicateFilter.Result.DUPLICATE);
+            assertThat(filter.currentGenerationCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void startsEmptyWhenSettingsChanged() throws IOException {
+        Path file = directory.resolve("dedupe.bin");
+        try (DuplicateFilter filter = DuplicateFilter.open(file, 1000, 0.000001, DAY, 1024, HOUR)) {
+            filter.add(key(1), now);
+        }
+
+        try (DuplicateFilter filter = DuplicateFilter.open(file, 2000, 0.000001, DAY, 1024, HOUR)) {
+            assertThat(filter.check(key(1), now + 1000)).isEqualTo(DuplicateFilter.Result.NEW);
+            assertThat(filter.sizeBytes()).isEqualTo(Files.size(file));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.adyenwebdemo.webhook;
+
+import com.adyen.model.checkout.Amount;
+import com.example.adyenwebdemo.config.AdyenConfig;
+import com.example.adyenwebdemo.model.NotificationItem;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HmacSignatureValidatorTest {
+
+    /**
+     * The example notification, key and signature of Adyen's HMAC signature documentation
+     */
+    static final String TEST_KEY = "44782DEF547AAA06C910C43932B1EB0C71FC68D9D0C057550C48EC2ACF6BA056";
+    static final String TEST_SIGNATURE = "coqCmt/IZ4E3CzPvMY8zTjQVL5hYJUiBRg8UU+iCWo0=";
+
+    static NotificationItem testItem(String signature) {
+        NotificationItem item = new NotificationItem();
+        item.setPspReference("7914073381342284");
+        item.setMerchantAccountCode("TestMerchant");
+        item.setMerchantReference("TestPayment-1407325143704");
+        item.setAmount(new Amount().value(1130L).currency("EUR"));
+        item.setEventCode("AUTHORISATION");
+        item.setSuccess("true");
+        item.setAdditionalData(Map.of("hmacSignature", signature));
+        return item;
+    }
+
+    static HmacSignatureValidator validator(String hmacKey) {
+        AdyenConfig config = new AdyenConfig();
+        config.setHmacKey(hmacKey);
+        return new HmacSignatureValidator(config);
+    }
+
+    @Test
+    void signingStringLeavesMissingFieldsEmpty() {
+        assertThat(HmacSignatureValidator.signingString(testItem(TEST_SIGNATURE)))
+                .isEqualTo("7914073381342284::TestMerchant:TestPayment-1407325143704:1130:EUR:AUTHORISATION:true");
+    }
+
+    @Test
+    void acceptsAdyenTestVector() {
+        assertThat(validator(TEST_KEY).isValid(testItem(TEST_SIGNATURE))).isTrue();
+    }
+
+    @Test
+    void acceptsLowerCaseKey() {
+        assertThat(validator(TEST_KEY.toLowerCase()).isValid(testItem(TEST_SIGNATURE))).isTrue();
+    }
+
+    @Test
+    void rejectsTamperedNotification() {
+        NotificationItem item = testItem(TEST_SIGNATURE);
+        item.getAmount().setValue(1L);
+        assertThat(validator(TEST_KEY).isValid(item)).isFalse();
+    }
+
+    @Test
+    void rejectsMissingOrMalformedSignature() {
+        HmacSignatureValidator validator = validator(TEST_KEY);
+        NotificationItem unsigned = testItem(TEST_SIGNATURE);
+        unsigned.setAdditionalData(null);
+        assertThat(validator.isValid(unsigned)).isFalse();
+        assertThat(validator.isValid(testItem(""))).isFalse();
+        assertThat(validator.isValid(testItem("not base64!"))).isFalse();
+    }
+
+    @Test
+    void emptyKeyLeavesValidatorUnconfigured() {
+        HmacSignatureValidator validator = validator("");
+        assertThat(validator.isConfigured()).isFalse();
+        assertThat(validator.isValid(testItem(TEST_SIGNATURE))).isFalse();
+    }
+
+    @Test
+    void invalidKeyFailsStartup() {
+        // 81 characters: not a whole number of bytes
+        assertThatThrownBy(() -> validator(TEST_KEY + "A")).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> validator("not-a-hex-key")).isInstanceOf(IllegalStateException.class);
+    }
+}
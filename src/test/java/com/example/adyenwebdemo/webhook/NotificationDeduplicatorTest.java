@@ -0,0 +1,170 @@
+package com.example.adyenwebdemo.webhook;
+
+import com.example.adyenwebdemo.model.NotificationItem;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * In-memory filters (no file), as the ingestion workers use them
+ */
+class NotificationDeduplicatorTest {
+
+    private NotificationDeduplicator deduplicator;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (deduplicator != null) {
+            deduplicator.close();
+        }
+    }
+
+    private static NotificationDeduplicator deduplicator(boolean enabled) throws IOException {
+        return deduplicator(enabled, 4096);
+    }
+
+    private static NotificationDeduplicator deduplicator(boolean enabled, int exactCapacity) throws IOException {
+        NotificationDeduplicator deduplicator = new NotificationDeduplicator(enabled, null, 100_000, 0.000001, 168,
+                exactCapacity, 60);
+        deduplicator.open();
+        return deduplicator;
+    }
+
+    private static NotificationItem item(String pspReference, String eventCode, String success) {
+        NotificationItem item = new NotificationItem();
+        item.setPspReference(pspReference);
+        item.setEventCode(eventCode);
+        item.setSuccess(success);
+        return item;
+    }
+
+    private static List<NotificationItem> batch(String... pspReferences) {
+        List<NotificationItem> batch = new ArrayList<>();
+        for (String pspReference : pspReferences) {
+            batch.add(item(pspReference, "AUTHORISATION", "true"));
+        }
+        return batch;
+    }
+
+    private static List<String> pspReferences(List<NotificationItem> batch) {
+        return batch.stream().map(NotificationItem::getPspReference).toList();
+    }
+
+    @Test
+    void dropsRedeliveredNotifications() throws IOException {
+        deduplicator = deduplicator(true);
+        List<NotificationItem> first = batch("A", "B");
+        List<NotificationItem> retry = batch("B", "C");
+
+        deduplicator.removeDuplicates(first);
+        deduplicator.removeDuplicates(retry);
+
+        assertThat(pspReferences(first)).containsExactly("A", "B");
+        assertThat(pspReferences(retry)).containsExactly("C");
+        assertThat(deduplicator.stats().duplicates()).isEqualTo(1);
+        assertThat(deduplicator.stats().probableDuplicates()).isZero();
+    }
+
+    @Test
+    void dropsDuplicatesWithinOneBatch() throws IOException {
+        deduplicator = deduplicator(true);
+        List<NotificationItem> batch = batch("A", "A", "B");
+
+        deduplicator.removeDuplicates(batch);
+
+        assertThat(pspReferences(batch)).containsExactly("A", "B");
+    }
+
+    @Test
+    void keepsOtherEventsOfTheSamePayment() throws IOException {
+        deduplicator = deduplicator(true);
+        List<NotificationItem> batch = new ArrayList<>(List.of(item("A", "AUTHORISATION", "true"),
+                item("A", "AUTHORISATION", "false"), item("A", "CAPTURE", "true")));
+
+        deduplicator.removeDuplicates(batch);
+
+        assertThat(batch).hasSize(3);
+    }
+
+    @Test
+    void processesRetriesOnlyTheBloomFilterRecognizes() throws IOException {
+        deduplicator = deduplicator(true);
+        long now = System.currentTimeMillis();
+        List<NotificationItem> first = batch("A");
+        List<NotificationItem> lateRetry = batch("A");
+        List<NotificationItem> secondRetry = batch("A");
+
+        // Two hours later the exact window of an hour has passed
+        deduplicator.removeDuplicates(first, now);
+        deduplicator.removeDuplicates(lateRetry, now + 2 * 3_600_000L);
+        deduplicator.removeDuplicates(secondRetry, now + 2 * 3_600_000L);
+
+        assertThat(pspReferences(lateRetry)).containsExactly("A");
+        assertThat(deduplicator.stats().probableDuplicates()).isEqualTo(1);
+        // The late retry was recorded exactly again, so its own retries are dropped
+        assertThat(secondRetry).isEmpty();
+        assertThat(deduplicator.stats().duplicates()).isEqualTo(1);
+    }
+
+    @Test
+    void disabledKeepsEverything() throws IOException {
+        deduplicator = deduplicator(false);
+        List<NotificationItem> first = batch("A");
+        List<NotificationItem> retry = batch("A");
+
+        deduplicator.removeDuplicates(first);
+        deduplicator.removeDuplicates(retry);
+
+        assertThat(retry).hasSize(1);
+        assertThat(deduplicator.stats().duplicates()).isZero();
+    }
+
+    @Test
+    void concurrentWorkersLetEachNotificationThroughOnce() throws Exception {
+        // Room for every key in the exact window, so no redelivery falls back to a Bloom match that is let through
+        deduplicator = deduplicator(true, 65_536);
+        int workers = 8;
+        int notifications = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger processed = new AtomicInteger();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < workers; w++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    // Every worker receives every notification, in batches of ten
+                    for (int i = 0; i < notifications; i += 10) {
+                        List<NotificationItem> batch = new ArrayList<>();
+                        for (int j = i; j < i + 10; j++) {
+                            batch.add(item("psp-" + j, "AUTHORISATION", "true"));
+                        }
+                        deduplicator.removeDuplicates(batch);
+                        processed.addAndGet(batch.size());
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(processed.get()).isEqualTo(notifications);
+        assertThat(deduplicator.stats().duplicates()).isEqualTo((long) (workers - 1) * notifications);
+        assertThat(deduplicator.stats().probableDuplicates()).isZero();
+    }
+}
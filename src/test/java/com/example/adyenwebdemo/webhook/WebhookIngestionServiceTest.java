@@ -0,0 +1,97 @@
+package com.example.adyenwebdemo.webhook;
+
+import com.example.adyenwebdemo.model.NotificationItem;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Ingestion without started workers, so queued items stay in the queue
+ */
+class WebhookIngestionServiceTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static WebhookIngestionService service(String hmacKey, int queueCapacity) {
+        return new WebhookIngestionService(MAPPER, HmacSignatureValidatorTest.validator(hmacKey), null, List.of(),
+                queueCapacity, 1, 100, 1);
+    }
+
+    private static InputStream batch(int items, String pspReferencePrefix) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(HexFormat.of().parseHex(HmacSignatureValidatorTest.TEST_KEY), "HmacSHA256"));
+        StringBuilder json = new StringBuilder("{\"live\":\"false\",\"notificationItems\":[");
+        for (int i = 0; i < items; i++) {
+            NotificationItem item = HmacSignatureValidatorTest.testItem("");
+            item.setPspReference(pspReferencePrefix + i);
+            String signature = Base64.getEncoder().encodeToString(
+                    mac.doFinal(HmacSignatureValidator.signingString(item).getBytes(StandardCharsets.UTF_8)));
+            item.setAdditionalData(Map.of("hmacSignature", signature));
+            json.append(i > 0 ? "," : "").append("{\"NotificationRequestItem\":")
+                    .append(MAPPER.writeValueAsString(item)).append('}');
+        }
+        return new ByteArrayInputStream(json.append("]}").toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void queuesValidItems() throws Exception {
+        WebhookIngestionService service = service(HmacSignatureValidatorTest.TEST_KEY, 10);
+
+        assertThat(service.ingest(batch(3, "A"))).isTrue();
+
+        WebhookIngestionService.Stats stats = service.stats();
+        assertThat(stats.received()).isEqualTo(3);
+        assertThat(stats.enqueued()).isEqualTo(3);
+        assertThat(stats.queueDepth()).isEqualTo(3);
+        assertThat(stats.remainingCapacity()).isEqualTo(7);
+    }
+
+    @Test
+    void refusesBatchWithoutRoomForAllItemsAndQueuesNoneOfIt() throws Exception {
+        WebhookIngestionService service = service(HmacSignatureValidatorTest.TEST_KEY, 4);
+        assertThat(service.ingest(batch(3, "A"))).isTrue();
+
+        // One place left: Adyen redelivers the whole batch, so none of it may be processed now
+        assertThat(service.ingest(batch(2, "B"))).isFalse();
+
+        WebhookIngestionService.Stats stats = service.stats();
+        assertThat(stats.enqueued()).isEqualTo(3);
+        assertThat(stats.rejected()).isEqualTo(2);
+        assertThat(stats.queueDepth()).isEqualTo(3);
+        assertThat(stats.remainingCapacity()).isEqualTo(1);
+        assertThat(service.ingest(batch(1, "C"))).isTrue();
+    }
+
+    @Test
+    void dropsItemsWithInvalidSignature() throws Exception {
+        WebhookIngestionService service = service(HmacSignatureValidatorTest.TEST_KEY, 10);
+        String payload = "{\"notificationItems\":[{\"NotificationRequestItem\":"
+                + MAPPER.writeValueAsString(HmacSignatureValidatorTest.testItem("AAAA")) + "}]}";
+
+        assertThat(service.ingest(new ByteArrayInputStream(payload.getBytes(StandardCharsets.UTF_8)))).isTrue();
+
+        assertThat(service.stats().invalidSignature()).isEqualTo(1);
+        assertThat(service.stats().queueDepth()).isZero();
+    }
+
+    @Test
+    void refusesWebhooksWithoutHmacKeySoAdyenRetries() throws Exception {
+        WebhookIngestionService service = service("", 10);
+
+        assertThat(service.ingest(batch(1, "A"))).isFalse();
+
+        assertThat(service.stats().unconfigured()).isEqualTo(1);
+        assertThat(service.stats().queueDepth()).isZero();
+    }
+}